@@ -0,0 +1,162 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.dao.ExistenceIndex;
+import ru.yandex.practicum.filmorate.dao.FilmCache;
+import ru.yandex.practicum.filmorate.dao.FriendSuggester;
+import ru.yandex.practicum.filmorate.dao.LikeStorage;
+import ru.yandex.practicum.filmorate.dao.LikeWriteBehindBuffer;
+import ru.yandex.practicum.filmorate.dao.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.dao.ReferenceDictionary;
+import ru.yandex.practicum.filmorate.dao.likelog.LikeLogProjector;
+import ru.yandex.practicum.filmorate.dao.memory.MemoryStore;
+import ru.yandex.practicum.filmorate.dao.recommend.FilmSimilarityIndex;
+import ru.yandex.practicum.filmorate.dao.routing.ReplicaRouting;
+import ru.yandex.practicum.filmorate.dao.search.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.dao.search.FilmSuggestIndex;
+import ru.yandex.practicum.filmorate.model.LikeCountMismatch;
+import ru.yandex.practicum.filmorate.service.SnapshotService;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@RestController
+@RequestMapping("/admin")
+@RequiredArgsConstructor
+public class AdminController {
+    private final FilmCache filmCache;
+    private final ExistenceIndex existenceIndex;
+    private final FriendSuggester friendSuggester;
+    private final LikeStorage likeStorage;
+    private final PopularityLeaderboard leaderboard;
+    private final LikeWriteBehindBuffer likeBuffer;
+    private final LikeLogProjector likeLogProjector;
+    private final ReferenceDictionary referenceDictionary;
+    private final FilmSearchIndex searchIndex;
+    private final FilmSuggestIndex suggestIndex;
+    private final FilmSimilarityIndex similarityIndex;
+    private final ObjectProvider<ReplicaRouting> replicaRouting;
+    private final ObjectProvider<MemoryStore> memoryStore;
+    private final ObjectProvider<SnapshotService> snapshotService;
+
+    @GetMapping("/cache/films")
+    public Map<String, Object> filmCacheStats() {
+        return filmCache.stats();
+    }
+
+    @GetMapping("/search/films")
+    public Map<String, Object> searchIndexStats() {
+        return searchIndex.stats();
+    }
+
+    @PostMapping("/suggest/rebuild")
+    public void rebuildSuggestIndex() {
+        suggestIndex.rebuild();
+    }
+
+    @GetMapping("/recommendations")
+    public Map<String, Object> recommendationStats() {
+        return similarityIndex.stats();
+    }
+
+    @PostMapping("/recommendations/rebuild")
+    public void rebuildRecommendations() {
+        similarityIndex.rebuild();
+    }
+
+    @GetMapping("/cache/friend-suggestions")
+    public Map<String, Object> friendSuggestionCacheStats() {
+        return friendSuggester.stats();
+    }
+
+    @GetMapping("/existence")
+    public Map<String, Object> existenceStats() {
+        return existenceIndex.stats();
+    }
+
+    @PostMapping("/existence/reload")
+    public Map<String, Object> reloadExistence() {
+        existenceIndex.load();
+        return existenceIndex.stats();
+    }
+
+    @PostMapping("/reference/reload")
+    public Map<String, Object> reloadReferenceData() {
+        referenceDictionary.load();
+        return Map.of(
+                "genres", referenceDictionary.genres().size(),
+                "mpa", referenceDictionary.ratings().size()
+        );
+    }
+
+    // Пулы соединений есть по отдельности только в профиле read-replica
+    @GetMapping("/datasources")
+    public Map<String, Object> dataSourceStats() {
+        ReplicaRouting routing = replicaRouting.getIfAvailable();
+        return routing != null ? routing.stats() : Map.of("routing", "disabled");
+    }
+
+    // Хранилище в памяти есть только в профиле memory
+    @GetMapping("/memory")
+    public Map<String, Object> memoryStats() {
+        MemoryStore store = memoryStore.getIfAvailable();
+        return store != null ? store.stats() : Map.of("memory", "disabled");
+    }
+
+    @PostMapping("/memory/snapshot")
+    public Map<String, Object> memorySnapshot() {
+        MemoryStore store = memoryStore.getIfAvailable();
+        if (store == null) {
+            return Map.of("memory", "disabled");
+        }
+        store.snapshot();
+        return store.stats();
+    }
+
+    // Двоичный снимок БД; в профиле memory данные не в БД и у хранилища свои снимки
+    @PostMapping("/snapshot/export")
+    public Map<String, Object> exportSnapshot(@RequestParam String name) throws IOException {
+        SnapshotService service = snapshotService.getIfAvailable();
+        return service != null ? service.export(name) : Map.of("snapshot", "disabled");
+    }
+
+    @PostMapping("/snapshot/restore")
+    public Map<String, Object> restoreSnapshot(@RequestParam String name) throws IOException {
+        SnapshotService service = snapshotService.getIfAvailable();
+        return service != null ? service.restore(name) : Map.of("snapshot", "disabled");
+    }
+
+    @GetMapping("/likes/write-behind")
+    public Map<String, Object> likeWriteBehindStats() {
+        return likeBuffer.stats();
+    }
+
+    @GetMapping("/likes/event-log")
+    public Map<String, Object> likeEventLogStats() {
+        return likeLogProjector.stats();
+    }
+
+    @GetMapping("/films/like-count")
+    public List<LikeCountMismatch> checkLikeCounts() {
+        return likeStorage.findLikeCountMismatches();
+    }
+
+    @PostMapping("/films/like-count/repair")
+    public List<LikeCountMismatch> repairLikeCounts() {
+        List<LikeCountMismatch> repaired = likeStorage.repairLikeCounts();
+        if (!repaired.isEmpty()) {
+            leaderboard.reconcile();
+            suggestIndex.rebuild();
+        }
+        return repaired;
+    }
+}
@@ -1,41 +1,143 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import ru.yandex.practicum.filmorate.dao.InDbFilmStorage;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.dao.FilmStorage;
 import ru.yandex.practicum.filmorate.dao.mapper.Film.FilmDto;
+import ru.yandex.practicum.filmorate.model.ApproxTrendingResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmImportResult;
+import ru.yandex.practicum.filmorate.model.MultiGetResult;
+import ru.yandex.practicum.filmorate.service.FilmImportService;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import tools.jackson.databind.json.JsonMapper;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
+import java.util.List;
 
 @RestController
 @RequestMapping("/films")
 @RequiredArgsConstructor
 public class FilmController {
-    private final InDbFilmStorage inDbFilmStorage;
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    private final FilmStorage filmStorage;
     private final FilmService filmService;
+    private final FilmImportService filmImportService;
+    private final JsonMapper jsonMapper;
+
+    // Без параметров страницы — весь каталог, как и раньше. Массив пишется в ответ по мере чтения из хранилища,
+    // каталог целиком в памяти не собирается
+    @GetMapping(params = {"!afterId", "!limit", "!ids"})
+    public void findAll(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        OutputStream out = response.getOutputStream();
+        boolean[] first = {true};
+
+        out.write('[');
+        filmStorage.streamAll(null, film -> {
+            try {
+                if (!first[0]) {
+                    out.write(',');
+                }
+                first[0] = false;
+                out.write(jsonMapper.writeValueAsBytes(film));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        out.write(']');
+    }
 
     @GetMapping
-    public Collection<FilmDto> findAll() {
-        return inDbFilmStorage.findAll();
+    public Collection<FilmDto> findPage(@RequestParam(required = false) Long afterId,
+                                        @RequestParam(required = false) Integer limit) {
+        return filmStorage.findPage(afterId, limit != null ? limit : DEFAULT_PAGE_SIZE);
+    }
+
+    @GetMapping(params = "ids")
+    public MultiGetResult<FilmDto> getFilmsByIds(@RequestParam List<Long> ids) {
+        return filmService.getFilmsByIds(ids);
+    }
+
+    @PostMapping("/by-ids")
+    public MultiGetResult<FilmDto> getFilmsByIdsPost(@RequestBody List<Long> ids) {
+        return filmService.getFilmsByIds(ids);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportAll(@RequestParam(required = false) Long afterId) {
+        StreamingResponseBody body = out -> filmStorage.streamAll(afterId, film -> {
+            try {
+                out.write(jsonMapper.writeValueAsBytes(film));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @GetMapping("/search")
+    public Collection<FilmDto> search(@RequestParam(required = false) String q,
+                                      @RequestParam(defaultValue = "20") Integer limit) {
+        return filmService.search(q, limit);
+    }
+
+    @GetMapping("/suggest")
+    public Collection<FilmDto> suggest(@RequestParam(required = false) String prefix,
+                                       @RequestParam(defaultValue = "10") Integer limit) {
+        return filmService.suggest(prefix, limit);
     }
 
     @GetMapping("/{id}")
     public FilmDto getFilmById(@PathVariable Long id) {
 
-        return inDbFilmStorage.getFilmById(id);
+        return filmStorage.getFilmById(id);
     }
 
     @PostMapping
     public FilmDto create(@Valid @RequestBody Film film) {
-        return inDbFilmStorage.create(film);
+        return filmStorage.create(film);
+    }
+
+    @PostMapping("/batch")
+    public FilmImportResult createBatch(@RequestBody List<Film> films) {
+        return filmImportService.importFilms(films);
+    }
+
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public FilmImportResult importNdjson(InputStream body) throws IOException {
+        return filmImportService.importNdjson(body);
+    }
+
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public FilmImportResult importCsv(InputStream body) throws IOException {
+        return filmImportService.importCsv(body);
     }
 
     @PutMapping
     public FilmDto update(@Valid @RequestBody Film newFilm) {
-        return inDbFilmStorage.update(newFilm);
+        return filmStorage.update(newFilm);
+    }
+
+    @GetMapping("/{id}/similar")
+    public Collection<FilmDto> getSimilar(@PathVariable Long id, @RequestParam(defaultValue = "10") Integer limit) {
+        return filmService.getSimilar(id, limit);
     }
 
     @PutMapping("/{id}/like/{userId}")
@@ -52,4 +154,16 @@ public class FilmController {
     public Collection<FilmDto> getPopular(@RequestParam(defaultValue = "10") Integer count) {
         return filmService.getPopular(count);
     }
+
+    @GetMapping("/trending")
+    public Collection<FilmDto> getTrending(@RequestParam(defaultValue = "24h") String window,
+                                           @RequestParam(defaultValue = "10") Integer count) {
+        return filmService.getTrending(window, count);
+    }
+
+    @GetMapping(value = "/trending", params = "approx=true")
+    public ApproxTrendingResult<FilmDto> getApproxTrending(@RequestParam(required = false) String window,
+                                                           @RequestParam(defaultValue = "10") Integer count) {
+        return filmService.getApproxTrending(window, count);
+    }
 }
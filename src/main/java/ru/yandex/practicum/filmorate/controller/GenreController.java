@@ -6,7 +6,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-import ru.yandex.practicum.filmorate.dao.InDbGenre;
+import ru.yandex.practicum.filmorate.dao.ReferenceDictionary;
 import ru.yandex.practicum.filmorate.model.Genre;
 
 import java.util.Collection;
@@ -16,15 +16,15 @@ import java.util.Collection;
 @RequestMapping("/genres")
 @RequiredArgsConstructor
 public class GenreController {
-    private final InDbGenre inDbGenre;
+    private final ReferenceDictionary referenceDictionary;
 
     @GetMapping
     public Collection<Genre> findAll() {
-        return inDbGenre.inGenryAll();
+        return referenceDictionary.genres();
     }
 
     @GetMapping("/{id}")
     public Genre getMpaById(@PathVariable Integer id) {
-        return inDbGenre.inGenryById(id);
+        return referenceDictionary.genre(id);
     }
 }
\ No newline at end of file
@@ -6,7 +6,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-import ru.yandex.practicum.filmorate.dao.InDbMpa;
+import ru.yandex.practicum.filmorate.dao.ReferenceDictionary;
 import ru.yandex.practicum.filmorate.model.Mpa;
 
 import java.util.Collection;
@@ -17,15 +17,15 @@ import java.util.Collection;
 @RequiredArgsConstructor
 public class MpaController {
 
-    private final InDbMpa inDbMpa;
+    private final ReferenceDictionary referenceDictionary;
 
     @GetMapping
     public Collection<Mpa> findAll() {
-        return inDbMpa.inMpaAll();
+        return referenceDictionary.ratings();
     }
 
     @GetMapping("/{id}")
     public Mpa getMpaById(@PathVariable Integer id) {
-        return inDbMpa.inMpaById(id);
+        return referenceDictionary.mpa(id);
     }
 }
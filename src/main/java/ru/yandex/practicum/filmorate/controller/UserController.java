@@ -3,41 +3,82 @@ package ru.yandex.practicum.filmorate.controller;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import ru.yandex.practicum.filmorate.dao.InDbUserStorage;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.dao.UserStorage;
+import ru.yandex.practicum.filmorate.dao.mapper.Film.FilmDto;
 import ru.yandex.practicum.filmorate.dao.mapper.user.UserDto;
+import ru.yandex.practicum.filmorate.model.MultiGetResult;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
+import tools.jackson.databind.json.JsonMapper;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collection;
+import java.util.List;
 
 @Slf4j
 @RestController
 @RequestMapping("/users")
 @RequiredArgsConstructor
 public class UserController {
+    private static final int DEFAULT_PAGE_SIZE = 100;
 
-    private final InDbUserStorage inDbUserStorage;
+    private final UserStorage userStorage;
     private final UserService userService;
+    private final FilmService filmService;
+    private final JsonMapper jsonMapper;
 
+    // Без параметров — первая страница, как и раньше (LIMIT 100); всех пользователей отдает только /users/export
     @GetMapping
-    public Collection<UserDto> findAll() {
-        return inDbUserStorage.findAll();
+    public Collection<UserDto> findAll(@RequestParam(required = false) Long afterId,
+                                       @RequestParam(required = false) Integer limit) {
+        return userStorage.findPage(afterId, limit != null ? limit : DEFAULT_PAGE_SIZE);
+    }
+
+    @GetMapping(params = "ids")
+    public MultiGetResult<UserDto> getUsersByIds(@RequestParam List<Long> ids) {
+        return userService.getUsersByIds(ids);
+    }
+
+    @PostMapping("/by-ids")
+    public MultiGetResult<UserDto> getUsersByIdsPost(@RequestBody List<Long> ids) {
+        return userService.getUsersByIds(ids);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportAll(@RequestParam(required = false) Long afterId) {
+        StreamingResponseBody body = out -> userStorage.streamAll(afterId, user -> {
+            try {
+                out.write(jsonMapper.writeValueAsBytes(user));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
     @GetMapping("/{id}")
     public UserDto getUsetById(@PathVariable Long id) {
-        return inDbUserStorage.getUsetById(id);
+        return userStorage.getUsetById(id);
     }
 
     @PostMapping
     public UserDto create(@Valid @RequestBody User user) {
-        return inDbUserStorage.create(user);
+        return userStorage.create(user);
     }
 
     @PutMapping
     public UserDto update(@Valid @RequestBody User newUser) {
-        return inDbUserStorage.update(newUser);
+        return userStorage.update(newUser);
     }
 
     @PutMapping ("/{id}/friends/{friendId}")
@@ -55,8 +96,21 @@ public class UserController {
         return userService.findAllFriends(id);
     }
 
+    @GetMapping ("/{id}/friends/suggestions")
+    public Collection<UserDto> suggestFriends(@PathVariable Long id,
+                                              @RequestParam(defaultValue = "10") Integer limit,
+                                              @RequestParam(defaultValue = "mutual") String scoring) {
+        return userService.suggestFriends(id, limit, scoring);
+    }
+
     @GetMapping ("/{id}/friends/common/{otherId}")
     public Collection<User> commonFriends(@PathVariable Long id, @PathVariable Long otherId) {
         return userService.commonFriends(id, otherId);
     }
+
+    @GetMapping ("/{id}/recommendations")
+    public Collection<FilmDto> getRecommendations(@PathVariable Long id,
+                                                  @RequestParam(defaultValue = "10") Integer limit) {
+        return filmService.getRecommendations(id, limit);
+    }
 }
@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+
+/**
+ * Признак изменяющего HTTP-запроса для фильтров. POST /films/by-ids и /users/by-ids только читают:
+ * список id передается в теле, потому что может не поместиться в строку запроса.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class WriteRequests {
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+    private static final Set<String> READ_ONLY_POSTS = Set.of("/films/by-ids", "/users/by-ids");
+
+    public static boolean isMutation(HttpServletRequest request) {
+        if (SAFE_METHODS.contains(request.getMethod())) {
+            return false;
+        }
+        return !("POST".equals(request.getMethod()) && READ_ONLY_POSTS.contains(request.getRequestURI()));
+    }
+}
@@ -0,0 +1,178 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+/**
+ * Проверка существования пользователей и фильмов без запроса к БД: битовые множества id.
+ * Найденный в памяти id отвечается сразу (удаления в приложении нет); промах проверяется
+ * запросом к хранилищу — строку могли создать в обход этого экземпляра приложения.
+ */
+@Slf4j
+@Component
+public class ExistenceIndex {
+    private final Ids users;
+    private final Ids films;
+
+    public ExistenceIndex(StorageScan scan) {
+        this.users = new Ids(scan::userIds, scan::userExists);
+        this.films = new Ids(scan::filmIds, scan::filmExists);
+    }
+
+    @PostConstruct
+    public void load() {
+        users.load();
+        films.load();
+        log.info("Индекс существования загружен: пользователей {}, фильмов {}", users.count(), films.count());
+    }
+
+    public boolean userExists(Long id) {
+        return users.exists(id);
+    }
+
+    public boolean filmExists(Long id) {
+        return films.exists(id);
+    }
+
+    public void requireUser(Long id) {
+        if (!userExists(id)) {
+            log.error("Пользователь с id {} не найден", id);
+            throw new NotFoundException("Пользователь с id " + id + " не существует");
+        }
+    }
+
+    public void requireFilm(Long id) {
+        if (!filmExists(id)) {
+            log.error("Фильм с id {} не найден", id);
+            throw new NotFoundException("Фильм с id " + id + " не найден");
+        }
+    }
+
+    public void userCreated(Long id) {
+        users.add(id);
+    }
+
+    public void filmCreated(Long id) {
+        films.add(id);
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+                "users", users.count(),
+                "films", films.count(),
+                "fallbackQueries", users.fallbacks() + films.fallbacks()
+        );
+    }
+
+    private static class Ids {
+        private final Consumer<LongConsumer> scanIds;
+        private final LongPredicate lookup;
+        private IdSet present = new IdSet();
+        private long fallbacks;
+
+        Ids(Consumer<LongConsumer> scanIds, LongPredicate lookup) {
+            this.scanIds = scanIds;
+            this.lookup = lookup;
+        }
+
+        void load() {
+            IdSet loaded = new IdSet();
+            scanIds.accept(loaded::add);
+
+            synchronized (this) {
+                present = loaded;
+            }
+        }
+
+        boolean exists(Long id) {
+            if (id == null || id <= 0) {
+                return false;
+            }
+
+            synchronized (this) {
+                if (present.contains(id)) {
+                    return true;
+                }
+                fallbacks++;
+            }
+
+            // Промах не значит, что строки нет: ее могли записать другой экземпляр приложения,
+            // восстановление снимка на другом узле или запись в обход приложения
+            boolean found = lookup.test(id);
+            // Незакоммиченную строку чужой транзакции запоминать нельзя: она может откатиться
+            if (found && !TransactionSynchronizationManager.isActualTransactionActive()) {
+                add(id);
+            }
+            return found;
+        }
+
+        void add(Long id) {
+            synchronized (this) {
+                present.add(id);
+            }
+            TransactionHooks.afterRollback(() -> remove(id));
+        }
+
+        synchronized long count() {
+            return present.count();
+        }
+
+        synchronized long fallbacks() {
+            return fallbacks;
+        }
+
+        private synchronized void remove(Long id) {
+            present.remove(id);
+        }
+    }
+
+    /**
+     * Множество id страницами по 65536 бит: память тратится только на занятые диапазоны,
+     * поэтому разреженные id (блоки шардов после сдвига последовательности) не раздувают его,
+     * а весь диапазон BIGINT поддерживается без переполнения int.
+     */
+    private static class IdSet {
+        private static final int PAGE_SHIFT = 16;
+        private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+
+        private final Map<Long, long[]> pages = new HashMap<>();
+        private long count;
+
+        boolean contains(long id) {
+            long[] page = pages.get(id >>> PAGE_SHIFT);
+            int bit = (int) (id & PAGE_MASK);
+            return page != null && (page[bit >>> 6] & (1L << bit)) != 0;
+        }
+
+        void add(long id) {
+            long[] page = pages.computeIfAbsent(id >>> PAGE_SHIFT, key -> new long[1 << (PAGE_SHIFT - 6)]);
+            int bit = (int) (id & PAGE_MASK);
+            if ((page[bit >>> 6] & (1L << bit)) == 0) {
+                page[bit >>> 6] |= 1L << bit;
+                count++;
+            }
+        }
+
+        void remove(long id) {
+            long[] page = pages.get(id >>> PAGE_SHIFT);
+            int bit = (int) (id & PAGE_MASK);
+            if (page != null && (page[bit >>> 6] & (1L << bit)) != 0) {
+                page[bit >>> 6] &= ~(1L << bit);
+                count--;
+            }
+        }
+
+        long count() {
+            return count;
+        }
+    }
+}
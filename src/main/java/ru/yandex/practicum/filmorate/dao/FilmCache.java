@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.dao.mapper.Film.FilmDto;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Кэш готовых к отдаче FilmDto перед {@link InDbFilmStorage#getFilmById(Long)}.
+ * Вытеснение по размеру с учетом частоты обращений (W-TinyLFU).
+ * В режиме strict записи сбрасываются при любом изменении фильма и его лайков,
+ * в режиме ttl изменения лайков не сбрасывают запись, она живет не дольше ttl.
+ */
+@Slf4j
+@Component
+public class FilmCache {
+    private final Cache<Long, FilmDto> cache;
+    private final boolean strict;
+
+    public FilmCache(@Value("${filmorate.cache.films.max-size:10000}") long maxSize,
+                     @Value("${filmorate.cache.films.mode:strict}") String mode,
+                     @Value("${filmorate.cache.films.ttl:5s}") Duration ttl) {
+        this.strict = !"ttl".equalsIgnoreCase(mode);
+
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats();
+        if (!strict) {
+            builder.expireAfterWrite(ttl);
+        }
+        this.cache = builder.build();
+
+        log.info("Кэш фильмов: размер {}, режим {}", maxSize, strict ? "strict" : "ttl " + ttl);
+    }
+
+    public FilmDto get(Long id, Function<Long, FilmDto> loader) {
+        // Внутри пишущей транзакции можно прочитать еще не закоммиченные данные, их не кэшируем
+        if (inWriteTransaction()) {
+            FilmDto cached = cache.getIfPresent(id);
+            return cached != null ? cached : loader.apply(id);
+        }
+        return cache.get(id, loader);
+    }
+
+    public List<FilmDto> getAll(List<Long> ids, Function<List<Long>, List<FilmDto>> loader) {
+        if (inWriteTransaction()) {
+            return loader.apply(ids);
+        }
+
+        Map<Long, FilmDto> found = cache.getAll(ids, missing -> loader.apply(new ArrayList<>(missing)).stream()
+                .collect(Collectors.toMap(FilmDto::getId, Function.identity())));
+
+        return ids.stream()
+                .map(found::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+
+        // Пока транзакция не завершена, параллельное чтение может вернуть в кэш старую версию
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(id);
+                }
+            });
+        }
+    }
+
+    public void invalidateLikes(Long id) {
+        if (strict) {
+            invalidate(id);
+        }
+    }
+
+    private boolean inWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    public Map<String, Object> stats() {
+        CacheStats stats = cache.stats();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("mode", strict ? "strict" : "ttl");
+        result.put("size", cache.estimatedSize());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("evictions", stats.evictionCount());
+        result.put("hitRate", stats.hitRate());
+        return result;
+    }
+}
@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Где лежат таблицы film, film_genres и likes: в основной БД или в нескольких шардах.
+ * Фильм вместе с его жанрами и лайками всегда хранится в одном источнике, номер которого вычисляется по id.
+ */
+public interface FilmDataSources {
+    List<JdbcTemplate> all();
+
+    int shardOf(long filmId);
+
+    TransactionTemplate transactions(int shard);
+
+    default JdbcTemplate forFilm(long filmId) {
+        return all().get(shardOf(filmId));
+    }
+
+    // Последовательный обход всех источников одним обработчиком: для перестроения индексов в памяти
+    default void queryAll(String sql, RowCallbackHandler handler, Object... args) {
+        for (JdbcTemplate jdbc : all()) {
+            jdbc.query(sql, handler, args);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dao.mapper.Film.FilmDto;
+import ru.yandex.practicum.filmorate.dao.mapper.Film.FilmDtoMapper;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.*;
+
+/**
+ * Вторая фаза чтения фильмов: по уже загруженным строкам film одним запросом
+ * подтягивает жанры и одним запросом лайки для всего набора id.
+ * Сами жанры берутся из справочника в памяти, из БД читаются только их id.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FilmHydrator {
+    private final JdbcTemplate jdbc;
+    private final ReferenceDictionary referenceDictionary;
+
+    public List<FilmDto> hydrate(List<Film> films) {
+        return hydrate(jdbc, films);
+    }
+
+    // Жанры и лайки читаются из того же источника, что и строки film: при шардировании — из шарда фильмов
+    public List<FilmDto> hydrate(JdbcTemplate jdbc, List<Film> films) {
+        if (films.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Long, Film> byId = new HashMap<>();
+        for (Film film : films) {
+            film.setGenres(new LinkedHashSet<>());
+            film.setLikes(new HashSet<>());
+            byId.put(film.getId(), film);
+        }
+
+        String placeholders = String.join(", ", Collections.nCopies(byId.size(), "?"));
+        Object[] ids = byId.keySet().toArray();
+
+        String genresSql = "SELECT film_id, genre_id FROM film_genres " +
+                "WHERE film_id IN (" + placeholders + ") " +
+                "ORDER BY film_id, genre_id";
+
+        jdbc.query(genresSql, rs -> {
+            byId.get(rs.getLong("film_id")).getGenres().add(referenceDictionary.genreForRow(rs.getInt("genre_id")));
+        }, ids);
+
+        String likesSql = "SELECT film_id, user_id FROM likes WHERE film_id IN (" + placeholders + ")";
+
+        jdbc.query(likesSql, rs -> {
+            byId.get(rs.getLong("film_id")).getLikes().add(rs.getLong("user_id"));
+        }, ids);
+
+        return films.stream()
+                .map(FilmDtoMapper::mapToDto)
+                .toList();
+    }
+}
@@ -4,6 +4,8 @@ import ru.yandex.practicum.filmorate.dao.mapper.Film.FilmDto;
 import ru.yandex.practicum.filmorate.model.Film;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     FilmDto create(Film film);
@@ -12,6 +14,16 @@ public interface FilmStorage {
 
     Collection<FilmDto> findAll();
 
+    Collection<FilmDto> findPage(Long afterId, int limit);
+
+    void streamAll(Long afterId, Consumer<FilmDto> consumer);
+
     FilmDto getFilmById(Long id);
 
+    List<FilmDto> getFilmsByIds(Collection<Long> ids);
+
+    List<Long> createBatch(List<Film> films);
+
+    void validate(Film film);
+
 }
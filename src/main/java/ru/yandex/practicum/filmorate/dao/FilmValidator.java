@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Проверки фильма перед записью помимо bean validation, общие для всех реализаций FilmStorage.
+ * Рейтинг и жанры заменяются экземплярами из справочника.
+ */
+@Component
+@RequiredArgsConstructor
+public class FilmValidator {
+    private final ReferenceDictionary referenceDictionary;
+
+    public void validate(Film film) {
+        if (film.getReleaseDate() == null) {
+            throw new ValidationException("Дата релиза должна быть указана");
+        }
+
+        validateReleaseDate(film);
+        film.setMpa(resolveMpa(film));
+        film.setGenres(resolveGenres(film));
+    }
+
+    public void validateReleaseDate(Film film) {
+        if (film.getReleaseDate().isBefore(LocalDate.of(1895, 12, 28))) {
+            throw new ValidationException("Дата релиза не может быть раньше 28 декабря 1895 года");
+        }
+    }
+
+    public Mpa resolveMpa(Film film) {
+        return film.getMpa() != null ? referenceDictionary.mpa(film.getMpa().getId()) : null;
+    }
+
+    public Set<Genre> resolveGenres(Film film) {
+        if (film.getGenres() == null) {
+            return new LinkedHashSet<>();
+        }
+
+        return film.getGenres().stream()
+                .map(genre -> referenceDictionary.genre(genre.getId()))
+                .sorted(Comparator.comparing(Genre::getId))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+}
@@ -0,0 +1,283 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Граф дружбы в памяти. Друзья пользователя — те же, что в SQL-запросах UserService:
+ * его исходящие заявки в статусе pending/accepted и входящие accepted.
+ * Все множества — отсортированные long[], общие друзья считаются слиянием двух массивов.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FriendGraph {
+    private static final long[] EMPTY = new long[0];
+
+    private final StorageScan scan;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<Long, long[]> outgoing = new HashMap<>();
+    private Map<Long, long[]> incoming = new HashMap<>();
+    private Map<Long, long[]> acceptedOutgoing = new HashMap<>();
+    private Map<Long, long[]> acceptedIncoming = new HashMap<>();
+    private Map<Long, long[]> friends = new HashMap<>();
+    // Изменения, сделанные во время перечитывания: повторяются на новых данных перед подменой
+    private List<Runnable> changesDuringReload;
+    private volatile long generation;
+
+    // Статус заявок меняется только напрямую в БД, поэтому граф периодически перечитывается целиком.
+    // Перечитывания по расписанию и после восстановления снимка идут по очереди: у каждого свой буфер изменений
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${filmorate.friends.reload-interval:PT5M}",
+            initialDelayString = "${filmorate.friends.reload-interval:PT5M}")
+    public synchronized void reload() {
+        lock.writeLock().lock();
+        try {
+            changesDuringReload = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            load();
+        } finally {
+            lock.writeLock().lock();
+            try {
+                changesDuringReload = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void load() {
+        Map<Long, List<Long>> out = new HashMap<>();
+        Map<Long, List<Long>> in = new HashMap<>();
+        Map<Long, List<Long>> acceptedOut = new HashMap<>();
+        Map<Long, List<Long>> acceptedIn = new HashMap<>();
+
+        scan.friendships(row -> {
+            long userId = row.userId();
+            long friendId = row.friendId();
+            String status = row.status();
+            if ("pending".equals(status) || "accepted".equals(status)) {
+                out.computeIfAbsent(userId, key -> new ArrayList<>()).add(friendId);
+                in.computeIfAbsent(friendId, key -> new ArrayList<>()).add(userId);
+            }
+            if ("accepted".equals(status)) {
+                acceptedOut.computeIfAbsent(userId, key -> new ArrayList<>()).add(friendId);
+                acceptedIn.computeIfAbsent(friendId, key -> new ArrayList<>()).add(userId);
+            }
+        });
+
+        Map<Long, long[]> freshOutgoing = toSortedArrays(out);
+        Map<Long, long[]> freshAcceptedIncoming = toSortedArrays(acceptedIn);
+        Map<Long, long[]> freshFriends = new HashMap<>();
+        Set<Long> users = new HashSet<>(freshOutgoing.keySet());
+        users.addAll(freshAcceptedIncoming.keySet());
+        for (Long userId : users) {
+            freshFriends.put(userId, union(freshOutgoing.getOrDefault(userId, EMPTY),
+                    freshAcceptedIncoming.getOrDefault(userId, EMPTY)));
+        }
+
+        lock.writeLock().lock();
+        try {
+            outgoing = freshOutgoing;
+            incoming = toSortedArrays(in);
+            acceptedOutgoing = toSortedArrays(acceptedOut);
+            acceptedIncoming = freshAcceptedIncoming;
+            friends = freshFriends;
+            changesDuringReload.forEach(Runnable::run);
+            generation++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Граф дружбы загружен: пользователей с друзьями {}", freshFriends.size());
+    }
+
+    // Новая заявка всегда pending: в друзьях она появляется только у отправителя
+    public void addRequest(Long userId, Long friendId) {
+        change(() -> {
+            outgoing.put(userId, insert(outgoing.getOrDefault(userId, EMPTY), friendId));
+            incoming.put(friendId, insert(incoming.getOrDefault(friendId, EMPTY), userId));
+            refresh(userId);
+        });
+        TransactionHooks.afterRollback(() -> removeRequest(userId, friendId));
+    }
+
+    public void deleteRequest(Long userId, Long friendId) {
+        boolean accepted;
+        lock.readLock().lock();
+        try {
+            accepted = Arrays.binarySearch(acceptedOutgoing.getOrDefault(userId, EMPTY), friendId) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+        removeRequest(userId, friendId);
+        TransactionHooks.afterRollback(() -> restoreRequest(userId, friendId, accepted));
+    }
+
+    public long[] friendsOf(Long userId) {
+        lock.readLock().lock();
+        try {
+            return friends.getOrDefault(userId, EMPTY);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Пользователи, у которых userId в друзьях: отправители заявок ему и принявшие его заявку
+    public long[] friendOf(Long userId) {
+        lock.readLock().lock();
+        try {
+            return union(incoming.getOrDefault(userId, EMPTY), acceptedOutgoing.getOrDefault(userId, EMPTY));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Меняется при каждом полном перечитывании графа: по нему кэши понимают, что данные устарели целиком
+    public long generation() {
+        return generation;
+    }
+
+    public long[] commonFriends(Long userId, Long otherId) {
+        long[] first;
+        long[] second;
+        lock.readLock().lock();
+        try {
+            first = friends.getOrDefault(userId, EMPTY);
+            second = friends.getOrDefault(otherId, EMPTY);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // Массивы не меняются на месте, поэтому пересекать можно уже без лока
+        long[] common = new long[Math.min(first.length, second.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] == second[j]) {
+                common[size++] = first[i];
+                i++;
+                j++;
+            } else if (first[i] < second[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(common, size);
+    }
+
+    private void removeRequest(Long userId, Long friendId) {
+        change(() -> {
+            putOrRemove(outgoing, userId, remove(outgoing.get(userId), friendId));
+            putOrRemove(incoming, friendId, remove(incoming.get(friendId), userId));
+            putOrRemove(acceptedOutgoing, userId, remove(acceptedOutgoing.get(userId), friendId));
+            putOrRemove(acceptedIncoming, friendId, remove(acceptedIncoming.get(friendId), userId));
+            refresh(userId);
+            refresh(friendId);
+        });
+    }
+
+    private void restoreRequest(Long userId, Long friendId, boolean accepted) {
+        change(() -> {
+            outgoing.put(userId, insert(outgoing.getOrDefault(userId, EMPTY), friendId));
+            incoming.put(friendId, insert(incoming.getOrDefault(friendId, EMPTY), userId));
+            if (accepted) {
+                acceptedOutgoing.put(userId, insert(acceptedOutgoing.getOrDefault(userId, EMPTY), friendId));
+                acceptedIncoming.put(friendId, insert(acceptedIncoming.getOrDefault(friendId, EMPTY), userId));
+            }
+            refresh(userId);
+            refresh(friendId);
+        });
+    }
+
+    private void change(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            change.run();
+            if (changesDuringReload != null) {
+                changesDuringReload.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void refresh(Long userId) {
+        putOrRemove(friends, userId, union(outgoing.getOrDefault(userId, EMPTY),
+                acceptedIncoming.getOrDefault(userId, EMPTY)));
+    }
+
+    private static Map<Long, long[]> toSortedArrays(Map<Long, List<Long>> lists) {
+        Map<Long, long[]> arrays = new HashMap<>();
+        lists.forEach((key, values) -> {
+            long[] array = values.stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(array);
+            arrays.put(key, array);
+        });
+        return arrays;
+    }
+
+    private static long[] union(long[] first, long[] second) {
+        long[] result = new long[first.length + second.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length || j < second.length) {
+            if (j == second.length || i < first.length && first[i] < second[j]) {
+                result[size++] = first[i++];
+            } else if (i == first.length || second[j] < first[i]) {
+                result[size++] = second[j++];
+            } else {
+                result[size++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private static long[] insert(long[] array, long value) {
+        int position = Arrays.binarySearch(array, value);
+        if (position >= 0) {
+            return array;
+        }
+        position = -position - 1;
+        long[] result = new long[array.length + 1];
+        System.arraycopy(array, 0, result, 0, position);
+        result[position] = value;
+        System.arraycopy(array, position, result, position + 1, array.length - position);
+        return result;
+    }
+
+    private static long[] remove(long[] array, long value) {
+        int position = array != null ? Arrays.binarySearch(array, value) : -1;
+        if (position < 0) {
+            return array;
+        }
+        long[] result = new long[array.length - 1];
+        System.arraycopy(array, 0, result, 0, position);
+        System.arraycopy(array, position + 1, result, position, array.length - position - 1);
+        return result;
+    }
+
+    private static void putOrRemove(Map<Long, long[]> map, Long key, long[] value) {
+        if (value == null || value.length == 0) {
+            map.remove(key);
+        } else {
+            map.put(key, value);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Рекомендации друзей через два шага по графу дружбы: кандидаты — друзья друзей, кроме уже добавленных.
+ * Оценка — число общих друзей или Adamic-Adar (общий друг с d друзьями весит 1 / ln d).
+ * Обход ограничен max-fanout друзьями на каждом шаге, счетчики и top-K — на примитивных массивах.
+ * Готовые списки кэшируются и сбрасываются у тех, чей второй шаг проходит через измененную связь.
+ */
+@Slf4j
+@Component
+public class FriendSuggester {
+    private final FriendGraph friendGraph;
+    private final int maxFanout;
+    private final int maxSuggestions;
+    private final Cache<Key, Suggestions> cache;
+
+    public enum Scoring {
+        MUTUAL, ADAMIC_ADAR
+    }
+
+    public FriendSuggester(FriendGraph friendGraph,
+                           @Value("${filmorate.friends.suggestions.max-fanout:1000}") int maxFanout,
+                           @Value("${filmorate.friends.suggestions.max-size:100}") int maxSuggestions,
+                           @Value("${filmorate.friends.suggestions.cache-size:10000}") long cacheSize) {
+        this.friendGraph = friendGraph;
+        this.maxFanout = maxFanout;
+        this.maxSuggestions = maxSuggestions;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .recordStats()
+                .build();
+    }
+
+    public int maxLimit() {
+        return maxSuggestions;
+    }
+
+    public long[] suggest(Long userId, Scoring scoring, int limit) {
+        long generation = friendGraph.generation();
+        Key key = new Key(userId, scoring);
+
+        Suggestions cached = cache.getIfPresent(key);
+        if (cached == null || cached.generation() != generation) {
+            cached = new Suggestions(compute(userId, scoring), generation);
+            cache.put(key, cached);
+        }
+        return Arrays.copyOf(cached.ids(), Math.min(limit, cached.ids().length));
+    }
+
+    /**
+     * Сброс после изменения связи userId -> friendId: меняются друзья обоих и второй шаг у тех, кто дружит с ними.
+     */
+    public void invalidate(Long userId, Long friendId) {
+        evictAround(userId);
+        evictAround(friendId);
+        TransactionHooks.afterRollback(() -> {
+            evictAround(userId);
+            evictAround(friendId);
+        });
+    }
+
+    public Map<String, Object> stats() {
+        CacheStats stats = cache.stats();
+        return Map.of(
+                "size", cache.estimatedSize(),
+                "hitRate", stats.hitRate(),
+                "evictions", stats.evictionCount()
+        );
+    }
+
+    private void evictAround(Long userId) {
+        evict(userId);
+        for (long follower : friendGraph.friendOf(userId)) {
+            evict(follower);
+        }
+    }
+
+    private void evict(long userId) {
+        for (Scoring scoring : Scoring.values()) {
+            cache.invalidate(new Key(userId, scoring));
+        }
+    }
+
+    private long[] compute(Long userId, Scoring scoring) {
+        long[] friends = friendGraph.friendsOf(userId);
+        int fanout = Math.min(friends.length, maxFanout);
+
+        LongCounter mutual = new LongCounter(fanout * 8);
+        double[] weights = new double[fanout];
+        long[][] secondHop = new long[fanout][];
+        for (int i = 0; i < fanout; i++) {
+            secondHop[i] = friendGraph.friendsOf(friends[i]);
+            weights[i] = 1 / Math.log(Math.max(secondHop[i].length, 2));
+        }
+
+        for (int i = 0; i < fanout; i++) {
+            long[] candidates = secondHop[i];
+            for (int j = 0; j < Math.min(candidates.length, maxFanout); j++) {
+                long candidate = candidates[j];
+                if (candidate != userId && Arrays.binarySearch(friends, candidate) < 0) {
+                    mutual.add(candidate, 1);
+                }
+            }
+        }
+
+        TopK top = new TopK(maxSuggestions);
+        if (scoring == Scoring.MUTUAL) {
+            mutual.forEach((candidate, count) -> top.offer(candidate, count));
+            return top.sortedIds();
+        }
+
+        // Adamic-Adar: второй проход только по кандидатам, уже найденным первым
+        double[] scores = new double[mutual.size()];
+        LongCounter slots = new LongCounter(mutual.size());
+        long[] ids = new long[mutual.size()];
+        int[] next = {0};
+        mutual.forEach((candidate, count) -> {
+            ids[next[0]] = candidate;
+            slots.add(candidate, next[0]++);
+        });
+        for (int i = 0; i < fanout; i++) {
+            long[] candidates = secondHop[i];
+            for (int j = 0; j < Math.min(candidates.length, maxFanout); j++) {
+                long candidate = candidates[j];
+                if (candidate != userId && Arrays.binarySearch(friends, candidate) < 0) {
+                    scores[slots.get(candidate)] += weights[i];
+                }
+            }
+        }
+        for (int i = 0; i < ids.length; i++) {
+            top.offer(ids[i], scores[i]);
+        }
+        return top.sortedIds();
+    }
+
+    // Куча минимумов на k элементов: корень — худший из лучших, вытесняется более сильным кандидатом
+    private static class TopK {
+        private final long[] ids;
+        private final double[] scores;
+        private int size;
+
+        TopK(int capacity) {
+            ids = new long[capacity];
+            scores = new double[capacity];
+        }
+
+        void offer(long id, double score) {
+            if (size < ids.length) {
+                ids[size] = id;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (size > 0 && better(id, score, 0)) {
+                ids[0] = id;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        long[] sortedIds() {
+            long[] result = new long[size];
+            for (int i = size - 1; i >= 0; i--) {
+                result[i] = ids[0];
+                size--;
+                ids[0] = ids[size];
+                scores[0] = scores[size];
+                siftDown(0);
+            }
+            return result;
+        }
+
+        // Больше score, при равенстве — меньший id
+        private boolean better(long id, double score, int slot) {
+            return score > scores[slot] || score == scores[slot] && id < ids[slot];
+        }
+
+        private void siftUp(int slot) {
+            while (slot > 0) {
+                int parent = (slot - 1) / 2;
+                if (!better(ids[parent], scores[parent], slot)) {
+                    return;
+                }
+                swap(slot, parent);
+                slot = parent;
+            }
+        }
+
+        private void siftDown(int slot) {
+            while (true) {
+                int worst = slot;
+                for (int child = 2 * slot + 1; child <= 2 * slot + 2 && child < size; child++) {
+                    if (better(ids[worst], scores[worst], child)) {
+                        worst = child;
+                    }
+                }
+                if (worst == slot) {
+                    return;
+                }
+                swap(slot, worst);
+                slot = worst;
+            }
+        }
+
+        private void swap(int first, int second) {
+            long id = ids[first];
+            ids[first] = ids[second];
+            ids[second] = id;
+            double score = scores[first];
+            scores[first] = scores[second];
+            scores[second] = score;
+        }
+    }
+
+    private record Key(Long userId, Scoring scoring) {
+    }
+
+    private record Suggestions(long[] ids, long generation) {
+    }
+}
@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.dao;
+
+public interface FriendshipStorage {
+    // DuplicateKeyException — заявка уже существует
+    void addRequest(Long userId, Long friendId);
+
+    // false — заявки не было
+    boolean deleteRequest(Long userId, Long friendId);
+
+}
@@ -2,12 +2,17 @@ package ru.yandex.practicum.filmorate.dao;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
 import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.dao.search.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.dao.search.FilmSuggestIndex;
 import ru.yandex.practicum.filmorate.dao.mapper.Film.FilmDto;
-import ru.yandex.practicum.filmorate.dao.mapper.Film.FilmDtoMapper;
 import ru.yandex.practicum.filmorate.dao.mapper.Film.FilmMapper;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
@@ -17,25 +22,41 @@ import ru.yandex.practicum.filmorate.model.Mpa;
 
 
 import java.sql.PreparedStatement;
-import java.time.LocalDate;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Slf4j
 @Component
+@Profile("!sharded & !memory")
 @RequiredArgsConstructor
 public class InDbFilmStorage implements FilmStorage {
     private final JdbcTemplate jdbc;
     private final FilmMapper mapper;
+    private final FilmHydrator hydrator;
+    private final FilmValidator filmValidator;
+    private final FilmCache filmCache;
+    private final PopularityLeaderboard leaderboard;
+    private final FilmSearchIndex searchIndex;
+    private final FilmSuggestIndex suggestIndex;
+    private final ExistenceIndex existenceIndex;
 
+    public static final int MAX_PAGE_SIZE = 1000;
+    private static final int FETCH_SIZE = 500;
+    private static final int CHUNK_SIZE = 500;
+
+    private static final String BASE_SELECT = "SELECT f.* FROM film f ";
 
 
     @Override
+    @Transactional
     public FilmDto create(Film film) {
         log.info("Получен запрос на добавление фильма");
 
-        if (film.getReleaseDate().isBefore(LocalDate.of(1895, 12, 28))) {
-            throw new ValidationException("Дата релиза не может быть раньше 28 декабря 1895 года");
-        }
+        filmValidator.validateReleaseDate(film);
+        Mpa mpa = filmValidator.resolveMpa(film);
+        Set<Genre> genres = filmValidator.resolveGenres(film);
 
         String sql = "INSERT INTO film (name, description, releaseDate, duration, rating_id) VALUES (?, ?, ?, ?, ?)";
         GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
@@ -47,43 +68,17 @@ public class InDbFilmStorage implements FilmStorage {
                 ps.setString(2, film.getDescription());
                 ps.setObject(3, film.getReleaseDate());
                 ps.setInt(4, film.getDuration());
-                ps.setInt(5, film.getMpa().getId());
+                ps.setObject(5, mpa != null ? mpa.getId() : null);
                 return ps;
             }, keyHolder);
 
             Long id = keyHolder.getKeyAs(Long.class);
-            film.setId(id);
+            insertGenres(id, genres);
+            TransactionHooks.afterCommit(() -> indexCreated(id, film.getName(), film.getDescription()));
 
             log.info("Фильм сохранен в БД с id: {}", id);
 
-            if (film.getGenres() != null && !film.getGenres().isEmpty()) {
-                String sqlGenres = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
-
-                List<Genre> uniqueGenres = film.getGenres().stream()
-                        .distinct()
-                        .toList();
-
-                List<Object[]> batchArgs = uniqueGenres.stream()
-                        .map(genre -> new Object[]{id, genre.getId()})
-                        .toList();
-
-                jdbc.batchUpdate(sqlGenres, batchArgs);
-
-                String sqlGetFullGenres = "SELECT g.id, g.genre FROM genre g " +
-                        "JOIN film_genres fg ON g.id = fg.genre_id " +
-                        "WHERE fg.film_id = ? ORDER BY g.id";
-
-                List<Genre> fullGenres = jdbc.query(sqlGetFullGenres, (rs, rowNum) -> Genre.builder()
-                        .id(rs.getInt("id"))
-                        .name(rs.getString("genre"))
-                        .build(), id);
-
-                film.setGenres(new LinkedHashSet<>(fullGenres));
-            } else {
-                film.setGenres(new LinkedHashSet<>());
-            }
-
-            return getFilmById(id);
+            return buildDto(film, id, mpa, genres, new HashSet<>());
 
         } catch (
                 org.springframework.dao.DataAccessException e) {
@@ -94,6 +89,7 @@ public class InDbFilmStorage implements FilmStorage {
     }
 
     @Override
+    @Transactional
     public FilmDto update(Film newFilm) {
         log.info("Получен запрос на изменение фильма с id: {}", newFilm.getId());
 
@@ -101,118 +97,234 @@ public class InDbFilmStorage implements FilmStorage {
             throw new ValidationException("Id должен быть указан");
         }
 
-        if (newFilm.getReleaseDate() != null && newFilm.getReleaseDate().isBefore(LocalDate.of(1895, 12, 28))) {
-            throw new ValidationException("Дата релиза не может быть раньше 28 декабря 1895 года");
+        if (newFilm.getReleaseDate() != null) {
+            filmValidator.validateReleaseDate(newFilm);
         }
 
-        String checkSql = "SELECT id FROM film WHERE id = ?";
-        if (!jdbc.queryForRowSet(checkSql, newFilm.getId()).next()) {
-            throw new NotFoundException("Фильм с id " + newFilm.getId() + " не найден");
-        }
+        Mpa mpa = filmValidator.resolveMpa(newFilm);
+        Set<Genre> genres = filmValidator.resolveGenres(newFilm);
+        Long id = newFilm.getId();
 
         try {
             String sqlUpdate = "UPDATE film SET name = ?, description = ?, releaseDate = ?, " +
                     "duration = ?, rating_id = ? WHERE id = ?";
 
-            jdbc.update(sqlUpdate,
+            int rowsAffected = jdbc.update(sqlUpdate,
                     newFilm.getName(),
                     newFilm.getDescription(),
                     newFilm.getReleaseDate(),
                     newFilm.getDuration(),
-                    newFilm.getMpa().getId(),
-                    newFilm.getId()
+                    mpa != null ? mpa.getId() : null,
+                    id
             );
 
-            Long id = newFilm.getId();
+            if (rowsAffected == 0) {
+                throw new NotFoundException("Фильм с id " + id + " не найден");
+            }
 
             jdbc.update("DELETE FROM film_genres WHERE film_id = ?", id);
+            insertGenres(id, genres);
+
+            // Лайки не приходят в запросе на изменение, поэтому их единственных читаем из БД
+            String likesSql = "SELECT user_id FROM likes WHERE film_id = ?";
+            Set<Long> likes = new HashSet<>(jdbc.queryForList(likesSql, Long.class, id));
+
+            String name = newFilm.getName();
+            String description = newFilm.getDescription();
+            TransactionHooks.afterCommit(() -> {
+                filmCache.invalidate(id);
+                searchIndex.index(id, name, description);
+                suggestIndex.index(id, name);
+            });
+
+            log.info("Фильм с id {} успешно обновлен", id);
+            return buildDto(newFilm, id, mpa, genres, likes);
 
-            if (newFilm.getGenres() != null && !newFilm.getGenres().isEmpty()) {
-                String sqlGenres = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
+        } catch (org.springframework.dao.DataAccessException e) {
+            log.error("Ошибка при работе с БД при обновлении id {}: {}", newFilm.getId(), e.getMessage());
+            throw new RuntimeException("Ошибка при обновлении фильма в базе данных", e);
+        }
+    }
 
-                List<Genre> uniqueGenres = newFilm.getGenres().stream()
-                        .distinct()
-                        .toList();
+    /**
+     * Пакетная вставка уже проверенных через {@link #validate(Film)} фильмов одной транзакцией.
+     * Возвращает сгенерированные id в порядке входного списка.
+     */
+    @Override
+    @Transactional
+    public List<Long> createBatch(List<Film> films) {
+        if (films.isEmpty()) {
+            return new ArrayList<>();
+        }
 
-                List<Object[]> batchArgs = uniqueGenres.stream()
-                        .map(genre -> new Object[]{id, genre.getId()})
-                        .toList();
+        String sql = "INSERT INTO film (name, description, releaseDate, duration, rating_id) VALUES (?, ?, ?, ?, ?)";
+        GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
 
-                jdbc.batchUpdate(sqlGenres, batchArgs);
+        jdbc.batchUpdate(connection -> connection.prepareStatement(sql, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Film film = films.get(i);
+                        ps.setString(1, film.getName());
+                        ps.setString(2, film.getDescription());
+                        ps.setObject(3, film.getReleaseDate());
+                        ps.setInt(4, film.getDuration());
+                        ps.setObject(5, film.getMpa() != null ? film.getMpa().getId() : null);
+                    }
 
-                String sqlGetFullGenres = "SELECT g.id, g.genre FROM genre g " +
-                        "JOIN film_genres fg ON g.id = fg.genre_id " +
-                        "WHERE fg.film_id = ? ORDER BY g.id";
+                    @Override
+                    public int getBatchSize() {
+                        return films.size();
+                    }
+                }, keyHolder);
+
+        List<Long> ids = keyHolder.getKeyList().stream()
+                .map(keys -> ((Number) keys.values().iterator().next()).longValue())
+                .toList();
+
+        List<Object[]> genreArgs = new ArrayList<>();
+        List<String[]> texts = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            Long id = ids.get(i);
+            films.get(i).setId(id);
+            texts.add(new String[]{films.get(i).getName(), films.get(i).getDescription()});
+            films.get(i).getGenres().forEach(genre -> genreArgs.add(new Object[]{id, genre.getId()}));
+        }
 
-                List<Genre> fullGenres = jdbc.query(sqlGetFullGenres, (rs, rowNum) -> Genre.builder()
-                        .id(rs.getInt("id"))
-                        .name(rs.getString("genre"))
-                        .build(), id);
+        if (!genreArgs.isEmpty()) {
+            jdbc.batchUpdate("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", genreArgs);
+        }
 
-                newFilm.setGenres(new LinkedHashSet<>(fullGenres));
-            } else {
-                newFilm.setGenres(new LinkedHashSet<>());
+        TransactionHooks.afterCommit(() -> {
+            for (int i = 0; i < ids.size(); i++) {
+                indexCreated(ids.get(i), texts.get(i)[0], texts.get(i)[1]);
             }
+        });
 
-            log.info("Фильм с id {} успешно обновлен", id);
-            return getFilmById(id);
+        log.info("Пакетно сохранено фильмов: {}", ids.size());
+        return ids;
+    }
 
-        } catch (org.springframework.dao.DataAccessException e) {
-            log.error("Ошибка при работе с БД при обновлении id {}: {}", newFilm.getId(), e.getMessage());
-            throw new RuntimeException("Ошибка при обновлении фильма в базе данных", e);
+    /**
+     * Проверки, которые выполняются перед записью фильма помимо bean validation.
+     * Заменяет рейтинг и жанры фильма на экземпляры из справочника.
+     */
+    @Override
+    public void validate(Film film) {
+        filmValidator.validate(film);
+    }
+
+    private void insertGenres(Long filmId, Set<Genre> genres) {
+        if (genres.isEmpty()) {
+            return;
         }
+
+        String sqlGenres = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
+
+        List<Object[]> batchArgs = genres.stream()
+                .map(genre -> new Object[]{filmId, genre.getId()})
+                .toList();
+
+        jdbc.batchUpdate(sqlGenres, batchArgs);
+    }
+
+    // Вызывается после коммита: до него фильм не виден другим запросам, и индексы не должны его показывать
+    private void indexCreated(Long id, String name, String description) {
+        leaderboard.addFilm(id);
+        existenceIndex.filmCreated(id);
+        searchIndex.index(id, name, description);
+        suggestIndex.index(id, name);
+    }
+
+    private FilmDto buildDto(Film film, Long id, Mpa mpa, Set<Genre> genres, Set<Long> likes) {
+        return FilmDto.builder()
+                .id(id)
+                .name(film.getName())
+                .description(film.getDescription())
+                .releaseDate(film.getReleaseDate())
+                .duration(film.getDuration())
+                .likes(likes)
+                .genres(genres)
+                .mpa(mpa)
+                .build();
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Collection<FilmDto> findAll() {
-        String sql = "SELECT f.*, " +
-                "g.id AS genre_id, g.genre AS genre_name, " +
-                "r.id AS r_id, r.rating AS r_name " +
-                "FROM film f " +
-                "LEFT JOIN film_genres fg ON f.id = fg.film_id " +
-                "LEFT JOIN genre g ON fg.genre_id = g.id " +
-                "LEFT JOIN rating r ON f.rating_id = r.id " +
-                "ORDER BY f.id";
+        List<FilmDto> films = new ArrayList<>();
+        streamAll(null, films::add);
+        return films;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Collection<FilmDto> findPage(Long afterId, int limit) {
+        if (limit <= 0) {
+            throw new ValidationException("Размер страницы должен быть положительным числом");
+        }
+
+        return hydrator.hydrate(findBasePage(afterId, Math.min(limit, MAX_PAGE_SIZE)));
+    }
+
+    // Выгрузка идет страницами по курсору id: в памяти одновременно не больше CHUNK_SIZE фильмов
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAll(Long afterId, Consumer<FilmDto> consumer) {
+        Long cursor = afterId;
+
+        while (true) {
+            List<Film> chunk = findBasePage(cursor, CHUNK_SIZE);
+            if (chunk.isEmpty()) {
+                return;
+            }
+
+            hydrator.hydrate(chunk).forEach(consumer);
+            cursor = chunk.getLast().getId();
+        }
+    }
+
+    @Override
+    public List<FilmDto> getFilmsByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        String sql = BASE_SELECT + "WHERE f.id IN (" +
+                String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
 
         try {
-            List<Film> films = jdbc.query(sql, rs -> {
-                Map<Long, Film> map = new LinkedHashMap<>();
-
-                while (rs.next()) {
-                    Long filmId = rs.getLong("id");
-                    Film film = map.get(filmId);
-
-                    if (film == null) {
-                        film = Film.builder()
-                                .id(filmId)
-                                .name(rs.getString("name"))
-                                .description(rs.getString("description"))
-                                .releaseDate(rs.getDate("releaseDate").toLocalDate())
-                                .duration(rs.getInt("duration"))
-                                .genres(new LinkedHashSet<>())
-                                .mpa(Mpa.builder()
-                                        .id(rs.getInt("id"))
-                                        .name(rs.getString("rating"))
-                                        .build())
-                                .build();
-                        map.put(filmId, film);
-                    }
+            Map<Long, Film> byId = new HashMap<>();
+            jdbc.query(sql, mapper, ids.toArray()).forEach(film -> byId.put(film.getId(), film));
 
-                    int genreId = rs.getInt("genre_id");
-                    if (genreId != 0) {
-                        Genre genre = Genre.builder()
-                                .id(genreId)
-                                .name(rs.getString("genre_name"))
-                                .build();
-                        film.getGenres().add(genre);
-                    }
-                }
-                return new ArrayList<>(map.values());
-            });
-            return films.stream()
-                    .map(FilmDtoMapper::mapToDto)
+            List<Film> ordered = ids.stream()
+                    .map(byId::get)
+                    .filter(Objects::nonNull)
                     .toList();
 
+            return hydrator.hydrate(ordered);
+
+        } catch (DataAccessException e) {
+            log.error("Ошибка при получении фильмов по списку id: {}", e.getMessage());
+            throw new RuntimeException("Ошибка работы с базой данных", e);
+        }
+    }
+
+    private List<Film> findBasePage(Long afterId, int limit) {
+        String sql = BASE_SELECT + "WHERE f.id > ? ORDER BY f.id LIMIT ?";
+
+        try {
+            List<Film> films = new ArrayList<>(limit);
+            jdbc.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement(sql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(Math.min(limit, FETCH_SIZE));
+                ps.setLong(1, afterId != null ? afterId : 0L);
+                ps.setInt(2, limit);
+                return ps;
+            }, (RowCallbackHandler) rs -> films.add(mapper.mapRow(rs, films.size())));
+            return films;
+
         } catch (
                 org.springframework.dao.DataAccessException e) {
             log.error("КРИТИЧЕСКАЯ ОШИБКА: ", e);
@@ -220,69 +332,24 @@ public class InDbFilmStorage implements FilmStorage {
         }
     }
 
-
-
     @Override
     public FilmDto getFilmById(Long id) {
         if (id == null) {
             throw new ValidationException("Не указан айди фильма");
         }
 
-        String sql =  "SELECT f.*, " +
-                "g.id AS genre_id, g.genre AS genre_name, " +
-                "r.id AS r_id, r.rating AS r_name " +
-                "FROM film f " +
-                "LEFT JOIN film_genres fg ON f.id = fg.film_id " +
-                "LEFT JOIN genre g ON fg.genre_id = g.id " +
-                "LEFT JOIN rating r ON f.rating_id = r.id " +
-                "WHERE f.id = ?";
-
-        try {
-            Film resultFilm = jdbc.query(sql, rs -> {
-                Film film = null;
-                while (rs.next()) {
-                    if (film == null) {
-                        film = Film.builder()
-                                .id(rs.getLong("id"))
-                                .name(rs.getString("name"))
-                                .description(rs.getString("description"))
-                                .releaseDate(rs.getDate("releaseDate").toLocalDate())
-                                .duration(rs.getInt("duration"))
-                                .genres(new LinkedHashSet<>())
-                                .mpa(Mpa.builder()
-                                        .id(rs.getInt("r_id")) // Берем алиас рейтинга
-                                        .name(rs.getString("r_name"))
-                                        .build())
-                                .build();
-                    }
-
-                    int genreId = rs.getInt("genre_id");
-                    if (genreId != 0) {
-                        Genre genre = Genre.builder()
-                                .id(genreId)
-                                .name(rs.getString("genre_name"))
-                                .build();
-                        film.getGenres().add(genre);
-                    }
-                }
-                return film;
-            }, id);
-
-            if (resultFilm == null) {
-                log.error("Фильм с id {} не найден в БД", id);
-                throw new NotFoundException("Фильм с id " + id + " не найден");
-            }
-
-            String likesSql = "SELECT user_id FROM likes WHERE film_id = ?";
-            List<Long> userIds = jdbc.query(likesSql, (rs, rowNum) -> rs.getLong("user_id"), id);
-            resultFilm.setLikes(new HashSet<>(userIds));
+        return filmCache.get(id, this::loadFilmById);
+    }
 
-            return FilmDtoMapper.mapToDto(resultFilm);
+    private FilmDto loadFilmById(Long id) {
+        List<FilmDto> films = getFilmsByIds(List.of(id));
 
-        } catch (DataAccessException e) {
-            log.error("Ошибка при получении фильма id {}: {}", id, e.getMessage());
-            throw new RuntimeException("Ошибка работы с базой данных", e);
+        if (films.isEmpty()) {
+            log.error("Фильм с id {} не найден в БД", id);
+            throw new NotFoundException("Фильм с id " + id + " не найден");
         }
+
+        return films.getFirst();
     }
 
-}
\ No newline at end of file
+}
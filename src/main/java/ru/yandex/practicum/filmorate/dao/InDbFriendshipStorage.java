@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+@Component
+@Profile("!memory")
+@RequiredArgsConstructor
+public class InDbFriendshipStorage implements FriendshipStorage {
+    private final JdbcTemplate jdbc;
+
+    @Override
+    public void addRequest(Long userId, Long friendId) {
+        jdbc.update("INSERT INTO friendship (user_id, friend_id, status) VALUES (?, ?, ?)", userId, friendId, "pending");
+    }
+
+    @Override
+    public boolean deleteRequest(Long userId, Long friendId) {
+        return jdbc.update("DELETE FROM friendship WHERE user_id = ? AND friend_id = ?", userId, friendId) > 0;
+    }
+}
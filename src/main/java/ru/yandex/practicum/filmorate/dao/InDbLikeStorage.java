@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.model.LikeCountMismatch;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Лайки и денормализованный счетчик film.like_count: обе записи идут в одной транзакции.
+ */
+@Slf4j
+@Component
+@Profile("!sharded & !memory")
+@RequiredArgsConstructor
+public class InDbLikeStorage implements LikeStorage {
+    private static final String MISMATCH_SQL = "SELECT f.id, f.like_count, COUNT(l.user_id) AS actual " +
+            "FROM film f " +
+            "LEFT JOIN likes l ON f.id = l.film_id " +
+            "GROUP BY f.id, f.like_count " +
+            "HAVING f.like_count <> COUNT(l.user_id)";
+
+    private final JdbcTemplate jdbc;
+
+    // Возвращает время лайка: по нему лайк попадает в минутную корзину трендов
+    @Override
+    @Transactional
+    public LocalDateTime addLike(Long filmId, Long userId) {
+        LocalDateTime createdAt = LocalDateTime.now();
+        jdbc.update("INSERT INTO likes (film_id, user_id, created_at) VALUES (?, ?, ?)",
+                filmId, userId, createdAt);
+        jdbc.update("UPDATE film SET like_count = like_count + 1 WHERE id = ?", filmId);
+        return createdAt;
+    }
+
+    // Время удаленного лайка или пусто, если лайка не было
+    @Override
+    @Transactional
+    public Optional<LocalDateTime> deleteLike(Long filmId, Long userId) {
+        List<LocalDateTime> createdAt = jdbc.queryForList(
+                "SELECT created_at FROM likes WHERE film_id = ? AND user_id = ?", LocalDateTime.class, filmId, userId);
+        int rowsAffected = jdbc.update("DELETE FROM likes WHERE film_id = ? AND user_id = ?", filmId, userId);
+        if (rowsAffected == 0) {
+            return Optional.empty();
+        }
+
+        jdbc.update("UPDATE film SET like_count = like_count - 1 WHERE id = ?", filmId);
+        return Optional.of(createdAt.isEmpty() || createdAt.getFirst() == null
+                ? LocalDateTime.now() : createdAt.getFirst());
+    }
+
+    // Индекс film_like_count_idx (like_count DESC, id) отдает первые строки без сортировки
+    @Override
+    public List<Long> findPopularIds(int count) {
+        return jdbc.queryForList("SELECT id FROM film ORDER BY like_count DESC, id LIMIT ?", Long.class, count);
+    }
+
+    @Override
+    public List<LikeCountMismatch> findLikeCountMismatches() {
+        return jdbc.query(MISMATCH_SQL, (rs, rowNum) -> new LikeCountMismatch(
+                rs.getLong("id"),
+                rs.getLong("like_count"),
+                rs.getLong("actual")));
+    }
+
+    @Override
+    @Transactional
+    public List<LikeCountMismatch> repairLikeCounts() {
+        List<LikeCountMismatch> mismatches = findLikeCountMismatches();
+
+        if (!mismatches.isEmpty()) {
+            jdbc.batchUpdate("UPDATE film SET like_count = (SELECT COUNT(*) FROM likes WHERE film_id = ?) WHERE id = ?",
+                    mismatches.stream()
+                            .map(mismatch -> new Object[]{mismatch.getFilmId(), mismatch.getFilmId()})
+                            .toList());
+            log.warn("Исправлены счетчики лайков у {} фильмов", mismatches.size());
+        }
+        return mismatches;
+    }
+}
@@ -2,7 +2,9 @@ package ru.yandex.practicum.filmorate.dao;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.dao.mapper.user.UserDto;
@@ -13,24 +15,64 @@ import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.sql.PreparedStatement;
-import java.util.Collection;
+import java.sql.ResultSet;
+import java.util.*;
+import java.util.function.Consumer;
 
 @Slf4j
 @Component
+@Profile("!memory")
 @RequiredArgsConstructor
 public class InDbUserStorage implements UserStorage {
 
     private final JdbcTemplate jdbc;
     private final UserMapper<User> mapper;
+    private final ExistenceIndex existenceIndex;
+
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int FETCH_SIZE = 500;
 
     @Override
     public Collection<UserDto> findAll() {
         log.info("Получен запрос на получение всех пользователей");
-        String query = "SELECT * FROM users LIMIT 100";
+        List<UserDto> users = new ArrayList<>();
+        streamAll(null, users::add);
+        return users;
+    }
+
+    @Override
+    public Collection<UserDto> findPage(Long afterId, int limit) {
+        log.info("Получен запрос на страницу пользователей после id {}, размер {}", afterId, limit);
+        if (limit <= 0) {
+            throw new ValidationException("Размер страницы должен быть положительным числом");
+        }
+
+        int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+        List<UserDto> users = new ArrayList<>(pageSize);
+        query(afterId, pageSize, users::add);
+        return users;
+    }
+
+    // Строки отдаются потребителю по мере чтения из ResultSet, в памяти не копятся
+    @Override
+    public void streamAll(Long afterId, Consumer<UserDto> consumer) {
+        query(afterId, null, consumer);
+    }
+
+    private void query(Long afterId, Integer limit, Consumer<UserDto> consumer) {
+        String sql = "SELECT * FROM users WHERE id > ? ORDER BY id" + (limit != null ? " LIMIT ?" : "");
+
         try {
-            return jdbc.query(query, mapper).stream()
-                    .map(UserDtoMapper::mapToDto)
-                    .toList();
+            jdbc.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement(sql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(limit != null ? Math.min(limit, FETCH_SIZE) : FETCH_SIZE);
+                ps.setLong(1, afterId != null ? afterId : 0L);
+                if (limit != null) {
+                    ps.setInt(2, limit);
+                }
+                return ps;
+            }, (RowCallbackHandler) rs -> consumer.accept(UserDtoMapper.mapToDto(mapper.mapRow(rs, 0))));
         } catch (org.springframework.dao.DataAccessException e) {
             log.error("Ошибка при обращении к базе данных: {}", e.getMessage());
             throw new RuntimeException("Ошибка работы с базой данных при получении списка пользователей");
@@ -65,6 +107,7 @@ public class InDbUserStorage implements UserStorage {
 
             Long id = keyHolder.getKeyAs(Long.class);
             user.setId(id);
+            TransactionHooks.afterCommit(() -> existenceIndex.userCreated(id));
 
             log.info("Пользователь сохранен в БД с id: {}", id);
 
@@ -162,4 +205,30 @@ public class InDbUserStorage implements UserStorage {
         }
     }
 
+    /**
+     * Пользователи одним запросом в порядке входного списка, отсутствующие id пропускаются.
+     */
+    @Override
+    public List<User> getUsersByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        String sql = "SELECT * FROM users WHERE id IN (" +
+                String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+
+        try {
+            Map<Long, User> byId = new HashMap<>();
+            jdbc.query(sql, mapper, ids.toArray()).forEach(user -> byId.put(user.getId(), user));
+
+            return ids.stream()
+                    .map(byId::get)
+                    .filter(Objects::nonNull)
+                    .toList();
+
+        } catch (org.springframework.dao.DataAccessException e) {
+            log.error("Ошибка при получении пользователей по списку id: {}", e.getMessage());
+            throw new RuntimeException("Ошибка базы данных");
+        }
+    }
 }
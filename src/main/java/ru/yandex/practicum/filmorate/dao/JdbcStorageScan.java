@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Чтение для индексов из БД: фильмы и лайки — из всех источников фильмов, пользователи и дружба — из основной БД.
+ */
+@Component
+@Profile("!memory")
+@RequiredArgsConstructor
+public class JdbcStorageScan implements StorageScan {
+    private static final String FILM_COLUMNS = "SELECT id, name, description, like_count FROM film ";
+
+    private final JdbcTemplate jdbc;
+    private final FilmDataSources filmData;
+
+    @Override
+    public void films(Consumer<FilmRow> consumer) {
+        filmData.queryAll(FILM_COLUMNS + "ORDER BY id", rs -> {
+            consumer.accept(filmRow(rs));
+        });
+    }
+
+    @Override
+    public Optional<FilmRow> film(long id) {
+        return filmData.forFilm(id).query(FILM_COLUMNS + "WHERE id = ?", (rs, rowNum) -> filmRow(rs), id)
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public void likes(LocalDateTime since, Consumer<LikeRow> consumer) {
+        String sql = "SELECT film_id, user_id, created_at FROM likes" + (since != null ? " WHERE created_at > ?" : "");
+        Object[] args = since != null ? new Object[]{Timestamp.valueOf(since)} : new Object[0];
+
+        filmData.queryAll(sql, rs -> {
+            Timestamp createdAt = rs.getTimestamp("created_at");
+            consumer.accept(new LikeRow(rs.getLong("film_id"), rs.getLong("user_id"),
+                    createdAt != null ? createdAt.toLocalDateTime() : null));
+        }, args);
+    }
+
+    @Override
+    public void friendships(Consumer<FriendshipRow> consumer) {
+        jdbc.query("SELECT user_id, friend_id, status FROM friendship", rs -> {
+            consumer.accept(new FriendshipRow(rs.getLong("user_id"), rs.getLong("friend_id"), rs.getString("status")));
+        });
+    }
+
+    @Override
+    public void userIds(LongConsumer consumer) {
+        jdbc.query("SELECT id FROM users", rs -> {
+            consumer.accept(rs.getLong("id"));
+        });
+    }
+
+    @Override
+    public void filmIds(LongConsumer consumer) {
+        filmData.queryAll("SELECT id FROM film", rs -> {
+            consumer.accept(rs.getLong("id"));
+        });
+    }
+
+    @Override
+    public boolean userExists(long id) {
+        return !jdbc.queryForList("SELECT 1 FROM users WHERE id = ?", Integer.class, id).isEmpty();
+    }
+
+    @Override
+    public boolean filmExists(long id) {
+        return !filmData.forFilm(id).queryForList("SELECT 1 FROM film WHERE id = ?", Integer.class, id).isEmpty();
+    }
+
+    private static FilmRow filmRow(ResultSet rs) throws SQLException {
+        return new FilmRow(rs.getLong("id"), rs.getString("name"), rs.getString("description"),
+                rs.getLong("like_count"));
+    }
+}
@@ -0,0 +1,170 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dao.recommend.FilmSimilarityIndex;
+import ru.yandex.practicum.filmorate.dao.search.FilmSuggestIndex;
+import ru.yandex.practicum.filmorate.dao.sketch.ApproxLikeTracker;
+import ru.yandex.practicum.filmorate.dao.snapshot.MaintenanceGate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Пакетная запись отложенных лайков в БД. Внутри пачки по каждой паре (фильм, пользователь)
+ * остается последнее действие, запись идемпотентна: повторный лайк и удаление отсутствующего лайка
+ * ничего не меняют, поэтому пачку можно безопасно применить повторно.
+ * Индексы в памяти обновляются только по реально измененным строкам.
+ * Во время обслуживания БД (выгрузка или восстановление снимка) запись ждет его окончания.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LikeBatchWriter {
+    private static final String INSERT_SQL = "INSERT INTO likes (film_id, user_id, created_at) " +
+            "SELECT ?, ?, ? WHERE NOT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)";
+    private static final String DELETE_SQL = "DELETE FROM likes WHERE film_id = ? AND user_id = ?";
+    private static final String COUNT_SQL = "UPDATE film SET like_count = like_count + ? WHERE id = ?";
+
+    private final FilmDataSources filmData;
+    private final PopularityLeaderboard leaderboard;
+    private final FilmCache filmCache;
+    private final FilmSuggestIndex suggestIndex;
+    private final FilmSimilarityIndex similarityIndex;
+    private final TrendingIndex trendingIndex;
+    private final ApproxLikeTracker approxTracker;
+    private final MaintenanceGate maintenanceGate;
+
+    public record Result(int written, int dropped) {
+    }
+
+    public Result write(List<LikeEvent> events) {
+        maintenanceGate.enter();
+        try {
+            return writeCollapsed(events);
+        } finally {
+            maintenanceGate.leave();
+        }
+    }
+
+    private Result writeCollapsed(List<LikeEvent> events) {
+        // По каждой паре (фильм, пользователь) важно только итоговое действие
+        Map<List<Long>, LikeEvent> last = new LinkedHashMap<>();
+        for (LikeEvent event : events) {
+            last.put(List.of(event.filmId(), event.userId()), event);
+        }
+        List<LikeEvent> collapsed = new ArrayList<>(last.values());
+
+        try {
+            apply(collapsed);
+            return new Result(collapsed.size(), 0);
+        } catch (org.springframework.dao.DataAccessException e) {
+            // Одна плохая запись (например, удаленный фильм) не должна ронять всю пачку
+            log.warn("Пачка лайков не записана целиком, повтор по одному: {}", e.getMostSpecificCause().getMessage());
+        }
+
+        int dropped = 0;
+        for (LikeEvent event : collapsed) {
+            try {
+                apply(List.of(event));
+            } catch (org.springframework.dao.DataAccessException eventError) {
+                dropped++;
+                log.error("Лайк фильма {} пользователем {} отброшен: {}", event.filmId(), event.userId(),
+                        eventError.getMostSpecificCause().getMessage());
+            }
+        }
+        return new Result(collapsed.size() - dropped, dropped);
+    }
+
+    // Лайки фильма лежат в его шарде: пачка делится по шардам, у каждой части своя транзакция
+    private void apply(List<LikeEvent> events) {
+        Map<Integer, List<LikeEvent>> byShard = new TreeMap<>();
+        events.forEach(event -> byShard.computeIfAbsent(filmData.shardOf(event.filmId()), key -> new ArrayList<>())
+                .add(event));
+        byShard.forEach(this::applyToShard);
+    }
+
+    private void applyToShard(int shard, List<LikeEvent> events) {
+        JdbcTemplate jdbc = filmData.all().get(shard);
+        List<LikeEvent> adds = events.stream().filter(LikeEvent::add).toList();
+        List<LikeEvent> deletes = events.stream().filter(event -> !event.add()).toList();
+
+        List<LikeEvent> applied = new ArrayList<>();
+        Map<Long, Long> deltas = filmData.transactions(shard).execute(status -> {
+            Map<Long, Long> result = new HashMap<>();
+
+            int[] inserted = jdbc.batchUpdate(INSERT_SQL, adds.stream()
+                    .map(event -> new Object[]{event.filmId(), event.userId(), Timestamp.valueOf(event.at()),
+                            event.filmId(), event.userId()})
+                    .toList());
+            for (int i = 0; i < inserted.length; i++) {
+                if (inserted[i] > 0) {
+                    result.merge(adds.get(i).filmId(), 1L, Long::sum);
+                    applied.add(adds.get(i));
+                }
+            }
+
+            Map<List<Long>, LocalDateTime> likedAt = likedAt(jdbc, deletes);
+            int[] deleted = jdbc.batchUpdate(DELETE_SQL, deletes.stream()
+                    .map(event -> new Object[]{event.filmId(), event.userId()})
+                    .toList());
+            for (int i = 0; i < deleted.length; i++) {
+                if (deleted[i] > 0) {
+                    LikeEvent event = deletes.get(i);
+                    result.merge(event.filmId(), -1L, Long::sum);
+                    // Из трендов снимается лайк в ту минуту, в которую он был добавлен, а не в минуту удаления
+                    applied.add(new LikeEvent(event.filmId(), event.userId(), false,
+                            likedAt.get(List.of(event.filmId(), event.userId()))));
+                }
+            }
+
+            List<Object[]> countArgs = result.entrySet().stream()
+                    .filter(delta -> delta.getValue() != 0)
+                    .map(delta -> new Object[]{delta.getValue(), delta.getKey()})
+                    .toList();
+            if (!countArgs.isEmpty()) {
+                jdbc.batchUpdate(COUNT_SQL, countArgs);
+            }
+            return result;
+        });
+
+        if (deltas != null) {
+            deltas.forEach((filmId, delta) -> {
+                leaderboard.adjust(filmId, delta);
+                filmCache.invalidateLikes(filmId);
+                suggestIndex.likesAdjusted(filmId);
+            });
+        }
+        applied.forEach(event -> {
+            similarityIndex.likeApplied(event.filmId(), event.userId(), event.add());
+            trendingIndex.likeApplied(event.filmId(), event.at(), event.add());
+            if (event.add()) {
+                approxTracker.record(event.filmId());
+            }
+        });
+    }
+
+    // Время удаляемых лайков одним запросом; строки блокируются до удаления в той же транзакции
+    private static Map<List<Long>, LocalDateTime> likedAt(JdbcTemplate jdbc, List<LikeEvent> deletes) {
+        Map<List<Long>, LocalDateTime> likedAt = new HashMap<>();
+        if (deletes.isEmpty()) {
+            return likedAt;
+        }
+
+        String sql = "SELECT film_id, user_id, created_at FROM likes WHERE (film_id, user_id) IN ("
+                + String.join(", ", Collections.nCopies(deletes.size(), "(?, ?)")) + ") FOR UPDATE";
+        Object[] args = deletes.stream()
+                .flatMap(event -> Stream.of(event.filmId(), event.userId()))
+                .toArray();
+        jdbc.query(sql, rs -> {
+            Timestamp createdAt = rs.getTimestamp("created_at");
+            likedAt.put(List.of(rs.getLong("film_id"), rs.getLong("user_id")),
+                    createdAt != null ? createdAt.toLocalDateTime() : null);
+        }, args);
+        return likedAt;
+    }
+}
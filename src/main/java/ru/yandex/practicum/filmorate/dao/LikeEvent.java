@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import java.time.LocalDateTime;
+
+// Отложенное действие с лайком: add — поставить, иначе удалить
+public record LikeEvent(Long filmId, Long userId, boolean add, LocalDateTime at) {
+}
@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import ru.yandex.practicum.filmorate.model.LikeCountMismatch;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface LikeStorage {
+    LocalDateTime addLike(Long filmId, Long userId);
+
+    Optional<LocalDateTime> deleteLike(Long filmId, Long userId);
+
+    List<Long> findPopularIds(int count);
+
+    List<LikeCountMismatch> findLikeCountMismatches();
+
+    List<LikeCountMismatch> repairLikeCounts();
+
+}
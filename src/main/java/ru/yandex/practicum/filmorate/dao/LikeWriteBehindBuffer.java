@@ -0,0 +1,174 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Отложенная запись лайков: события копятся в ограниченной очереди, фоновый поток
+ * сбрасывает их в БД пачками через {@link LikeBatchWriter} раз в flush-interval или по batch-size событий.
+ */
+@Slf4j
+@Component
+public class LikeWriteBehindBuffer {
+    private final LikeBatchWriter batchWriter;
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+    private final BlockingQueue<LikeEvent> queue;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong backpressured = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong lastFlushMs = new AtomicLong();
+    private final AtomicLong maxFlushMs = new AtomicLong();
+    private final AtomicLong totalFlushMs = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public LikeWriteBehindBuffer(LikeBatchWriter batchWriter,
+                                 @Value("${filmorate.likes.write-behind.enabled:false}") boolean enabled,
+                                 @Value("${filmorate.likes.write-behind.capacity:100000}") int capacity,
+                                 @Value("${filmorate.likes.write-behind.batch-size:1000}") int batchSize,
+                                 @Value("${filmorate.likes.write-behind.flush-interval-ms:50}") long flushIntervalMs,
+                                 @Value("${filmorate.likes.write-behind.offer-timeout-ms:10}") long offerTimeoutMs) {
+        this.batchWriter = batchWriter;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        running = true;
+        writer = new Thread(this::runWriter, "like-write-behind");
+        writer.start();
+        log.info("Отложенная запись лайков включена: пачка {}, интервал {} мс", batchSize, flushIntervalMs);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+
+        // Все, что не успел забрать поток, дописываем здесь, чтобы не потерять при остановке
+        List<LikeEvent> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            flush(rest);
+        }
+        log.info("Отложенная запись лайков остановлена, очередь пуста");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Возвращает false, если очередь переполнена дольше offer-timeout: лайк не принят. Записывать его синхронно
+     * мимо очереди нельзя — он обогнал бы ждущие события той же пары.
+     */
+    public boolean offer(Long filmId, Long userId, boolean add) {
+        try {
+            if (queue.offer(new LikeEvent(filmId, userId, add, LocalDateTime.now()),
+                    offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                enqueued.incrementAndGet();
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        backpressured.incrementAndGet();
+        return false;
+    }
+
+    public Map<String, Object> stats() {
+        long batchCount = batches.get();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("queueDepth", queue.size());
+        result.put("enqueued", enqueued.get());
+        result.put("written", written.get());
+        result.put("batches", batchCount);
+        result.put("lastFlushMs", lastFlushMs.get());
+        result.put("maxFlushMs", maxFlushMs.get());
+        result.put("avgFlushMs", batchCount > 0 ? (double) totalFlushMs.get() / batchCount : 0.0);
+        result.put("backpressured", backpressured.get());
+        result.put("dropped", dropped.get());
+        return result;
+    }
+
+    private void runWriter() {
+        List<LikeEvent> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                LikeEvent first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    long waitNanos = deadline - System.nanoTime();
+                    LikeEvent next = waitNanos > 0 ? queue.poll(waitNanos, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                flush(batch);
+                batch.clear();
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (RuntimeException e) {
+                log.error("Ошибка фоновой записи лайков: ", e);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<LikeEvent> events) {
+        long started = System.nanoTime();
+
+        LikeBatchWriter.Result result = batchWriter.write(events);
+        written.addAndGet(result.written());
+        dropped.addAndGet(result.dropped());
+
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        batches.incrementAndGet();
+        lastFlushMs.set(elapsedMs);
+        totalFlushMs.addAndGet(elapsedMs);
+        maxFlushMs.accumulateAndGet(elapsedMs, Math::max);
+    }
+}
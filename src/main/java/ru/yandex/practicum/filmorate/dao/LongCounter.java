@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import java.util.Arrays;
+
+/**
+ * Счетчик long -> int на открытой адресации без упаковки в Long/Integer.
+ * Нужен в горячих циклах подсчета совпадений, где HashMap создает объект на каждый ключ.
+ */
+public class LongCounter {
+    private long[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int size;
+
+    public interface Visitor {
+        void visit(long key, int value);
+    }
+
+    public LongCounter(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void add(long key, int delta) {
+        int slot = slot(key, keys, used);
+        if (!used[slot]) {
+            used[slot] = true;
+            keys[slot] = key;
+            if (++size * 2 > keys.length) {
+                grow();
+                slot = slot(key, keys, used);
+            }
+        }
+        values[slot] += delta;
+    }
+
+    public int get(long key) {
+        int slot = slot(key, keys, used);
+        return used[slot] ? values[slot] : 0;
+    }
+
+    public void forEach(Visitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                visitor.visit(keys[i], values[i]);
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        used = new boolean[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = slot(oldKeys[i], keys, used);
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int slot(long key, long[] keys, boolean[] used) {
+        int mask = keys.length - 1;
+        int slot = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,168 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Рейтинг фильмов по числу лайков в памяти: TreeSet, упорядоченный по (лайки desc, id asc),
+ * и индекс filmId -> текущая запись. Изменение — O(log n), топ-N — O(N).
+ * Заполняется из БД при старте и периодически сверяется с ней.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PopularityLeaderboard {
+    private static final Comparator<Entry> ORDER = Comparator.comparingLong(Entry::likes).reversed()
+            .thenComparingLong(Entry::filmId);
+
+    private final StorageScan scan;
+
+    private final TreeSet<Entry> ranking = new TreeSet<>(ORDER);
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final Set<Long> touchedDuringReconcile = new HashSet<>();
+    private boolean reconciling;
+
+    @PostConstruct
+    public void seed() {
+        Map<Long, Long> counts = loadCounts();
+        synchronized (this) {
+            ranking.clear();
+            entries.clear();
+            counts.forEach(this::put);
+        }
+        log.info("Рейтинг популярности заполнен: {} фильмов", counts.size());
+    }
+
+    public void addFilm(Long filmId) {
+        synchronized (this) {
+            if (!entries.containsKey(filmId)) {
+                put(filmId, 0);
+            }
+            touch(filmId);
+        }
+        TransactionHooks.afterRollback(() -> removeFilm(filmId));
+    }
+
+    public void increment(Long filmId) {
+        change(filmId, 1);
+        TransactionHooks.afterRollback(() -> change(filmId, -1));
+    }
+
+    public void decrement(Long filmId) {
+        change(filmId, -1);
+        TransactionHooks.afterRollback(() -> change(filmId, 1));
+    }
+
+    // Для изменений, уже зафиксированных в БД: компенсация при откате не нужна
+    public void adjust(Long filmId, long delta) {
+        change(filmId, delta);
+    }
+
+    public synchronized List<Long> top(int count) {
+        List<Long> ids = new ArrayList<>(Math.min(count, ranking.size()));
+        for (Entry entry : ranking) {
+            if (ids.size() >= count) {
+                break;
+            }
+            ids.add(entry.filmId());
+        }
+        return ids;
+    }
+
+    public synchronized long likes(Long filmId) {
+        Entry entry = entries.get(filmId);
+        return entry != null ? entry.likes() : 0;
+    }
+
+    // Сверка с БД на случай расхождений (записи в обход сервиса, сбои между БД и памятью)
+    @Scheduled(fixedDelayString = "${filmorate.popular.reconcile-interval:PT5M}",
+            initialDelayString = "${filmorate.popular.reconcile-interval:PT5M}")
+    public void reconcile() {
+        synchronized (this) {
+            reconciling = true;
+            touchedDuringReconcile.clear();
+        }
+
+        Map<Long, Long> counts;
+        try {
+            counts = loadCounts();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                reconciling = false;
+            }
+            log.error("Не удалось сверить рейтинг популярности с БД: {}", e.getMessage());
+            return;
+        }
+
+        int drift = 0;
+        synchronized (this) {
+            reconciling = false;
+
+            // Фильмы, изменившиеся во время чтения, уже актуальны в памяти, их не трогаем
+            for (Map.Entry<Long, Long> count : counts.entrySet()) {
+                Long filmId = count.getKey();
+                Entry current = entries.get(filmId);
+                if (touchedDuringReconcile.contains(filmId)
+                        || current != null && current.likes() == count.getValue()) {
+                    continue;
+                }
+                put(filmId, count.getValue());
+                drift++;
+            }
+
+            for (Long filmId : new ArrayList<>(entries.keySet())) {
+                if (!counts.containsKey(filmId) && !touchedDuringReconcile.contains(filmId)) {
+                    ranking.remove(entries.remove(filmId));
+                    drift++;
+                }
+            }
+            touchedDuringReconcile.clear();
+        }
+
+        if (drift > 0) {
+            log.warn("Сверка рейтинга популярности: исправлено расхождений {}", drift);
+        }
+    }
+
+    private Map<Long, Long> loadCounts() {
+        Map<Long, Long> counts = new HashMap<>();
+        scan.films(film -> counts.put(film.id(), film.likeCount()));
+        return counts;
+    }
+
+    private synchronized void change(Long filmId, long delta) {
+        Entry current = entries.get(filmId);
+        put(filmId, Math.max(0, (current != null ? current.likes() : 0) + delta));
+        touch(filmId);
+    }
+
+    private synchronized void removeFilm(Long filmId) {
+        Entry removed = entries.remove(filmId);
+        if (removed != null) {
+            ranking.remove(removed);
+        }
+        touch(filmId);
+    }
+
+    private void put(Long filmId, long likes) {
+        Entry previous = entries.put(filmId, new Entry(filmId, likes));
+        if (previous != null) {
+            ranking.remove(previous);
+        }
+        ranking.add(entries.get(filmId));
+    }
+
+    private void touch(Long filmId) {
+        if (reconciling) {
+            touchedDuringReconcile.add(filmId);
+        }
+    }
+
+    private record Entry(long filmId, long likes) {
+    }
+}
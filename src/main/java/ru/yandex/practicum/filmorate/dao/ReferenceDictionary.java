@@ -0,0 +1,129 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Справочники жанров и рейтингов в памяти. Загружаются при старте и по запросу администратора,
+ * каждый снимок неизменяем: массивы, индексированные по id, и списки для выдачи целиком.
+ * Экземпляры Genre/Mpa общие для всех фильмов, мапперы не создают новые объекты на каждую строку.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReferenceDictionary {
+    private static final long MISS_RELOAD_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final InDbGenre inDbGenre;
+    private final InDbMpa inDbMpa;
+
+    private volatile Snapshot snapshot = new Snapshot(new Genre[0], List.of(), new Mpa[0], List.of());
+    private long lastMissReload = System.nanoTime() - MISS_RELOAD_INTERVAL_NANOS;
+
+    @PostConstruct
+    public synchronized void load() {
+        List<Genre> genres = inDbGenre.inGenryAll().stream()
+                .sorted(Comparator.comparing(Genre::getId))
+                .toList();
+        List<Mpa> ratings = inDbMpa.inMpaAll().stream()
+                .sorted(Comparator.comparing(Mpa::getId))
+                .toList();
+
+        Genre[] genresById = new Genre[genres.isEmpty() ? 0 : genres.getLast().getId() + 1];
+        genres.forEach(genre -> genresById[genre.getId()] = genre);
+
+        Mpa[] ratingsById = new Mpa[ratings.isEmpty() ? 0 : ratings.getLast().getId() + 1];
+        ratings.forEach(mpa -> ratingsById[mpa.getId()] = mpa);
+
+        snapshot = new Snapshot(genresById, genres, ratingsById, ratings);
+        log.info("Загружено жанров: {}, рейтингов: {}", genres.size(), ratings.size());
+    }
+
+    public Collection<Genre> genres() {
+        return snapshot.genres();
+    }
+
+    public Collection<Mpa> ratings() {
+        return snapshot.ratings();
+    }
+
+    public Genre genre(Integer id) {
+        if (id == null) {
+            throw new ValidationException("Не указан айди жанра");
+        }
+
+        Genre genre = find(snapshot.genresById(), id);
+        if (genre == null) {
+            throw new NotFoundException("Жанр с id " + id + " не найден");
+        }
+        return genre;
+    }
+
+    public Mpa mpa(Integer id) {
+        if (id == null) {
+            throw new ValidationException("Не указан айди рейтинга");
+        }
+
+        Mpa mpa = find(snapshot.ratingsById(), id);
+        if (mpa == null) {
+            throw new NotFoundException("Mpa с id " + id + " не найден");
+        }
+        return mpa;
+    }
+
+    /**
+     * Для строк, уже лежащих в БД: id мог появиться после загрузки справочника,
+     * тогда справочник перечитывается, но не чаще раза в 10 секунд.
+     */
+    public Genre genreForRow(int id) {
+        Genre genre = find(snapshot.genresById(), id);
+        if (genre == null) {
+            reloadOnMiss();
+            genre = find(snapshot.genresById(), id);
+        }
+        return genre != null ? genre : Genre.builder().id(id).build();
+    }
+
+    public Mpa mpaForRow(int id) {
+        if (id == 0) {
+            return null;
+        }
+
+        Mpa mpa = find(snapshot.ratingsById(), id);
+        if (mpa == null) {
+            reloadOnMiss();
+            mpa = find(snapshot.ratingsById(), id);
+        }
+        return mpa != null ? mpa : Mpa.builder().id(id).build();
+    }
+
+    // id, которого нет и в БД, иначе перечитывал бы справочник на каждой строке выборки.
+    // Потоки, промахнувшиеся во время перезагрузки, ждут ее и ищут id уже в новом снимке
+    private synchronized void reloadOnMiss() {
+        long now = System.nanoTime();
+        if (now - lastMissReload < MISS_RELOAD_INTERVAL_NANOS) {
+            return;
+        }
+
+        lastMissReload = now;
+        load();
+    }
+
+    private static <T> T find(T[] byId, int id) {
+        return id > 0 && id < byId.length ? byId[id] : null;
+    }
+
+    private record Snapshot(Genre[] genresById, List<Genre> genres, Mpa[] ratingsById, List<Mpa> ratings) {
+    }
+}
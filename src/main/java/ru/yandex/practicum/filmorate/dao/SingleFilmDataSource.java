@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Все фильмы в основной БД приложения.
+ */
+@Component
+@Profile("!sharded")
+@RequiredArgsConstructor
+public class SingleFilmDataSource implements FilmDataSources {
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    public List<JdbcTemplate> all() {
+        return List.of(jdbc);
+    }
+
+    @Override
+    public int shardOf(long filmId) {
+        return 0;
+    }
+
+    @Override
+    public TransactionTemplate transactions(int shard) {
+        return transactionTemplate;
+    }
+}
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Последовательное чтение хранилища, по которому строятся и сверяются индексы в памяти.
+ * Индексы не знают, лежат ли данные в БД, в шардах или в движке профиля memory.
+ */
+public interface StorageScan {
+    record FilmRow(long id, String name, String description, long likeCount) {
+    }
+
+    record LikeRow(long filmId, long userId, LocalDateTime createdAt) {
+    }
+
+    record FriendshipRow(long userId, long friendId, String status) {
+    }
+
+    // Фильмы по возрастанию id в пределах одного источника
+    void films(Consumer<FilmRow> consumer);
+
+    Optional<FilmRow> film(long id);
+
+    // since == null — все лайки
+    void likes(LocalDateTime since, Consumer<LikeRow> consumer);
+
+    void friendships(Consumer<FriendshipRow> consumer);
+
+    void userIds(LongConsumer consumer);
+
+    void filmIds(LongConsumer consumer);
+
+    boolean userExists(long id);
+
+    boolean filmExists(long id);
+}
@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Привязка структур в памяти к исходу транзакции: либо изменение делается сразу и отменяется
+ * компенсацией при откате, либо откладывается до коммита.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class TransactionHooks {
+
+    public static void afterRollback(Runnable compensation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    compensation.run();
+                }
+            }
+        });
+    }
+
+    // Изменение в памяти только после коммита: до него новые строки не видны другим запросам
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
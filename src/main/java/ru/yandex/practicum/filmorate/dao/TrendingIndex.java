@@ -0,0 +1,303 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * Фильмы в тренде за скользящее окно: лайки раскладываются по минутным корзинам в кольцевом буфере
+ * длиной в самое большое окно, вклад лайка затухает экспоненциально с полупериодом half-life-ratio * окно.
+ * Для каждого окна поддерживается упорядоченный рейтинг, поэтому чтение top-k — O(k) без обращения к БД.
+ * Затухание считается «вперед» (forward decay): вес лайка растет с его минутой, порядок от времени не зависит,
+ * а выпадающие из окна корзины вычитаются при смене минуты.
+ * При включенном приближенном режиме (ApproxLikeTracker) кольцо не ведется совсем: тренды считаются
+ * только в фиксированной памяти скетчей, точный запрос отклоняется.
+ */
+@Slf4j
+@Component
+public class TrendingIndex {
+    private static final Comparator<Entry> ORDER = Comparator.comparingDouble(Entry::score).reversed()
+            .thenComparingLong(Entry::filmId);
+    // Предел показателя экспоненты до пересчета весов к новой базе, чтобы не выйти за точность double
+    private static final double MAX_EXPONENT = 30;
+
+    private final StorageScan scan;
+    private final boolean enabled;
+    private final Map<String, Window> windows = new LinkedHashMap<>();
+    private final Bucket[] ring;
+    private long currentMinute;
+
+    public TrendingIndex(StorageScan scan,
+                         @Value("${filmorate.trending.windows:1h,24h,7d}") String[] windowNames,
+                         @Value("${filmorate.trending.half-life-ratio:0.25}") double halfLifeRatio,
+                         @Value("${filmorate.trending.approx.enabled:false}") boolean approxEnabled) {
+        this.scan = scan;
+        this.enabled = !approxEnabled;
+
+        long maxMinutes = 0;
+        for (String name : enabled ? windowNames : new String[0]) {
+            long minutes = parseMinutes(name.trim());
+            windows.put(name.trim(), new Window(minutes, Math.log(2) / (minutes * halfLifeRatio)));
+            maxMinutes = Math.max(maxMinutes, minutes);
+        }
+        this.ring = new Bucket[Math.toIntExact(maxMinutes + 1)];
+        this.currentMinute = minuteOf(LocalDateTime.now());
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        if (!enabled) {
+            log.info("Точные тренды выключены: включен приближенный режим");
+            return;
+        }
+
+        long now = minuteOf(LocalDateTime.now());
+        LocalDateTime since = LocalDateTime.now().minusMinutes(ring.length - 1);
+
+        synchronized (this) {
+            Arrays.fill(ring, null);
+            windows.values().forEach(window -> window.reset(now));
+            currentMinute = now;
+        }
+
+        int[] loaded = {0};
+        scan.likes(since, like -> {
+            if (like.createdAt() != null) {
+                add(like.filmId(), minuteOf(like.createdAt()), 1);
+                loaded[0]++;
+            }
+        });
+        log.info("Тренды восстановлены по {} лайкам, окна {}", loaded[0], windows.keySet());
+    }
+
+    public void likeAdded(Long filmId, LocalDateTime at) {
+        if (!enabled) {
+            return;
+        }
+        long minute = minuteOf(at);
+        add(filmId, minute, 1);
+        TransactionHooks.afterRollback(() -> add(filmId, minute, -1));
+    }
+
+    public void likeRemoved(Long filmId, LocalDateTime at) {
+        if (!enabled) {
+            return;
+        }
+        long minute = at != null ? minuteOf(at) : latestMinuteOf(filmId);
+        add(filmId, minute, -1);
+        TransactionHooks.afterRollback(() -> add(filmId, minute, 1));
+    }
+
+    // Отложенная запись: лайк уже закоммичен, компенсация не нужна. at — время лайка, и при удалении тоже
+    // (created_at удаленной строки), иначе снятый вклад не совпадет с добавленным
+    public void likeApplied(Long filmId, LocalDateTime at, boolean added) {
+        if (!enabled) {
+            return;
+        }
+        add(filmId, at != null ? minuteOf(at) : latestMinuteOf(filmId), added ? 1 : -1);
+    }
+
+    public synchronized List<Long> top(String windowName, int count) {
+        if (!enabled) {
+            throw new ValidationException("Точные тренды выключены, доступен только приближенный режим: approx=true");
+        }
+        Window window = windows.get(windowName);
+        if (window == null) {
+            throw new ValidationException("Окно " + windowName + " не поддерживается, доступны: " + windows.keySet());
+        }
+
+        advance(minuteOf(LocalDateTime.now()));
+        List<Long> ids = new ArrayList<>(Math.min(count, window.ranking.size()));
+        for (Entry entry : window.ranking) {
+            if (ids.size() == count) {
+                break;
+            }
+            ids.add(entry.filmId());
+        }
+        return ids;
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.trending.tick-interval:PT15S}")
+    public synchronized void tick() {
+        if (!enabled) {
+            return;
+        }
+        advance(minuteOf(LocalDateTime.now()));
+    }
+
+    private synchronized void add(long filmId, long minute, int delta) {
+        advance(minuteOf(LocalDateTime.now()));
+        if (minute <= currentMinute - ring.length + 1) {
+            return;
+        }
+        minute = Math.min(minute, currentMinute);
+
+        Bucket bucket = bucket(minute);
+        if (delta < 0 && bucket.counts.get(filmId) <= 0) {
+            return;
+        }
+        bucket.counts.add(filmId, delta);
+
+        for (Window window : windows.values()) {
+            if (minute > currentMinute - window.minutes) {
+                window.change(filmId, delta * window.weight(minute), delta);
+            }
+        }
+    }
+
+    // Сдвиг времени: корзины, выпавшие из окна, вычитаются из его рейтинга, их место в кольце освобождается
+    private void advance(long now) {
+        if (now <= currentMinute) {
+            return;
+        }
+
+        if (now - currentMinute >= ring.length) {
+            Arrays.fill(ring, null);
+            windows.values().forEach(window -> window.reset(now));
+            currentMinute = now;
+            return;
+        }
+
+        for (long minute = currentMinute + 1; minute <= now; minute++) {
+            for (Window window : windows.values()) {
+                Bucket expired = ring[slot(minute - window.minutes)];
+                if (expired != null && expired.minute == minute - window.minutes) {
+                    double weight = window.weight(expired.minute);
+                    expired.counts.forEach((filmId, count) -> {
+                        if (count > 0) {
+                            window.change(filmId, -count * weight, -count);
+                        }
+                    });
+                }
+            }
+            ring[slot(minute)] = null;
+        }
+        currentMinute = now;
+        windows.values().forEach(window -> window.rebaseIfNeeded(now));
+    }
+
+    private synchronized long latestMinuteOf(long filmId) {
+        advance(minuteOf(LocalDateTime.now()));
+        for (long minute = currentMinute; minute > currentMinute - ring.length; minute--) {
+            Bucket bucket = ring[slot(minute)];
+            if (bucket != null && bucket.minute == minute && bucket.counts.get(filmId) > 0) {
+                return minute;
+            }
+        }
+        return Long.MIN_VALUE;
+    }
+
+    private Bucket bucket(long minute) {
+        int slot = slot(minute);
+        if (ring[slot] == null || ring[slot].minute != minute) {
+            ring[slot] = new Bucket(minute);
+        }
+        return ring[slot];
+    }
+
+    private int slot(long minute) {
+        return (int) Math.floorMod(minute, (long) ring.length);
+    }
+
+    private static long minuteOf(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toEpochSecond() / 60;
+    }
+
+    public static long parseMinutes(String window) {
+        if (window == null || window.length() < 2) {
+            throw new ValidationException("Окно должно быть задано как число и единица: m, h или d");
+        }
+
+        long amount;
+        try {
+            amount = Long.parseLong(window.substring(0, window.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Некорректное окно: " + window);
+        }
+        Duration duration = switch (window.charAt(window.length() - 1)) {
+            case 'm' -> Duration.ofMinutes(amount);
+            case 'h' -> Duration.ofHours(amount);
+            case 'd' -> Duration.ofDays(amount);
+            default -> throw new ValidationException("Некорректное окно: " + window);
+        };
+        if (duration.toMinutes() <= 0) {
+            throw new ValidationException("Окно должно быть положительным");
+        }
+        return duration.toMinutes();
+    }
+
+    private static class Bucket {
+        private final long minute;
+        private final LongCounter counts = new LongCounter(16);
+
+        Bucket(long minute) {
+            this.minute = minute;
+        }
+    }
+
+    private static class Window {
+        private final long minutes;
+        private final double lambda;
+        private final TreeSet<Entry> ranking = new TreeSet<>(ORDER);
+        private final Map<Long, Entry> entries = new HashMap<>();
+        private long baseMinute;
+
+        Window(long minutes, double lambda) {
+            this.minutes = minutes;
+            this.lambda = lambda;
+        }
+
+        double weight(long minute) {
+            return Math.exp(lambda * (minute - baseMinute));
+        }
+
+        void change(long filmId, double scoreDelta, int countDelta) {
+            Entry previous = entries.remove(filmId);
+            if (previous != null) {
+                ranking.remove(previous);
+            }
+
+            int count = (previous != null ? previous.count() : 0) + countDelta;
+            if (count <= 0) {
+                return;
+            }
+            Entry entry = new Entry(filmId, (previous != null ? previous.score() : 0) + scoreDelta, count);
+            entries.put(filmId, entry);
+            ranking.add(entry);
+        }
+
+        void reset(long now) {
+            ranking.clear();
+            entries.clear();
+            baseMinute = now;
+        }
+
+        // Веса растут экспоненциально от базы; когда показатель велик, все оценки переводятся к новой базе
+        void rebaseIfNeeded(long now) {
+            if (lambda * (now - baseMinute) < MAX_EXPONENT) {
+                return;
+            }
+
+            double factor = Math.exp(-lambda * (now - baseMinute));
+            List<Entry> rescaled = new ArrayList<>(entries.size());
+            entries.values().forEach(entry -> rescaled.add(
+                    new Entry(entry.filmId(), entry.score() * factor, entry.count())));
+            reset(now);
+            rescaled.forEach(entry -> {
+                entries.put(entry.filmId(), entry);
+                ranking.add(entry);
+            });
+        }
+    }
+
+    private record Entry(long filmId, double score, int count) {
+    }
+}
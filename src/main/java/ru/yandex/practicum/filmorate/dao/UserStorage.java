@@ -4,14 +4,22 @@ import ru.yandex.practicum.filmorate.dao.mapper.user.UserDto;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserStorage {
     Collection<UserDto> findAll();
 
+    Collection<UserDto> findPage(Long afterId, int limit);
+
+    void streamAll(Long afterId, Consumer<UserDto> consumer);
+
     UserDto create(User user);
 
     UserDto update(User newUser);
 
     UserDto getUsetById(Long id);
 
+    List<User> getUsersByIds(Collection<Long> ids);
+
 }
@@ -0,0 +1,355 @@
+package ru.yandex.practicum.filmorate.dao.likelog;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dao.LikeEvent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Журнал событий лайков в отображаемых в память файлах-сегментах. Запись фиксированного размера, 32 байта:
+ * фильм, пользователь, время в миллисекундах, действие и CRC32C первых 28 байт. Запись с действием 0 — конец
+ * данных сегмента. Номер события — номер первой записи сегмента (из имени файла) плюс позиция в сегменте.
+ * fsync: batch — append возвращается после сброса на диск, один сброс покрывает всех одновременно пишущих;
+ * interval — сброс раз в sync-interval, при сбое ОС теряется не больше интервала.
+ */
+@Slf4j
+@Component
+public class LikeEventLog {
+    static final int RECORD_SIZE = 32;
+    private static final int HEADER_SIZE = 32;
+    private static final int MAGIC = 0x464D4C4B;
+    private static final int VERSION = 1;
+    private static final int OP_ADD = 1;
+    private static final int OP_REMOVE = 2;
+
+    private final boolean enabled;
+    private final Path dir;
+    private final int segmentRecords;
+    private final boolean syncEachBatch;
+
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Object syncMonitor = new Object();
+    private Segment current;
+    private int position;
+
+    // Последнее записанное и последнее сброшенное на диск событие
+    private volatile long writtenSeq;
+    private volatile long durableSeq;
+
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong syncs = new AtomicLong();
+    private final AtomicLong corrupted = new AtomicLong();
+
+    public LikeEventLog(@Value("${filmorate.likes.event-log.enabled:false}") boolean enabled,
+                        @Value("${filmorate.likes.event-log.dir:./db/likes}") String dir,
+                        @Value("${filmorate.likes.event-log.segment-records:1048576}") int segmentRecords,
+                        @Value("${filmorate.likes.event-log.fsync:batch}") String fsync) {
+        if (!fsync.equals("batch") && !fsync.equals("interval")) {
+            throw new IllegalArgumentException("filmorate.likes.event-log.fsync: ожидается batch или interval, получено "
+                    + fsync);
+        }
+        this.enabled = enabled;
+        this.dir = Path.of(dir);
+        this.segmentRecords = segmentRecords;
+        this.syncEachBatch = fsync.equals("batch");
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        Files.createDirectories(dir);
+        for (Path path : segmentFiles()) {
+            Segment segment = map(path);
+            segments.put(segment.firstSeq(), segment);
+        }
+
+        if (segments.isEmpty()) {
+            current = create(1);
+            position = 0;
+        } else {
+            current = segments.lastEntry().getValue();
+            position = recoverTail(current);
+        }
+        writtenSeq = current.firstSeq() + position - 1;
+        current.buffer().force();
+        durableSeq = writtenSeq;
+
+        log.info("Журнал лайков открыт: сегментов {}, последнее событие {}", segments.size(), writtenSeq);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (enabled) {
+            sync();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Добавляет событие и возвращает его номер. При fsync: batch — только после сброса на диск.
+     */
+    public long append(Long filmId, Long userId, boolean add) {
+        long seq;
+        appendLock.lock();
+        try {
+            if (position == current.records()) {
+                rotate();
+            }
+
+            int offset = HEADER_SIZE + position * RECORD_SIZE;
+            MappedByteBuffer buffer = current.buffer();
+            buffer.putLong(offset, filmId);
+            buffer.putLong(offset + 8, userId);
+            buffer.putLong(offset + 16, System.currentTimeMillis());
+            buffer.putInt(offset + 24, add ? OP_ADD : OP_REMOVE);
+            buffer.putInt(offset + 28, checksum(buffer, offset));
+
+            seq = current.firstSeq() + position;
+            position++;
+            writtenSeq = seq;
+        } finally {
+            appendLock.unlock();
+        }
+
+        appended.incrementAndGet();
+        if (syncEachBatch) {
+            awaitDurable(seq);
+        }
+        return seq;
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.likes.event-log.sync-interval:PT1S}")
+    public void sync() {
+        if (enabled) {
+            awaitDurable(writtenSeq);
+        }
+    }
+
+    public long writtenSeq() {
+        return writtenSeq;
+    }
+
+    public long firstSeq() {
+        return segments.firstKey();
+    }
+
+    /**
+     * Читает события с номера fromSeq, не больше max, прямо из отображенных сегментов.
+     * Возвращает номер, с которого читать дальше.
+     */
+    public long read(long fromSeq, int max, Consumer<LikeEvent> consumer) {
+        long seq = fromSeq;
+        long end = writtenSeq;
+        int read = 0;
+        CRC32C crc = new CRC32C();
+
+        while (seq <= end && read < max) {
+            Map.Entry<Long, Segment> entry = segments.floorEntry(seq);
+            if (entry == null) {
+                throw new IllegalStateException("Событие " + seq + " уже удалено из журнала лайков");
+            }
+
+            Segment segment = entry.getValue();
+            long segmentEnd = segment.firstSeq() + segment.records();
+            if (seq >= segmentEnd) {
+                seq = next(seq);
+                continue;
+            }
+
+            int offset = HEADER_SIZE + (int) (seq - segment.firstSeq()) * RECORD_SIZE;
+            MappedByteBuffer buffer = segment.buffer();
+            int op = buffer.getInt(offset + 24);
+            if (op == 0) {
+                // Конец данных закрытого сегмента — дальше следующий сегмент
+                seq = next(segmentEnd);
+                continue;
+            }
+
+            crc.reset();
+            crc.update(buffer.slice(offset, 28));
+            if ((int) crc.getValue() != buffer.getInt(offset + 28) || op != OP_ADD && op != OP_REMOVE) {
+                corrupted.incrementAndGet();
+                log.error("Запись {} журнала лайков повреждена и пропущена", seq);
+            } else {
+                consumer.accept(new LikeEvent(buffer.getLong(offset), buffer.getLong(offset + 8), op == OP_ADD,
+                        LocalDateTime.ofInstant(Instant.ofEpochMilli(buffer.getLong(offset + 16)),
+                                ZoneId.systemDefault())));
+                read++;
+            }
+            seq++;
+        }
+        return seq;
+    }
+
+    /**
+     * Удаляет закрытые сегменты, все события которых меньше seq.
+     */
+    public void deleteSegmentsBefore(long seq) {
+        for (Segment segment : segments.headMap(seq).values()) {
+            if (segment != current && segment.firstSeq() + segment.records() <= seq) {
+                segments.remove(segment.firstSeq());
+                try {
+                    Files.deleteIfExists(segment.path());
+                    log.info("Сегмент журнала лайков {} перенесен в БД и удален", segment.path().getFileName());
+                } catch (IOException e) {
+                    log.error("Не удалось удалить сегмент {}: {}", segment.path(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("fsync", syncEachBatch ? "batch" : "interval");
+        stats.put("segments", segments.size());
+        stats.put("writtenSeq", writtenSeq);
+        stats.put("durableSeq", durableSeq);
+        stats.put("appended", appended.get());
+        stats.put("syncs", syncs.get());
+        stats.put("corrupted", corrupted.get());
+        return stats;
+    }
+
+    // Групповой сброс: первый вошедший сбрасывает все записанное к этому моменту, остальные уже покрыты
+    private void awaitDurable(long seq) {
+        synchronized (syncMonitor) {
+            if (durableSeq >= seq) {
+                return;
+            }
+            long target = writtenSeq;
+            // Сегменты, уже перенесенные в БД и удаленные, сбрасывать не нужно
+            Long from = segments.floorKey(durableSeq + 1);
+            for (Segment segment : segments.tailMap(from != null ? from : segments.firstKey()).values()) {
+                if (segment.firstSeq() > target) {
+                    break;
+                }
+                segment.buffer().force();
+            }
+            durableSeq = target;
+            syncs.incrementAndGet();
+        }
+    }
+
+    private long next(long seq) {
+        Long key = segments.ceilingKey(seq);
+        return key != null ? key : writtenSeq + 1;
+    }
+
+    // Вызывается под appendLock: закрытый сегмент сбрасывается целиком, новый начинается со следующего номера
+    private void rotate() {
+        try {
+            current.buffer().force();
+            current = create(current.firstSeq() + current.records());
+            position = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось создать сегмент журнала лайков", e);
+        }
+    }
+
+    // Конец данных — первая запись с действием 0 или неверной суммой; хвост после нее обнуляется
+    private int recoverTail(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer();
+        int end = 0;
+        while (end < segment.records() && valid(buffer, HEADER_SIZE + end * RECORD_SIZE)) {
+            end++;
+        }
+
+        int cleared = 0;
+        for (int index = end; index < segment.records(); index++) {
+            int offset = HEADER_SIZE + index * RECORD_SIZE;
+            if (buffer.getInt(offset + 24) != 0 || buffer.getInt(offset + 28) != 0) {
+                for (int i = 0; i < RECORD_SIZE; i += 8) {
+                    buffer.putLong(offset + i, 0L);
+                }
+                cleared++;
+            }
+        }
+        if (cleared > 0) {
+            log.warn("В конце сегмента {} отброшено оборванных записей: {}", segment.path().getFileName(), cleared);
+        }
+        return end;
+    }
+
+    private Segment create(long firstSeq) throws IOException {
+        Path path = dir.resolve(String.format("likes-%020d.seg", firstSeq));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + (long) segmentRecords * RECORD_SIZE);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putLong(8, firstSeq);
+            buffer.putInt(16, segmentRecords);
+            buffer.force();
+            Segment segment = new Segment(firstSeq, segmentRecords, path, buffer);
+            segments.put(firstSeq, segment);
+            return segment;
+        }
+    }
+
+    private static Segment map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            if (channel.size() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Файл " + path + " не является сегментом журнала лайков");
+            }
+            int records = buffer.getInt(16);
+            if (channel.size() != HEADER_SIZE + (long) records * RECORD_SIZE) {
+                throw new IOException("Размер сегмента " + path + " не совпадает с заголовком");
+            }
+            return new Segment(buffer.getLong(8), records, path, buffer);
+        }
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files
+                    .filter(file -> file.getFileName().toString().matches("likes-\\d{20}\\.seg"))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static boolean valid(MappedByteBuffer buffer, int offset) {
+        int op = buffer.getInt(offset + 24);
+        return (op == OP_ADD || op == OP_REMOVE) && checksum(buffer, offset) == buffer.getInt(offset + 28);
+    }
+
+    private static int checksum(MappedByteBuffer buffer, int offset) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(offset, 28));
+        return (int) crc.getValue();
+    }
+
+    private record Segment(long firstSeq, int records, Path path, MappedByteBuffer buffer) {
+    }
+}
@@ -0,0 +1,181 @@
+package ru.yandex.practicum.filmorate.dao.likelog;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dao.LikeBatchWriter;
+import ru.yandex.practicum.filmorate.dao.LikeEvent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Переносит события из {@link LikeEventLog} в БД пачками через {@link LikeBatchWriter}.
+ * Номер следующего события для переноса хранится в файле projected.offset и пишется после коммита пачки:
+ * после сбоя часть пачки применится повторно, что для идемпотентной записи безопасно.
+ * При старте все не перенесенные события применяются до приема запросов, так что счетчики лайков,
+ * рейтинг и тренды, построенные из БД, догоняют журнал. Перенесенные сегменты удаляются.
+ */
+@Slf4j
+@Component
+public class LikeLogProjector {
+    private final LikeEventLog eventLog;
+    private final LikeBatchWriter batchWriter;
+    private final Path offsetPath;
+    private final int batchSize;
+    private final long intervalMs;
+
+    private FileChannel offsetFile;
+    private volatile long projectedSeq;
+    private volatile boolean running;
+    private Thread projector;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong maxBatchMs = new AtomicLong();
+
+    public LikeLogProjector(LikeEventLog eventLog,
+                            LikeBatchWriter batchWriter,
+                            @Value("${filmorate.likes.event-log.dir:./db/likes}") String dir,
+                            @Value("${filmorate.likes.event-log.batch-size:1000}") int batchSize,
+                            @Value("${filmorate.likes.event-log.projector-interval-ms:50}") long intervalMs) {
+        this.eventLog = eventLog;
+        this.batchWriter = batchWriter;
+        this.batchSize = batchSize;
+        this.intervalMs = intervalMs;
+        this.offsetPath = Path.of(dir).resolve("projected.offset");
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!eventLog.isEnabled()) {
+            return;
+        }
+
+        offsetFile = FileChannel.open(offsetPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+
+        // Позиция может оказаться дальше конца журнала, если хвост не был сброшен на диск до сбоя:
+        // эти события уже в БД, новые события получат номера с конца журнала
+        long saved = readOffset();
+        projectedSeq = Math.max(eventLog.firstSeq(), Math.min(saved, eventLog.writtenSeq() + 1));
+
+        long started = System.currentTimeMillis();
+        long behind = eventLog.writtenSeq() + 1 - projectedSeq;
+        while (projectOnce()) {
+            // догоняем журнал до приема запросов
+        }
+        log.info("Журнал лайков перенесен в БД при старте: {} событий за {} мс", behind,
+                System.currentTimeMillis() - started);
+
+        running = true;
+        projector = new Thread(this::run, "like-log-projector");
+        projector.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        if (projector == null) {
+            return;
+        }
+
+        running = false;
+        projector.join(TimeUnit.SECONDS.toMillis(30));
+        while (projectOnce()) {
+            // переносим остаток, чтобы при старте не догонять
+        }
+        offsetFile.close();
+        log.info("Перенос журнала лайков остановлен на событии {}", projectedSeq);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>(eventLog.stats());
+        if (eventLog.isEnabled()) {
+            stats.put("projectedSeq", projectedSeq);
+            stats.put("lag", eventLog.writtenSeq() + 1 - projectedSeq);
+        }
+        stats.put("written", written.get());
+        stats.put("dropped", dropped.get());
+        stats.put("batches", batches.get());
+        stats.put("failures", failures.get());
+        stats.put("maxBatchMs", maxBatchMs.get());
+        return stats;
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                if (!projectOnce()) {
+                    Thread.sleep(intervalMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (RuntimeException e) {
+                // Позиция не сдвинулась: пачка будет перенесена повторно
+                failures.incrementAndGet();
+                log.error("Ошибка переноса журнала лайков в БД: ", e);
+                sleepQuietly();
+            }
+        }
+    }
+
+    // false — переносить нечего
+    private boolean projectOnce() {
+        List<LikeEvent> batch = new ArrayList<>(batchSize);
+        long next = eventLog.read(projectedSeq, batchSize, batch::add);
+        if (next == projectedSeq) {
+            return false;
+        }
+
+        long started = System.nanoTime();
+        if (!batch.isEmpty()) {
+            LikeBatchWriter.Result result = batchWriter.write(batch);
+            written.addAndGet(result.written());
+            dropped.addAndGet(result.dropped());
+            batches.incrementAndGet();
+        }
+        maxBatchMs.accumulateAndGet(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), Math::max);
+
+        projectedSeq = next;
+        writeOffset(next);
+        eventLog.deleteSegmentsBefore(next);
+        return true;
+    }
+
+    private long readOffset() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        return offsetFile.read(buffer, 0) == Long.BYTES ? buffer.getLong(0) : 0L;
+    }
+
+    private void writeOffset(long seq) {
+        try {
+            offsetFile.write(ByteBuffer.allocate(Long.BYTES).putLong(0, seq), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось сохранить позицию переноса журнала лайков", e);
+        }
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(intervalMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
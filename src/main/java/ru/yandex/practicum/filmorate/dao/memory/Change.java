@@ -0,0 +1,184 @@
+package ru.yandex.practicum.filmorate.dao.memory;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Одно изменение состояния движка в памяти — запись журнала и снимка.
+ * Каждое изменение устанавливает значение по ключу, а не прибавляет к нему,
+ * поэтому повторное применение уже учтенной записи ничего не меняет.
+ */
+sealed interface Change {
+    byte FILM_PUT = 1;
+    byte FILM_REMOVE = 2;
+    byte USER_PUT = 3;
+    byte USER_REMOVE = 4;
+    byte LIKE_ADD = 5;
+    byte LIKE_REMOVE = 6;
+    byte FRIEND_ADD = 7;
+    byte FRIEND_REMOVE = 8;
+    byte BATCH = 9;
+
+    record FilmPut(StoredFilm film) implements Change {
+    }
+
+    record FilmRemove(long filmId) implements Change {
+    }
+
+    record UserPut(StoredUser user) implements Change {
+    }
+
+    record UserRemove(long userId) implements Change {
+    }
+
+    // likedAt — миллисекунды от эпохи
+    record LikeAdd(long filmId, long userId, long likedAt) implements Change {
+    }
+
+    record LikeRemove(long filmId, long userId) implements Change {
+    }
+
+    record FriendAdd(long userId, long friendId) implements Change {
+    }
+
+    record FriendRemove(long userId, long friendId) implements Change {
+    }
+
+    // Изменения одной транзакции: один кадр журнала, поэтому при восстановлении применяются все или ни одного
+    record Batch(List<Change> changes) implements Change {
+    }
+
+    static void write(Change change, DataOutput out) throws IOException {
+        switch (change) {
+            case FilmPut put -> {
+                StoredFilm film = put.film();
+                out.writeByte(FILM_PUT);
+                out.writeLong(film.id());
+                writeString(out, film.name());
+                writeString(out, film.description());
+                writeDate(out, film.releaseDate());
+                out.writeInt(film.duration());
+                out.writeInt(film.mpaId());
+                out.writeShort(film.genreIds().length);
+                for (int genreId : film.genreIds()) {
+                    out.writeInt(genreId);
+                }
+            }
+            case FilmRemove remove -> {
+                out.writeByte(FILM_REMOVE);
+                out.writeLong(remove.filmId());
+            }
+            case UserPut put -> {
+                StoredUser user = put.user();
+                out.writeByte(USER_PUT);
+                out.writeLong(user.id());
+                writeString(out, user.email());
+                writeString(out, user.login());
+                writeString(out, user.name());
+                writeDate(out, user.birthday());
+            }
+            case UserRemove remove -> {
+                out.writeByte(USER_REMOVE);
+                out.writeLong(remove.userId());
+            }
+            case LikeAdd add -> {
+                out.writeByte(LIKE_ADD);
+                out.writeLong(add.filmId());
+                out.writeLong(add.userId());
+                out.writeLong(add.likedAt());
+            }
+            case LikeRemove remove -> {
+                out.writeByte(LIKE_REMOVE);
+                out.writeLong(remove.filmId());
+                out.writeLong(remove.userId());
+            }
+            case FriendAdd add -> {
+                out.writeByte(FRIEND_ADD);
+                out.writeLong(add.userId());
+                out.writeLong(add.friendId());
+            }
+            case FriendRemove remove -> {
+                out.writeByte(FRIEND_REMOVE);
+                out.writeLong(remove.userId());
+                out.writeLong(remove.friendId());
+            }
+            case Batch batch -> {
+                out.writeByte(BATCH);
+                out.writeInt(batch.changes().size());
+                for (Change nested : batch.changes()) {
+                    write(nested, out);
+                }
+            }
+        }
+    }
+
+    static Change read(DataInput in) throws IOException {
+        byte type = in.readByte();
+        return switch (type) {
+            case FILM_PUT -> {
+                long id = in.readLong();
+                String name = readString(in);
+                String description = readString(in);
+                LocalDate releaseDate = readDate(in);
+                int duration = in.readInt();
+                int mpaId = in.readInt();
+                int[] genreIds = new int[in.readUnsignedShort()];
+                for (int i = 0; i < genreIds.length; i++) {
+                    genreIds[i] = in.readInt();
+                }
+                yield new FilmPut(new StoredFilm(id, name, description, releaseDate, duration, mpaId, genreIds));
+            }
+            case FILM_REMOVE -> new FilmRemove(in.readLong());
+            case USER_PUT -> new UserPut(new StoredUser(in.readLong(), readString(in), readString(in),
+                    readString(in), readDate(in)));
+            case USER_REMOVE -> new UserRemove(in.readLong());
+            case LIKE_ADD -> new LikeAdd(in.readLong(), in.readLong(), in.readLong());
+            case LIKE_REMOVE -> new LikeRemove(in.readLong(), in.readLong());
+            case FRIEND_ADD -> new FriendAdd(in.readLong(), in.readLong());
+            case FRIEND_REMOVE -> new FriendRemove(in.readLong(), in.readLong());
+            case BATCH -> {
+                int size = in.readInt();
+                List<Change> changes = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    changes.add(read(in));
+                }
+                yield new Batch(changes);
+            }
+            default -> throw new IOException("Неизвестный тип записи журнала: " + type);
+        };
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDate(DataOutput out, LocalDate date) throws IOException {
+        out.writeLong(date != null ? date.toEpochDay() : Long.MIN_VALUE);
+    }
+
+    private static LocalDate readDate(DataInput in) throws IOException {
+        long epochDay = in.readLong();
+        return epochDay != Long.MIN_VALUE ? LocalDate.ofEpochDay(epochDay) : null;
+    }
+}
@@ -0,0 +1,229 @@
+package ru.yandex.practicum.filmorate.dao.memory;
+
+import java.util.Objects;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Словарь long -> V без упаковки ключей: открытая адресация с линейным пробированием,
+ * разбитая на сегменты со своим StampedLock. Чтение оптимистичное и не ждет записи,
+ * запись блокирует только свой сегмент. null не хранится: get == null означает отсутствие ключа.
+ */
+public class ConcurrentLongMap<V> {
+    private static final int SEGMENT_BITS = 4;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+
+    public interface Visitor<V> {
+        void visit(long key, V value);
+    }
+
+    public ConcurrentLongMap() {
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        long hash = hash(key);
+        return (V) segment(hash).get(key, hash);
+    }
+
+    // Возвращает предыдущее значение
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        Objects.requireNonNull(value);
+        long hash = hash(key);
+        return (V) segment(hash).put(key, hash, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        long hash = hash(key);
+        return (V) segment(hash).remove(key, hash);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    // Каждый сегмент копируется под локом и обходится без него: посетитель может быть медленным
+    @SuppressWarnings("unchecked")
+    public void forEach(Visitor<? super V> visitor) {
+        for (Segment segment : segments) {
+            Table copy = segment.copy();
+            for (int i = 0; i < copy.keys.length; i++) {
+                if (copy.values[i] != null) {
+                    visitor.visit(copy.keys[i], (V) copy.values[i]);
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    private Segment segment(long hash) {
+        return segments[(int) (hash >>> (Long.SIZE - SEGMENT_BITS))];
+    }
+
+    private static long hash(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 29);
+    }
+
+    private record Table(long[] keys, Object[] values) {
+        Table(int capacity) {
+            this(new long[capacity], new Object[capacity]);
+        }
+    }
+
+    private static class Segment {
+        private final StampedLock lock = new StampedLock();
+        private Table table = new Table(INITIAL_CAPACITY);
+        private int size;
+
+        Object get(long key, long hash) {
+            long stamp = lock.tryOptimisticRead();
+            Object value = find(table, key, hash);
+            if (lock.validate(stamp)) {
+                return value;
+            }
+
+            stamp = lock.readLock();
+            try {
+                return find(table, key, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        Object put(long key, long hash, Object value) {
+            long stamp = lock.writeLock();
+            try {
+                int slot = slot(table, key, hash);
+                Object previous = table.values[slot];
+                if (previous == null) {
+                    // Заполненность не выше половины: у пробирования всегда есть свободная ячейка
+                    if ((size + 1) * 2 > table.keys.length) {
+                        grow();
+                        slot = slot(table, key, hash);
+                    }
+                    size++;
+                    table.keys[slot] = key;
+                }
+                table.values[slot] = value;
+                return previous;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        Object remove(long key, long hash) {
+            long stamp = lock.writeLock();
+            try {
+                long[] keys = table.keys;
+                Object[] values = table.values;
+                int mask = keys.length - 1;
+                int hole = slot(table, key, hash);
+                Object previous = values[hole];
+                if (previous == null) {
+                    return null;
+                }
+
+                // Удаление без надгробий: следующие записи цепочки сдвигаются назад, если их место не дальше дыры
+                int next = (hole + 1) & mask;
+                while (values[next] != null) {
+                    int home = (int) hash(keys[next]) & mask;
+                    if (((next - home) & mask) >= ((next - hole) & mask)) {
+                        keys[hole] = keys[next];
+                        values[hole] = values[next];
+                        hole = next;
+                    }
+                    next = (next + 1) & mask;
+                }
+                values[hole] = null;
+                size--;
+                return previous;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        int size() {
+            long stamp = lock.readLock();
+            try {
+                return size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        Table copy() {
+            long stamp = lock.readLock();
+            try {
+                return new Table(table.keys.clone(), table.values.clone());
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void clear() {
+            long stamp = lock.writeLock();
+            try {
+                table = new Table(INITIAL_CAPACITY);
+                size = 0;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private void grow() {
+            Table old = table;
+            Table grown = new Table(old.keys.length * 2);
+            for (int i = 0; i < old.keys.length; i++) {
+                if (old.values[i] != null) {
+                    int slot = slot(grown, old.keys[i], hash(old.keys[i]));
+                    grown.keys[slot] = old.keys[i];
+                    grown.values[slot] = old.values[i];
+                }
+            }
+            table = grown;
+        }
+
+        // Ячейка с этим ключом или первая свободная в его цепочке
+        private static int slot(Table table, long key, long hash) {
+            int mask = table.keys.length - 1;
+            int slot = (int) hash & mask;
+            while (table.values[slot] != null && table.keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        // Оптимистичное чтение может застать таблицу в середине изменения: число проб ограничено ее размером
+        private static Object find(Table table, long key, long hash) {
+            int mask = table.keys.length - 1;
+            int slot = (int) hash & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                Object value = table.values[slot];
+                if (value == null) {
+                    return null;
+                }
+                if (table.keys[slot] == key) {
+                    return value;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package ru.yandex.practicum.filmorate.dao.memory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Журнал изменений, только дописывание. Файлы-сегменты journal-<seq первой записи>.log,
+ * каждая запись — кадр: длина тела, CRC32C тела и тело (seq, изменение).
+ * При восстановлении оборванная запись в конце последнего сегмента — кадр, который выходит за конец файла,
+ * последний кадр файла или хвост из нулей — обрезается. Испорченный кадр, за которым есть данные,
+ * испорченный кадр в непоследнем сегменте или пропуск seq — ошибка старта: молча отбросить записи
+ * после него нельзя.
+ */
+class Journal implements Closeable {
+    static final int MAX_FRAME = 16 * 1024 * 1024;
+
+    private static final int MAGIC = 0x464D4A4C;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+
+    private final Path dir;
+    private final boolean syncEachWrite;
+    private FileChannel channel;
+    private Path current;
+    private long lastSeq;
+    private boolean unsynced;
+
+    record Frame(long seq, Change change, int size) {
+    }
+
+    // Не сходится контрольная сумма или длина кадра; size — длина кадра по заголовку, -1 — неизвестна
+    static class CorruptFrameException extends IOException {
+        private final long size;
+
+        CorruptFrameException(String message, long size) {
+            super(message);
+            this.size = size;
+        }
+
+        CorruptFrameException(String message) {
+            this(message, -1);
+        }
+    }
+
+    Journal(Path dir, boolean syncEachWrite) {
+        this.dir = dir;
+        this.syncEachWrite = syncEachWrite;
+    }
+
+    /**
+     * Повторяет записи с seq больше afterSeq и открывает новый сегмент для дописывания.
+     * Возвращает seq последней записи.
+     */
+    long recover(long afterSeq, Consumer<Change> consumer) throws IOException {
+        Files.createDirectories(dir);
+        List<Path> segments = segments();
+        long expected = -1;
+        lastSeq = afterSeq;
+
+        for (int i = 0; i < segments.size(); i++) {
+            Path segment = segments.get(i);
+            boolean last = i == segments.size() - 1;
+            long firstSeq = firstSeq(segment);
+            if (expected < 0 && firstSeq > afterSeq + 1) {
+                throw new IOException("В журнале нет записей с " + (afterSeq + 1) + " по " + (firstSeq - 1));
+            }
+            if (expected >= 0 && firstSeq != expected) {
+                throw new IOException("Сегмент " + segment.getFileName() + " начинается с " + firstSeq
+                        + ", ожидалась запись " + expected);
+            }
+            expected = firstSeq;
+
+            long position = HEADER_SIZE;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment)))) {
+                readHeader(in);
+                while (true) {
+                    Frame frame = readFrame(in);
+                    if (frame == null) {
+                        break;
+                    }
+                    if (frame.seq() != expected) {
+                        throw new CorruptFrameException("seq " + frame.seq() + " вместо " + expected);
+                    }
+                    if (frame.seq() > afterSeq) {
+                        consumer.accept(frame.change());
+                    }
+                    lastSeq = Math.max(lastSeq, frame.seq());
+                    position += frame.size();
+                    expected++;
+                }
+            } catch (CorruptFrameException | EOFException e) {
+                if (!last || !isTornTail(segment, position, e)) {
+                    throw new IOException("Журнал поврежден: " + segment.getFileName() + ", позиция " + position, e);
+                }
+                truncate(segment, position);
+            }
+        }
+
+        open(lastSeq + 1);
+        return lastSeq;
+    }
+
+    long append(Change change) throws IOException {
+        long seq = lastSeq + 1;
+        channel.write(ByteBuffer.wrap(encode(seq, change)));
+        lastSeq = seq;
+        if (syncEachWrite) {
+            channel.force(false);
+        } else {
+            unsynced = true;
+        }
+        return seq;
+    }
+
+    void sync() throws IOException {
+        if (unsynced) {
+            unsynced = false;
+            channel.force(false);
+        }
+    }
+
+    long lastSeq() {
+        return lastSeq;
+    }
+
+    // Новый сегмент начинается со следующей записи: все старые сегменты можно удалить после снимка
+    void rotate() throws IOException {
+        sync();
+        channel.close();
+        open(lastSeq + 1);
+    }
+
+    void deleteSegmentsBefore(long seq) throws IOException {
+        for (Path segment : segments()) {
+            if (firstSeq(segment) < seq && !segment.equals(current)) {
+                Files.deleteIfExists(segment);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null && channel.isOpen()) {
+            sync();
+            channel.close();
+        }
+    }
+
+    static byte[] encode(long seq, Change change) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeInt(0);
+        out.writeInt(0);
+        out.writeLong(seq);
+        Change.write(change, out);
+
+        byte[] frame = buffer.toByteArray();
+        int bodyLength = frame.length - 8;
+        CRC32C crc = new CRC32C();
+        crc.update(frame, 8, bodyLength);
+        ByteBuffer.wrap(frame).putInt(0, bodyLength).putInt(4, (int) crc.getValue());
+        return frame;
+    }
+
+    // null — файл закончился ровно на границе кадра
+    static Frame readFrame(DataInputStream in) throws IOException {
+        int bodyLength;
+        try {
+            bodyLength = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+
+        int checksum = in.readInt();
+        if (bodyLength < Long.BYTES + 1 || bodyLength > MAX_FRAME) {
+            throw new CorruptFrameException("Некорректная длина кадра: " + bodyLength, 8L + bodyLength);
+        }
+        byte[] body = new byte[bodyLength];
+        in.readFully(body);
+
+        CRC32C crc = new CRC32C();
+        crc.update(body);
+        if ((int) crc.getValue() != checksum) {
+            throw new CorruptFrameException("Не сходится контрольная сумма кадра", 8L + bodyLength);
+        }
+
+        DataInputStream bodyIn = new DataInputStream(new ByteArrayInputStream(body));
+        long seq = bodyIn.readLong();
+        return new Frame(seq, Change.read(bodyIn), 8 + bodyLength);
+    }
+
+    private void open(long firstSeq) throws IOException {
+        current = segmentPath(firstSeq);
+        channel = FileChannel.open(current, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        channel.write(ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip());
+        channel.force(true);
+    }
+
+    /**
+     * Оборванная запись: кадр не дочитан до конца файла, испорченный кадр — последний в файле
+     * или после позиции одни нули (файл удлинился, а данные до диска не дошли).
+     */
+    private static boolean isTornTail(Path segment, long position, IOException e) throws IOException {
+        if (e instanceof EOFException) {
+            return true;
+        }
+
+        long size = Files.size(segment);
+        long frameSize = ((CorruptFrameException) e).size;
+        if (frameSize > 0 && position + frameSize >= size) {
+            return true;
+        }
+
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(segment))) {
+            in.skipNBytes(position);
+            int b;
+            while ((b = in.read()) >= 0) {
+                if (b != 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void truncate(Path segment, long position) throws IOException {
+        try (FileChannel file = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            if (file.size() > position) {
+                file.truncate(position);
+                file.force(true);
+            }
+        }
+    }
+
+    private static void readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new CorruptFrameException("Неизвестный формат сегмента журнала");
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            List<Path> segments = new ArrayList<>(files
+                    .filter(file -> file.getFileName().toString().matches("journal-\\d{20}\\.log"))
+                    .toList());
+            segments.sort(null);
+            return segments;
+        }
+    }
+
+    private Path segmentPath(long firstSeq) {
+        return dir.resolve(String.format("journal-%020d.log", firstSeq));
+    }
+
+    private static long firstSeq(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring("journal-".length(), name.length() - ".log".length()));
+    }
+}
@@ -0,0 +1,210 @@
+package ru.yandex.practicum.filmorate.dao.memory;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dao.*;
+import ru.yandex.practicum.filmorate.dao.mapper.Film.FilmDto;
+import ru.yandex.practicum.filmorate.dao.search.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.dao.search.FilmSuggestIndex;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Фильмы профиля memory. Те же проверки и те же обновления индексов, что в {@link InDbFilmStorage},
+ * но без БД: id выдаются подряд, поэтому страницы по курсору — перебор id после курсора.
+ */
+@Slf4j
+@Component
+@Profile("memory")
+@RequiredArgsConstructor
+public class MemoryFilmStorage implements FilmStorage {
+    private final MemoryStore store;
+    private final FilmValidator filmValidator;
+    private final ReferenceDictionary referenceDictionary;
+    private final FilmCache filmCache;
+    private final PopularityLeaderboard leaderboard;
+    private final FilmSearchIndex searchIndex;
+    private final FilmSuggestIndex suggestIndex;
+    private final ExistenceIndex existenceIndex;
+
+    @Override
+    public FilmDto create(Film film) {
+        log.info("Получен запрос на добавление фильма");
+
+        filmValidator.validateReleaseDate(film);
+        Mpa mpa = filmValidator.resolveMpa(film);
+        Set<Genre> genres = filmValidator.resolveGenres(film);
+
+        long id = store.nextFilmId();
+        store.putFilm(stored(id, film, mpa, genres), true);
+        indexCreated(id, film);
+
+        log.info("Фильм сохранен в памяти с id: {}", id);
+        return toDto(store.film(id));
+    }
+
+    @Override
+    public FilmDto update(Film newFilm) {
+        log.info("Получен запрос на изменение фильма с id: {}", newFilm.getId());
+
+        if (newFilm.getId() == null) {
+            throw new ValidationException("Id должен быть указан");
+        }
+
+        if (newFilm.getReleaseDate() != null) {
+            filmValidator.validateReleaseDate(newFilm);
+        }
+
+        Mpa mpa = filmValidator.resolveMpa(newFilm);
+        Set<Genre> genres = filmValidator.resolveGenres(newFilm);
+        Long id = newFilm.getId();
+
+        if (!store.putFilm(stored(id, newFilm, mpa, genres), false)) {
+            throw new NotFoundException("Фильм с id " + id + " не найден");
+        }
+
+        filmCache.invalidate(id);
+        searchIndex.index(id, newFilm.getName(), newFilm.getDescription());
+        suggestIndex.index(id, newFilm.getName());
+
+        log.info("Фильм с id {} успешно обновлен", id);
+        return toDto(store.film(id));
+    }
+
+    // Фильмы уже проверены через validate(Film): рейтинг и жанры — экземпляры из справочника
+    @Override
+    public List<Long> createBatch(List<Film> films) {
+        List<Long> ids = new ArrayList<>(films.size());
+        for (Film film : films) {
+            long id = store.nextFilmId();
+            store.putFilm(stored(id, film, film.getMpa(), film.getGenres()), true);
+            film.setId(id);
+            indexCreated(id, film);
+            ids.add(id);
+        }
+
+        log.info("Пакетно сохранено фильмов: {}", ids.size());
+        return ids;
+    }
+
+    @Override
+    public void validate(Film film) {
+        filmValidator.validate(film);
+    }
+
+    @Override
+    public Collection<FilmDto> findAll() {
+        List<FilmDto> films = new ArrayList<>();
+        streamAll(null, films::add);
+        return films;
+    }
+
+    @Override
+    public Collection<FilmDto> findPage(Long afterId, int limit) {
+        if (limit <= 0) {
+            throw new ValidationException("Размер страницы должен быть положительным числом");
+        }
+
+        int pageSize = Math.min(limit, InDbFilmStorage.MAX_PAGE_SIZE);
+        List<FilmDto> films = new ArrayList<>(pageSize);
+        long lastId = store.lastFilmId();
+        for (long id = afterId != null ? afterId + 1 : 1; id <= lastId && films.size() < pageSize; id++) {
+            StoredFilm film = store.film(id);
+            if (film != null) {
+                films.add(toDto(film));
+            }
+        }
+        return films;
+    }
+
+    @Override
+    public void streamAll(Long afterId, Consumer<FilmDto> consumer) {
+        long lastId = store.lastFilmId();
+        for (long id = afterId != null ? afterId + 1 : 1; id <= lastId; id++) {
+            StoredFilm film = store.film(id);
+            if (film != null) {
+                consumer.accept(toDto(film));
+            }
+        }
+    }
+
+    @Override
+    public FilmDto getFilmById(Long id) {
+        if (id == null) {
+            throw new ValidationException("Не указан айди фильма");
+        }
+
+        return filmCache.get(id, this::loadFilmById);
+    }
+
+    @Override
+    public List<FilmDto> getFilmsByIds(Collection<Long> ids) {
+        List<FilmDto> films = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            StoredFilm film = store.film(id);
+            if (film != null) {
+                films.add(toDto(film));
+            }
+        }
+        return films;
+    }
+
+    private FilmDto loadFilmById(Long id) {
+        StoredFilm film = store.film(id);
+        if (film == null) {
+            log.error("Фильм с id {} не найден", id);
+            throw new NotFoundException("Фильм с id " + id + " не найден");
+        }
+        return toDto(film);
+    }
+
+    private void indexCreated(long id, Film film) {
+        leaderboard.addFilm(id);
+        existenceIndex.filmCreated(id);
+        searchIndex.index(id, film.getName(), film.getDescription());
+        suggestIndex.index(id, film.getName());
+    }
+
+    private static StoredFilm stored(long id, Film film, Mpa mpa, Set<Genre> genres) {
+        int[] genreIds = genres == null ? new int[0] : genres.stream()
+                .mapToInt(Genre::getId)
+                .sorted()
+                .toArray();
+        return new StoredFilm(id, film.getName(), film.getDescription(), film.getReleaseDate(), film.getDuration(),
+                mpa != null ? mpa.getId() : 0, genreIds);
+    }
+
+    private FilmDto toDto(StoredFilm film) {
+        Set<Genre> genres = new LinkedHashSet<>();
+        for (int genreId : film.genreIds()) {
+            genres.add(referenceDictionary.genreForRow(genreId));
+        }
+
+        Set<Long> likes = new HashSet<>();
+        MemoryStore.Likes filmLikes = store.likes(film.id());
+        if (filmLikes != null) {
+            for (long userId : filmLikes.userIds()) {
+                likes.add(userId);
+            }
+        }
+
+        return FilmDto.builder()
+                .id(film.id())
+                .name(film.name())
+                .description(film.description())
+                .releaseDate(film.releaseDate())
+                .duration(film.duration())
+                .likes(likes)
+                .genres(genres)
+                .mpa(referenceDictionary.mpaForRow(film.mpaId()))
+                .build();
+    }
+}
@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.dao.memory;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dao.FriendshipStorage;
+
+@Component
+@Profile("memory")
+@RequiredArgsConstructor
+public class MemoryFriendshipStorage implements FriendshipStorage {
+    private final MemoryStore store;
+
+    @Override
+    public void addRequest(Long userId, Long friendId) {
+        store.addFriendRequest(userId, friendId);
+    }
+
+    @Override
+    public boolean deleteRequest(Long userId, Long friendId) {
+        return store.removeFriendRequest(userId, friendId);
+    }
+}
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.dao.memory;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dao.LikeStorage;
+import ru.yandex.practicum.filmorate.model.LikeCountMismatch;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Лайки профиля memory. Счетчик лайков — длина массива лайков фильма, отдельного поля, которое могло бы
+ * разойтись с лайками, нет, поэтому сверка всегда пуста.
+ */
+@Component
+@Profile("memory")
+@RequiredArgsConstructor
+public class MemoryLikeStorage implements LikeStorage {
+    private final MemoryStore store;
+
+    @Override
+    public LocalDateTime addLike(Long filmId, Long userId) {
+        return store.addLike(filmId, userId);
+    }
+
+    @Override
+    public Optional<LocalDateTime> deleteLike(Long filmId, Long userId) {
+        return store.removeLike(filmId, userId);
+    }
+
+    // Без рейтинга в памяти: один проход по фильмам с кучей из count лучших
+    @Override
+    public List<Long> findPopularIds(int count) {
+        PriorityQueue<long[]> top = new PriorityQueue<>(Comparator.<long[]>comparingLong(entry -> entry[1])
+                .thenComparing(entry -> -entry[0]));
+        store.forEachFilm((filmId, film) -> {
+            MemoryStore.Likes likes = store.likes(filmId);
+            top.add(new long[]{filmId, likes != null ? likes.count() : 0});
+            if (top.size() > count) {
+                top.poll();
+            }
+        });
+
+        List<Long> ids = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            ids.add(top.poll()[0]);
+        }
+        Collections.reverse(ids);
+        return ids;
+    }
+
+    @Override
+    public List<LikeCountMismatch> findLikeCountMismatches() {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public List<LikeCountMismatch> repairLikeCounts() {
+        return new ArrayList<>();
+    }
+}
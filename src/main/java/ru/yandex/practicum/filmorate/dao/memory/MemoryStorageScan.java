@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.dao.memory;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dao.StorageScan;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Обход данных профиля memory для построения индексов. Заявки в друзья хранятся без статуса:
+ * статус в приложении не меняется, все заявки отдаются как pending.
+ */
+@Component
+@Profile("memory")
+@RequiredArgsConstructor
+public class MemoryStorageScan implements StorageScan {
+    private final MemoryStore store;
+
+    @Override
+    public void films(Consumer<FilmRow> consumer) {
+        long lastId = store.lastFilmId();
+        for (long id = 1; id <= lastId; id++) {
+            StoredFilm film = store.film(id);
+            if (film != null) {
+                consumer.accept(row(film));
+            }
+        }
+    }
+
+    @Override
+    public Optional<FilmRow> film(long id) {
+        StoredFilm film = store.film(id);
+        return film != null ? Optional.of(row(film)) : Optional.empty();
+    }
+
+    @Override
+    public void likes(LocalDateTime since, Consumer<LikeRow> consumer) {
+        long sinceMillis = since != null ? MemoryStore.toMillis(since) : Long.MIN_VALUE;
+        store.forEachLikes((filmId, likes) -> {
+            for (int i = 0; i < likes.count(); i++) {
+                if (likes.likedAt()[i] > sinceMillis) {
+                    consumer.accept(new LikeRow(filmId, likes.userIds()[i], MemoryStore.toLocal(likes.likedAt()[i])));
+                }
+            }
+        });
+    }
+
+    @Override
+    public void friendships(Consumer<FriendshipRow> consumer) {
+        store.forEachFriendRequests((userId, friendIds) -> {
+            for (long friendId : friendIds) {
+                consumer.accept(new FriendshipRow(userId, friendId, "pending"));
+            }
+        });
+    }
+
+    @Override
+    public void userIds(LongConsumer consumer) {
+        store.forEachUser((id, user) -> consumer.accept(id));
+    }
+
+    @Override
+    public void filmIds(LongConsumer consumer) {
+        store.forEachFilm((id, film) -> consumer.accept(id));
+    }
+
+    @Override
+    public boolean userExists(long id) {
+        return store.user(id) != null;
+    }
+
+    @Override
+    public boolean filmExists(long id) {
+        return store.film(id) != null;
+    }
+
+    private FilmRow row(StoredFilm film) {
+        MemoryStore.Likes likes = store.likes(film.id());
+        return new FilmRow(film.id(), film.name(), film.description(), likes != null ? likes.count() : 0);
+    }
+}
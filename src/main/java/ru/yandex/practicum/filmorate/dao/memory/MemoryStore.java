@@ -0,0 +1,587 @@
+package ru.yandex.practicum.filmorate.dao.memory;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Хранилище профиля memory: фильмы, пользователи, лайки и заявки в друзья в словарях с ключом long.
+ * Изменение сначала дописывается в журнал, затем применяется в памяти; запись сериализована одним локом,
+ * чтение идет без него. При старте состояние собирается из последнего целого снимка и журнала после него.
+ * Внутри транзакции изменения копятся в ее буфере и видны только ей; перед коммитом они одним кадром
+ * уходят в журнал и применяются к общему состоянию, при откате просто отбрасываются.
+ */
+@Slf4j
+@Component
+@Profile("memory")
+public class MemoryStore {
+    private static final long[] EMPTY = new long[0];
+
+    private final Path dir;
+    private final ConcurrentLongMap<StoredFilm> films = new ConcurrentLongMap<>();
+    private final ConcurrentLongMap<Likes> likes = new ConcurrentLongMap<>();
+    private final ConcurrentLongMap<StoredUser> users = new ConcurrentLongMap<>();
+    private final ConcurrentLongMap<long[]> friendRequests = new ConcurrentLongMap<>();
+    private final Map<String, Long> emails = new ConcurrentHashMap<>();
+    private final Map<String, Long> logins = new ConcurrentHashMap<>();
+    private final AtomicLong lastFilmId = new AtomicLong();
+    private final AtomicLong lastUserId = new AtomicLong();
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Journal journal;
+    private long snapshotSeq;
+
+    // Пользователи, поставившие лайк, по возрастанию id и время каждого лайка в миллисекундах от эпохи
+    record Likes(long[] userIds, long[] likedAt) {
+        int count() {
+            return userIds.length;
+        }
+    }
+
+    public MemoryStore(@Value("${filmorate.memory.dir:./db/memory}") String dir,
+                       @Value("${filmorate.memory.journal.fsync-each-write:false}") boolean fsyncEachWrite) {
+        this.dir = Path.of(dir);
+        this.journal = new Journal(this.dir, fsyncEachWrite);
+    }
+
+    @PostConstruct
+    public void recover() throws IOException {
+        Files.createDirectories(dir);
+        long started = System.currentTimeMillis();
+
+        List<Long> snapshots = SnapshotFile.list(dir);
+        for (int i = snapshots.size() - 1; i >= 0 && snapshotSeq == 0; i--) {
+            try {
+                SnapshotFile.read(dir, snapshots.get(i), this::apply);
+                snapshotSeq = snapshots.get(i);
+            } catch (IOException e) {
+                log.error("Снимок {} не читается, пробуем предыдущий: {}", snapshots.get(i), e.getMessage());
+                clear();
+            }
+        }
+
+        int[] replayed = {0};
+        long lastSeq = journal.recover(snapshotSeq, change -> {
+            apply(change);
+            replayed[0]++;
+        });
+
+        // id не переиспользуются, пока приложение работает; после рестарта счет идет от наибольшего живого id
+        films.forEach((id, film) -> lastFilmId.accumulateAndGet(id, Math::max));
+        users.forEach((id, user) -> lastUserId.accumulateAndGet(id, Math::max));
+
+        log.info("Хранилище в памяти восстановлено за {} мс: снимок {}, записей журнала {}, последняя запись {}; "
+                        + "фильмов {}, пользователей {}", System.currentTimeMillis() - started, snapshotSeq,
+                replayed[0], lastSeq, films.size(), users.size());
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.memory.journal.sync-interval:PT1S}")
+    public void sync() {
+        writeLock.lock();
+        try {
+            journal.sync();
+        } catch (IOException e) {
+            log.error("Не удалось сбросить журнал на диск: {}", e.getMessage());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Снимок пишется без остановки записи: журнал переключается на новый сегмент, а состояние обходится
+     * параллельно с изменениями. Попавшие в снимок изменения после его seq повторятся при восстановлении,
+     * это безопасно — каждое изменение устанавливает значение по ключу.
+     */
+    @Scheduled(fixedDelayString = "${filmorate.memory.snapshot-interval:PT10M}",
+            initialDelayString = "${filmorate.memory.snapshot-interval:PT10M}")
+    public synchronized void snapshot() {
+        long seq;
+        writeLock.lock();
+        try {
+            seq = journal.lastSeq();
+            if (seq == snapshotSeq) {
+                return;
+            }
+            journal.rotate();
+        } catch (IOException e) {
+            log.error("Не удалось переключить сегмент журнала: {}", e.getMessage());
+            return;
+        } finally {
+            writeLock.unlock();
+        }
+
+        long started = System.currentTimeMillis();
+        try {
+            SnapshotFile.write(dir, seq, sink -> {
+                users.forEach((id, user) -> sink.accept(new Change.UserPut(user)));
+                films.forEach((id, film) -> sink.accept(new Change.FilmPut(film)));
+                likes.forEach((filmId, filmLikes) -> {
+                    for (int i = 0; i < filmLikes.count(); i++) {
+                        sink.accept(new Change.LikeAdd(filmId, filmLikes.userIds()[i], filmLikes.likedAt()[i]));
+                    }
+                });
+                friendRequests.forEach((userId, friendIds) -> {
+                    for (long friendId : friendIds) {
+                        sink.accept(new Change.FriendAdd(userId, friendId));
+                    }
+                });
+            });
+
+            // Предыдущий снимок и журнал после него остаются на случай, если новый окажется нечитаемым
+            long previous = snapshotSeq;
+            snapshotSeq = seq;
+            if (previous > 0) {
+                SnapshotFile.deleteBefore(dir, previous);
+                journal.deleteSegmentsBefore(previous + 1);
+            }
+            log.info("Снимок хранилища {} записан за {} мс", seq, System.currentTimeMillis() - started);
+        } catch (IOException e) {
+            log.error("Не удалось записать снимок хранилища {}: {}", seq, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        snapshot();
+        writeLock.lock();
+        try {
+            journal.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("films", films.size());
+        stats.put("users", users.size());
+        stats.put("lastSeq", journal.lastSeq());
+        stats.put("snapshotSeq", snapshotSeq);
+        return stats;
+    }
+
+    // Чтение
+
+    // Точечное чтение видит и незакоммиченные изменения текущей транзакции
+
+    StoredFilm film(long id) {
+        return film(id, pending());
+    }
+
+    StoredUser user(long id) {
+        return user(id, pending());
+    }
+
+    Likes likes(long filmId) {
+        return likes(filmId, pending());
+    }
+
+    long[] friendRequests(long userId) {
+        return friendRequests(userId, pending());
+    }
+
+    // Обход — только по зафиксированному состоянию: им пользуются пересборки индексов и сканы вне транзакций
+
+    void forEachFilm(ConcurrentLongMap.Visitor<StoredFilm> visitor) {
+        films.forEach(visitor);
+    }
+
+    void forEachUser(ConcurrentLongMap.Visitor<StoredUser> visitor) {
+        users.forEach(visitor);
+    }
+
+    void forEachLikes(ConcurrentLongMap.Visitor<Likes> visitor) {
+        likes.forEach(visitor);
+    }
+
+    void forEachFriendRequests(ConcurrentLongMap.Visitor<long[]> visitor) {
+        friendRequests.forEach(visitor);
+    }
+
+    // Запись
+
+    long lastFilmId() {
+        return lastFilmId.get();
+    }
+
+    long lastUserId() {
+        return lastUserId.get();
+    }
+
+    long nextFilmId() {
+        return lastFilmId.incrementAndGet();
+    }
+
+    long nextUserId() {
+        return lastUserId.incrementAndGet();
+    }
+
+    // false — фильма с таким id нет, для изменения существующего фильма
+    boolean putFilm(StoredFilm film, boolean create) {
+        writeLock.lock();
+        try {
+            if (!create && film(film.id()) == null) {
+                return false;
+            }
+            write(new Change.FilmPut(film));
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Email и логин уникальны: при совпадении — DuplicateKeyException с названием поля, как у ограничения в БД
+    boolean putUser(StoredUser user, boolean create) {
+        writeLock.lock();
+        try {
+            List<Change> pending = pending();
+            if (!create && user(user.id(), pending) == null) {
+                return false;
+            }
+            requireUnique(user, pending);
+            write(new Change.UserPut(user));
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    LocalDateTime addLike(long filmId, long userId) {
+        writeLock.lock();
+        try {
+            if (indexOf(likes(filmId), userId) >= 0) {
+                throw new DuplicateKeyException("Лайк фильму " + filmId + " от пользователя " + userId + " уже есть");
+            }
+            long likedAt = System.currentTimeMillis();
+            write(new Change.LikeAdd(filmId, userId, likedAt));
+            return toLocal(likedAt);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    Optional<LocalDateTime> removeLike(long filmId, long userId) {
+        writeLock.lock();
+        try {
+            Likes filmLikes = likes(filmId);
+            int index = indexOf(filmLikes, userId);
+            if (index < 0) {
+                return Optional.empty();
+            }
+            long likedAt = filmLikes.likedAt()[index];
+            write(new Change.LikeRemove(filmId, userId));
+            return Optional.of(toLocal(likedAt));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    void addFriendRequest(long userId, long friendId) {
+        writeLock.lock();
+        try {
+            if (Arrays.binarySearch(friendRequests(userId), friendId) >= 0) {
+                throw new DuplicateKeyException("Заявка " + userId + " -> " + friendId + " уже есть");
+            }
+            write(new Change.FriendAdd(userId, friendId));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    boolean removeFriendRequest(long userId, long friendId) {
+        writeLock.lock();
+        try {
+            if (Arrays.binarySearch(friendRequests(userId), friendId) < 0) {
+                return false;
+            }
+            write(new Change.FriendRemove(userId, friendId));
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    static LocalDateTime toLocal(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    // Вызывается под writeLock
+    private void write(Change change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            commit(List.of(change));
+            return;
+        }
+
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new Pending();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.changes.add(change);
+    }
+
+    // Журнал и общее состояние меняются только здесь: все изменения транзакции — одна запись журнала
+    private void commit(List<Change> changes) {
+        writeLock.lock();
+        try {
+            // Пока транзакция шла, email или логин мог занять пользователь из другой, уже закоммиченной
+            for (int i = 0; i < changes.size(); i++) {
+                if (changes.get(i) instanceof Change.UserPut put) {
+                    requireUnique(put.user(), changes.subList(0, i));
+                }
+            }
+            journal.append(changes.size() == 1 ? changes.getFirst() : new Change.Batch(List.copyOf(changes)));
+            changes.forEach(this::apply);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать изменение в журнал", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private List<Change> pending() {
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        return pending != null ? pending.changes : List.of();
+    }
+
+    /**
+     * Буфер изменений одной транзакции. Фиксируется перед коммитом, а не после: ошибка записи журнала
+     * или занятый за это время email откатывают транзакцию, а не всплывают после успешного коммита.
+     */
+    private final class Pending implements TransactionSynchronization {
+        private final List<Change> changes = new ArrayList<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            commit(changes);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(MemoryStore.this);
+        }
+    }
+
+    // Значения по ключу с учетом изменений транзакции поверх зафиксированного состояния
+
+    private StoredFilm film(long id, List<Change> changes) {
+        StoredFilm film = films.get(id);
+        for (Change change : changes) {
+            if (change instanceof Change.FilmPut put && put.film().id() == id) {
+                film = put.film();
+            } else if (change instanceof Change.FilmRemove remove && remove.filmId() == id) {
+                film = null;
+            }
+        }
+        return film;
+    }
+
+    private StoredUser user(long id, List<Change> changes) {
+        StoredUser user = users.get(id);
+        for (Change change : changes) {
+            if (change instanceof Change.UserPut put && put.user().id() == id) {
+                user = put.user();
+            } else if (change instanceof Change.UserRemove remove && remove.userId() == id) {
+                user = null;
+            }
+        }
+        return user;
+    }
+
+    private Likes likes(long filmId, List<Change> changes) {
+        Likes filmLikes = likes.get(filmId);
+        for (Change change : changes) {
+            if (change instanceof Change.LikeAdd add && add.filmId() == filmId) {
+                filmLikes = withLike(filmLikes, add);
+            } else if (change instanceof Change.LikeRemove remove && remove.filmId() == filmId) {
+                filmLikes = withoutLike(filmLikes, remove.userId());
+            } else if (change instanceof Change.FilmRemove remove && remove.filmId() == filmId) {
+                filmLikes = null;
+            }
+        }
+        return filmLikes;
+    }
+
+    private long[] friendRequests(long userId, List<Change> changes) {
+        long[] friendIds = friendRequests.get(userId);
+        if (friendIds == null) {
+            friendIds = EMPTY;
+        }
+        for (Change change : changes) {
+            if (change instanceof Change.FriendAdd add && add.userId() == userId) {
+                friendIds = insert(friendIds, add.friendId());
+            } else if (change instanceof Change.FriendRemove remove && remove.userId() == userId) {
+                friendIds = delete(friendIds, remove.friendId());
+            } else if (change instanceof Change.UserRemove remove && remove.userId() == userId) {
+                friendIds = EMPTY;
+            }
+        }
+        return friendIds;
+    }
+
+    private void apply(Change change) {
+        switch (change) {
+            case Change.Batch batch -> batch.changes().forEach(this::apply);
+            case Change.FilmPut put -> films.put(put.film().id(), put.film());
+            case Change.FilmRemove remove -> {
+                films.remove(remove.filmId());
+                likes.remove(remove.filmId());
+            }
+            case Change.UserPut put -> {
+                StoredUser previous = users.put(put.user().id(), put.user());
+                if (previous != null) {
+                    emails.remove(previous.email(), previous.id());
+                    logins.remove(previous.login(), previous.id());
+                }
+                emails.put(put.user().email(), put.user().id());
+                logins.put(put.user().login(), put.user().id());
+            }
+            case Change.UserRemove remove -> {
+                StoredUser previous = users.remove(remove.userId());
+                if (previous != null) {
+                    emails.remove(previous.email(), previous.id());
+                    logins.remove(previous.login(), previous.id());
+                }
+                friendRequests.remove(remove.userId());
+            }
+            case Change.LikeAdd add -> likes.put(add.filmId(), withLike(likes.get(add.filmId()), add));
+            case Change.LikeRemove remove -> {
+                Likes rest = withoutLike(likes.get(remove.filmId()), remove.userId());
+                if (rest != null) {
+                    likes.put(remove.filmId(), rest);
+                } else {
+                    likes.remove(remove.filmId());
+                }
+            }
+            case Change.FriendAdd add -> friendRequests.put(add.userId(),
+                    insert(friendRequests(add.userId(), List.of()), add.friendId()));
+            case Change.FriendRemove remove -> {
+                long[] rest = delete(friendRequests(remove.userId(), List.of()), remove.friendId());
+                if (rest.length > 0) {
+                    friendRequests.put(remove.userId(), rest);
+                } else {
+                    friendRequests.remove(remove.userId());
+                }
+            }
+        }
+    }
+
+    private void clear() {
+        films.clear();
+        likes.clear();
+        users.clear();
+        friendRequests.clear();
+        emails.clear();
+        logins.clear();
+    }
+
+    private void requireUnique(StoredUser user, List<Change> changes) {
+        requireUnique(owner(emails, user.email(), changes, StoredUser::email), user.id(), "EMAIL");
+        requireUnique(owner(logins, user.login(), changes, StoredUser::login), user.id(), "LOGIN");
+    }
+
+    private static void requireUnique(Long owner, long id, String field) {
+        if (owner != null && owner != id) {
+            throw new DuplicateKeyException("Нарушена уникальность поля " + field);
+        }
+    }
+
+    // id пользователя, у которого сейчас такой email или логин, с учетом изменений транзакции
+    private static Long owner(Map<String, Long> index, String value, List<Change> changes,
+                              Function<StoredUser, String> field) {
+        Long owner = index.get(value);
+        for (Change change : changes) {
+            if (change instanceof Change.UserPut put) {
+                if (value.equals(field.apply(put.user()))) {
+                    owner = put.user().id();
+                } else if (owner != null && owner == put.user().id()) {
+                    owner = null;
+                }
+            } else if (change instanceof Change.UserRemove remove && owner != null && owner == remove.userId()) {
+                owner = null;
+            }
+        }
+        return owner;
+    }
+
+    private static int indexOf(Likes filmLikes, long userId) {
+        return filmLikes != null ? Arrays.binarySearch(filmLikes.userIds(), userId) : -1;
+    }
+
+    private static Likes withLike(Likes filmLikes, Change.LikeAdd add) {
+        long[] userIds = filmLikes != null ? filmLikes.userIds() : EMPTY;
+        long[] likedAt = filmLikes != null ? filmLikes.likedAt() : EMPTY;
+
+        int position = Arrays.binarySearch(userIds, add.userId());
+        if (position >= 0) {
+            long[] times = likedAt.clone();
+            times[position] = add.likedAt();
+            return new Likes(userIds, times);
+        }
+
+        position = -position - 1;
+        return new Likes(insertAt(userIds, position, add.userId()), insertAt(likedAt, position, add.likedAt()));
+    }
+
+    // null — лайков не осталось
+    private static Likes withoutLike(Likes filmLikes, long userId) {
+        int position = indexOf(filmLikes, userId);
+        if (position < 0) {
+            return filmLikes;
+        }
+        if (filmLikes.count() == 1) {
+            return null;
+        }
+        return new Likes(deleteAt(filmLikes.userIds(), position), deleteAt(filmLikes.likedAt(), position));
+    }
+
+    private static long[] insert(long[] array, long value) {
+        int position = Arrays.binarySearch(array, value);
+        return position >= 0 ? array : insertAt(array, -position - 1, value);
+    }
+
+    private static long[] delete(long[] array, long value) {
+        int position = Arrays.binarySearch(array, value);
+        return position >= 0 ? deleteAt(array, position) : array;
+    }
+
+    private static long[] insertAt(long[] array, int position, long value) {
+        long[] result = new long[array.length + 1];
+        System.arraycopy(array, 0, result, 0, position);
+        result[position] = value;
+        System.arraycopy(array, position, result, position + 1, array.length - position);
+        return result;
+    }
+
+    private static long[] deleteAt(long[] array, int position) {
+        long[] result = new long[array.length - 1];
+        System.arraycopy(array, 0, result, 0, position);
+        System.arraycopy(array, position + 1, result, position, array.length - position - 1);
+        return result;
+    }
+}
@@ -0,0 +1,183 @@
+package ru.yandex.practicum.filmorate.dao.memory;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dao.ExistenceIndex;
+import ru.yandex.practicum.filmorate.dao.UserStorage;
+import ru.yandex.practicum.filmorate.dao.mapper.user.UserDto;
+import ru.yandex.practicum.filmorate.dao.mapper.user.UserDtoMapper;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Пользователи профиля memory. Проверки и тексты ошибок — как в InDbUserStorage,
+ * уникальность email и логина проверяет {@link MemoryStore}.
+ */
+@Slf4j
+@Component
+@Profile("memory")
+@RequiredArgsConstructor
+public class MemoryUserStorage implements UserStorage {
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private final MemoryStore store;
+    private final ExistenceIndex existenceIndex;
+
+    @Override
+    public Collection<UserDto> findAll() {
+        log.info("Получен запрос на получение всех пользователей");
+        List<UserDto> users = new ArrayList<>();
+        streamAll(null, users::add);
+        return users;
+    }
+
+    @Override
+    public Collection<UserDto> findPage(Long afterId, int limit) {
+        log.info("Получен запрос на страницу пользователей после id {}, размер {}", afterId, limit);
+        if (limit <= 0) {
+            throw new ValidationException("Размер страницы должен быть положительным числом");
+        }
+
+        int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+        List<UserDto> users = new ArrayList<>(pageSize);
+        long lastId = store.lastUserId();
+        for (long id = afterId != null ? afterId + 1 : 1; id <= lastId && users.size() < pageSize; id++) {
+            StoredUser user = store.user(id);
+            if (user != null) {
+                users.add(UserDtoMapper.mapToDto(toUser(user)));
+            }
+        }
+        return users;
+    }
+
+    @Override
+    public void streamAll(Long afterId, Consumer<UserDto> consumer) {
+        long lastId = store.lastUserId();
+        for (long id = afterId != null ? afterId + 1 : 1; id <= lastId; id++) {
+            StoredUser user = store.user(id);
+            if (user != null) {
+                consumer.accept(UserDtoMapper.mapToDto(toUser(user)));
+            }
+        }
+    }
+
+    @Override
+    public UserDto create(User user) {
+        log.info("Получен запрос на создание пользователя");
+
+        if (user.getLogin().contains(" ")) {
+            log.error("Логин содержит пробелы");
+            throw new ValidationException("Логин не должен содержать пробелы");
+        }
+
+        if (user.getName() == null || user.getName().isBlank()) {
+            user.setName(user.getLogin());
+        }
+
+        long id = store.nextUserId();
+        try {
+            store.putUser(stored(id, user), true);
+        } catch (DuplicateKeyException e) {
+            String errorMessage = e.getMessage().toUpperCase();
+            log.error("Ошибка дублирования данных: {}", errorMessage);
+
+            if (errorMessage.contains("EMAIL")) {
+                throw new ValidationException("Пользователь с таким email уже зарегистрирован");
+            }
+            throw new ValidationException("Логин уже занят другим пользователем");
+        }
+
+        user.setId(id);
+        existenceIndex.userCreated(id);
+        log.info("Пользователь сохранен в памяти с id: {}", id);
+
+        return UserDtoMapper.mapToDto(user);
+    }
+
+    @Override
+    public UserDto update(User newUser) {
+        log.info("Получен запрос на изменение пользователя");
+
+        if (newUser.getId() == null) {
+            log.error("Не указан айди пользователя");
+            throw new ValidationException("Id должен быть указан");
+        }
+
+        if (newUser.getLogin().contains(" ")) {
+            log.error("Логин содержит пробелы");
+            throw new ValidationException("Логин не должен содержать пробелы");
+        }
+
+        if (newUser.getName() == null || newUser.getName().isBlank()) {
+            newUser.setName(newUser.getLogin());
+        }
+
+        boolean updated;
+        try {
+            updated = store.putUser(stored(newUser.getId(), newUser), false);
+        } catch (DuplicateKeyException e) {
+            String errorMessage = e.getMessage().toUpperCase();
+            log.error("Ошибка дублирования данных при обновлении: {}", errorMessage);
+
+            if (errorMessage.contains("EMAIL")) {
+                throw new ValidationException("Этот email уже занят другим пользователем");
+            }
+            throw new ValidationException("Этот логин уже занят другим пользователем");
+        }
+
+        if (!updated) {
+            log.error("Пользователь с id {} не найден", newUser.getId());
+            throw new NotFoundException("Пользователь с id " + newUser.getId() + " не найден");
+        }
+
+        log.info("Пользователь с id {} успешно обновлен", newUser.getId());
+        return UserDtoMapper.mapToDto(newUser);
+    }
+
+    @Override
+    public UserDto getUsetById(Long id) {
+        log.info("Получен запрос на получение пользователя по id{}", id);
+        StoredUser user = id != null ? store.user(id) : null;
+        if (user == null) {
+            log.error("Пользователь с id {} не найден", id);
+            throw new NotFoundException("Пользователь с id " + id + " не существует");
+        }
+        return UserDtoMapper.mapToDto(toUser(user));
+    }
+
+    @Override
+    public List<User> getUsersByIds(Collection<Long> ids) {
+        List<User> users = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            StoredUser user = store.user(id);
+            if (user != null) {
+                users.add(toUser(user));
+            }
+        }
+        return users;
+    }
+
+    private static StoredUser stored(long id, User user) {
+        return new StoredUser(id, user.getEmail(), user.getLogin(), user.getName(), user.getBirthday());
+    }
+
+    private static User toUser(StoredUser user) {
+        return User.builder()
+                .id(user.id())
+                .email(user.email())
+                .login(user.login())
+                .name(user.name())
+                .birthday(user.birthday())
+                .friends(new HashSet<>())
+                .initiatedFriendships(new HashSet<>())
+                .incomingRequests(new HashSet<>())
+                .build();
+    }
+}
@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate.dao.memory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Снимок состояния: заголовок (magic, версия, seq последней учтенной записи журнала, число записей)
+ * и изменения в тех же кадрах с CRC32C, что и в журнале. Пишется во временный файл, число записей
+ * проставляется в заголовок последним, затем файл атомарно переименовывается в snapshot-<seq>.bin.
+ */
+final class SnapshotFile {
+    private static final int MAGIC = 0x464D534E;
+    private static final int VERSION = 1;
+    private static final int COUNT_OFFSET = 16;
+    private static final String PATTERN = "snapshot-\\d{20}\\.bin";
+
+    private SnapshotFile() {
+    }
+
+    static void write(Path dir, long seq, Consumer<Consumer<Change>> contents) throws IOException {
+        Path target = dir.resolve(String.format("snapshot-%020d.bin", seq));
+        Path tmp = dir.resolve(target.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(seq);
+            out.writeLong(-1);
+
+            long[] count = {0};
+            try {
+                contents.accept(change -> {
+                    try {
+                        out.write(Journal.encode(++count[0], change));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.flush();
+
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(count[0]).flip(), COUNT_OFFSET);
+            channel.force(true);
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // seq снимков по возрастанию
+    static List<Long> list(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.matches(PATTERN))
+                    .map(name -> Long.parseLong(name.substring("snapshot-".length(), name.length() - ".bin".length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    // Сначала снимок проверяется целиком, и только потом изменения отдаются потребителю
+    static void read(Path dir, long seq, Consumer<Change> consumer) throws IOException {
+        Path file = dir.resolve(String.format("snapshot-%020d.bin", seq));
+        scan(file, seq, null);
+        scan(file, seq, consumer);
+    }
+
+    // Удаляет снимки старше seq и недописанные временные файлы
+    static void deleteBefore(Path dir, long seq) throws IOException {
+        for (Long older : list(dir)) {
+            if (older < seq) {
+                Files.deleteIfExists(dir.resolve(String.format("snapshot-%020d.bin", older)));
+            }
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path tmp : files.filter(file -> file.getFileName().toString().endsWith(".bin.tmp")).toList()) {
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+
+    private static void scan(Path file, long seq, Consumer<Change> consumer) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != seq) {
+                throw new IOException("Неизвестный формат снимка " + file.getFileName());
+            }
+            long count = in.readLong();
+            if (count < 0) {
+                throw new IOException("Снимок " + file.getFileName() + " не дописан");
+            }
+
+            for (long i = 1; i <= count; i++) {
+                Journal.Frame frame = Journal.readFrame(in);
+                if (frame == null || frame.seq() != i) {
+                    throw new IOException("Снимок " + file.getFileName() + " обрезан на записи " + i);
+                }
+                if (consumer != null) {
+                    consumer.accept(frame.change());
+                }
+            }
+            if (in.read() != -1) {
+                throw new IOException("Лишние данные в конце снимка " + file.getFileName());
+            }
+        }
+    }
+}
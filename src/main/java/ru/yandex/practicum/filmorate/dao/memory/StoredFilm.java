@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.dao.memory;
+
+import java.time.LocalDate;
+
+// mpaId == 0 — рейтинг не указан; жанры — id по возрастанию
+record StoredFilm(long id, String name, String description, LocalDate releaseDate, int duration,
+                  int mpaId, int[] genreIds) {
+}
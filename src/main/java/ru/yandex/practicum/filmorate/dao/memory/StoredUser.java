@@ -0,0 +1,6 @@
+package ru.yandex.practicum.filmorate.dao.memory;
+
+import java.time.LocalDate;
+
+record StoredUser(long id, String email, String login, String name, LocalDate birthday) {
+}
@@ -0,0 +1,486 @@
+package ru.yandex.practicum.filmorate.dao.recommend;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dao.LongCounter;
+import ru.yandex.practicum.filmorate.dao.StorageScan;
+import ru.yandex.practicum.filmorate.dao.TransactionHooks;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Похожие фильмы по лайкам (item-item): косинусная мера между множествами лайкнувших пользователей,
+ * для каждого фильма хранятся top-K соседей в примитивных массивах.
+ * Закоммиченные лайки копятся в очереди и применяются пачкой в фоне, а не в потоке запроса: соседи фильма
+ * пересчитываются целиком один раз на пачку, оценка пары обновляется у фильмов, связанных с ним через пользователя.
+ * Тяжелый пересчет идет под локом чтения, под локом записи — только подмена массивов, поэтому similar и recommend
+ * не ждут пересчета. Число связанных фильмов на один лайк ограничено max-fan-out; остальные, как и соседи,
+ * вытесненные из чужого top-K, догоняет полная перестройка, которая идет в фоне через fork-join.
+ */
+@Slf4j
+@Component
+public class FilmSimilarityIndex {
+    private static final int TASK_THRESHOLD = 256;
+    private static final long[] EMPTY = new long[0];
+
+    private final StorageScan scan;
+    private final int neighbourCount;
+    private final int maxFanOut;
+
+    private final Queue<LikeChange> pending = new ConcurrentLinkedQueue<>();
+    // Единственный писатель состояния: применение пачки или подмена после перестройки
+    private final ReentrantLock writer = new ReentrantLock();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private State state = new State();
+    // Лайки, пришедшие во время перестройки: применяются к новому состоянию перед подменой
+    private List<LikeChange> changesDuringRebuild;
+
+    public FilmSimilarityIndex(StorageScan scan,
+                               @Value("${filmorate.recommendations.neighbours:20}") int neighbourCount,
+                               @Value("${filmorate.recommendations.max-fan-out:1000}") int maxFanOut) {
+        this.scan = scan;
+        this.neighbourCount = neighbourCount;
+        this.maxFanOut = maxFanOut;
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${filmorate.recommendations.rebuild-interval:PT30M}",
+            initialDelayString = "${filmorate.recommendations.rebuild-interval:PT30M}")
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long started = System.currentTimeMillis();
+        State fresh;
+        try {
+            fresh = load();
+            long[] filmIds = fresh.likers.keySet().stream().mapToLong(Long::longValue).toArray();
+            Neighbours[] computed = new Neighbours[filmIds.length];
+            ForkJoinPool.commonPool().invoke(new NeighboursTask(fresh, filmIds, computed, 0, filmIds.length));
+            for (int i = 0; i < filmIds.length; i++) {
+                fresh.neighbours.put(filmIds[i], computed[i]);
+            }
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changesDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.error("Не удалось перестроить рекомендации: {}", e.getMessage());
+            return;
+        }
+
+        writer.lock();
+        lock.writeLock().lock();
+        try {
+            install(fresh, computeNeighbours(fresh, updateLikes(fresh, changesDuringRebuild)));
+            changesDuringRebuild = null;
+            state = fresh;
+        } finally {
+            lock.writeLock().unlock();
+            writer.unlock();
+        }
+        log.info("Рекомендации перестроены за {} мс: фильмов {}, пользователей {}",
+                System.currentTimeMillis() - started, fresh.likers.size(), fresh.liked.size());
+    }
+
+    public void likeAdded(Long filmId, Long userId) {
+        TransactionHooks.afterCommit(() -> pending.add(new LikeChange(filmId, userId, true)));
+    }
+
+    public void likeRemoved(Long filmId, Long userId) {
+        TransactionHooks.afterCommit(() -> pending.add(new LikeChange(filmId, userId, false)));
+    }
+
+    // Лайк уже записан вне транзакции вызывающего (отложенная запись)
+    public void likeApplied(Long filmId, Long userId, boolean add) {
+        pending.add(new LikeChange(filmId, userId, add));
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.recommendations.apply-interval:PT1S}")
+    public void applyPending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        writer.lock();
+        try {
+            // Для пары фильм-пользователь важно только последнее действие
+            Map<LikeChange, LikeChange> batch = new LinkedHashMap<>();
+            for (LikeChange change = pending.poll(); change != null; change = pending.poll()) {
+                batch.remove(change.key());
+                batch.put(change.key(), change);
+            }
+            List<LikeChange> changes = new ArrayList<>(batch.values());
+
+            Map<Long, Set<Long>> affected;
+            lock.writeLock().lock();
+            try {
+                affected = updateLikes(state, changes);
+                if (changesDuringRebuild != null) {
+                    changesDuringRebuild.addAll(changes);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            // Другой писатель сейчас невозможен, поэтому считать можно под локом чтения
+            Map<Long, Neighbours> computed;
+            lock.readLock().lock();
+            try {
+                computed = computeNeighbours(state, affected);
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            lock.writeLock().lock();
+            try {
+                install(state, computed);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (RuntimeException e) {
+            log.error("Не удалось применить лайки к рекомендациям: {}", e.getMessage());
+        } finally {
+            writer.unlock();
+        }
+    }
+
+    public List<Long> similar(Long filmId, int limit) {
+        lock.readLock().lock();
+        try {
+            Neighbours neighbours = state.neighbours.get(filmId);
+            if (neighbours == null) {
+                return new ArrayList<>();
+            }
+
+            int size = Math.min(limit, neighbours.ids.length);
+            List<Long> ids = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                ids.add(neighbours.ids[i]);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Сумма похожестей с уже лайкнутыми фильмами, сами лайкнутые фильмы исключаются
+    public List<Long> recommend(Long userId, int limit) {
+        lock.readLock().lock();
+        try {
+            long[] liked = state.liked.getOrDefault(userId, EMPTY);
+            Map<Long, Double> scores = new HashMap<>();
+            for (long filmId : liked) {
+                Neighbours neighbours = state.neighbours.get(filmId);
+                if (neighbours == null) {
+                    continue;
+                }
+                for (int i = 0; i < neighbours.ids.length; i++) {
+                    if (Arrays.binarySearch(liked, neighbours.ids[i]) < 0) {
+                        scores.merge(neighbours.ids[i], (double) neighbours.scores[i], Double::sum);
+                    }
+                }
+            }
+
+            TopK top = new TopK(limit);
+            scores.forEach((filmId, score) -> top.offer(filmId, score.floatValue()));
+            List<Long> ids = new ArrayList<>(top.size);
+            for (int i = 0; i < top.size; i++) {
+                ids.add(top.ids[i]);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            return Map.of(
+                    "films", state.likers.size(),
+                    "users", state.liked.size(),
+                    "neighbours", neighbourCount
+            );
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Меняет множества лайков и возвращает для каждого фильма с изменившимися лайками фильмы, у которых
+     * меняется оценка пары с ним: фильмы того же пользователя (не больше maxFanOut) и прежние соседи.
+     */
+    private Map<Long, Set<Long>> updateLikes(State target, List<LikeChange> changes) {
+        Map<Long, Set<Long>> affected = new HashMap<>();
+        for (LikeChange change : changes) {
+            long filmId = change.filmId();
+            long userId = change.userId();
+            long[] users = target.likers.getOrDefault(filmId, EMPTY);
+            if (Arrays.binarySearch(users, userId) >= 0 == change.add()) {
+                continue;
+            }
+
+            Set<Long> others = affected.computeIfAbsent(filmId, id -> new HashSet<>());
+            long[] liked = target.liked.getOrDefault(userId, EMPTY);
+            for (int i = 0; i < Math.min(liked.length, maxFanOut); i++) {
+                others.add(liked[i]);
+            }
+            Neighbours previous = target.neighbours.get(filmId);
+            if (previous != null) {
+                for (long other : previous.ids) {
+                    others.add(other);
+                }
+            }
+
+            if (change.add()) {
+                target.likers.put(filmId, insert(users, userId));
+                target.liked.put(userId, insert(liked, filmId));
+            } else {
+                putOrRemove(target.likers, filmId, remove(users, userId));
+                putOrRemove(target.liked, userId, remove(liked, filmId));
+            }
+        }
+        affected.forEach((filmId, others) -> others.remove(filmId));
+        return affected;
+    }
+
+    // Только чтение состояния: соседи фильмов с изменившимися лайками целиком, у связанных — одна оценка
+    private Map<Long, Neighbours> computeNeighbours(State source, Map<Long, Set<Long>> affected) {
+        Map<Long, Neighbours> computed = new HashMap<>();
+        LongCounter coLikes = new LongCounter(64);
+        for (Long filmId : affected.keySet()) {
+            coLikes.clear();
+            computed.put(filmId, compute(source, filmId, coLikes));
+        }
+
+        affected.forEach((filmId, others) -> {
+            for (Long other : others) {
+                if (affected.containsKey(other)) {
+                    continue;
+                }
+                Neighbours neighbours = computed.getOrDefault(other, source.neighbours.get(other));
+                if (neighbours != null) {
+                    computed.put(other, neighbours.with(filmId, cosine(source, filmId, other), neighbourCount));
+                }
+            }
+        });
+        return computed;
+    }
+
+    private static void install(State target, Map<Long, Neighbours> computed) {
+        computed.forEach((filmId, neighbours) -> {
+            if (neighbours.ids.length > 0 || target.likers.containsKey(filmId)) {
+                target.neighbours.put(filmId, neighbours);
+            } else {
+                target.neighbours.remove(filmId);
+            }
+        });
+    }
+
+    private Neighbours compute(State source, long filmId, LongCounter coLikes) {
+        long[] users = source.likers.getOrDefault(filmId, EMPTY);
+        for (long userId : users) {
+            for (long other : source.liked.get(userId)) {
+                if (other != filmId) {
+                    coLikes.add(other, 1);
+                }
+            }
+        }
+
+        TopK top = new TopK(neighbourCount);
+        coLikes.forEach((other, common) -> top.offer(other,
+                (float) (common / Math.sqrt((double) users.length * source.likers.get(other).length))));
+        return new Neighbours(Arrays.copyOf(top.ids, top.size), Arrays.copyOf(top.scores, top.size));
+    }
+
+    private static float cosine(State source, long first, long second) {
+        long[] a = source.likers.getOrDefault(first, EMPTY);
+        long[] b = source.likers.getOrDefault(second, EMPTY);
+        if (a.length == 0 || b.length == 0) {
+            return 0;
+        }
+
+        int common = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                common++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (float) (common / Math.sqrt((double) a.length * b.length));
+    }
+
+    private State load() {
+        Map<Long, LongBuffer> likers = new HashMap<>();
+        Map<Long, LongBuffer> liked = new HashMap<>();
+        scan.likes(null, like -> {
+            long filmId = like.filmId();
+            long userId = like.userId();
+            likers.computeIfAbsent(filmId, key -> new LongBuffer()).add(userId);
+            liked.computeIfAbsent(userId, key -> new LongBuffer()).add(filmId);
+        });
+
+        State loaded = new State();
+        likers.forEach((filmId, users) -> loaded.likers.put(filmId, users.toSortedArray()));
+        liked.forEach((userId, films) -> loaded.liked.put(userId, films.toSortedArray()));
+        return loaded;
+    }
+
+    private static long[] insert(long[] array, long value) {
+        int position = -Arrays.binarySearch(array, value) - 1;
+        long[] result = new long[array.length + 1];
+        System.arraycopy(array, 0, result, 0, position);
+        result[position] = value;
+        System.arraycopy(array, position, result, position + 1, array.length - position);
+        return result;
+    }
+
+    private static long[] remove(long[] array, long value) {
+        int position = array != null ? Arrays.binarySearch(array, value) : -1;
+        if (position < 0) {
+            return array;
+        }
+        long[] result = new long[array.length - 1];
+        System.arraycopy(array, 0, result, 0, position);
+        System.arraycopy(array, position + 1, result, position, array.length - position - 1);
+        return result;
+    }
+
+    private static void putOrRemove(Map<Long, long[]> map, Long key, long[] value) {
+        if (value == null || value.length == 0) {
+            map.remove(key);
+        } else {
+            map.put(key, value);
+        }
+    }
+
+    private class NeighboursTask extends RecursiveAction {
+        private final State source;
+        private final long[] filmIds;
+        private final Neighbours[] result;
+        private final int from;
+        private final int to;
+
+        NeighboursTask(State source, long[] filmIds, Neighbours[] result, int from, int to) {
+            this.source = source;
+            this.filmIds = filmIds;
+            this.result = result;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > TASK_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new NeighboursTask(source, filmIds, result, from, middle),
+                        new NeighboursTask(source, filmIds, result, middle, to));
+                return;
+            }
+
+            LongCounter coLikes = new LongCounter(1024);
+            for (int i = from; i < to; i++) {
+                coLikes.clear();
+                result[i] = FilmSimilarityIndex.this.compute(source, filmIds[i], coLikes);
+            }
+        }
+    }
+
+    private static class State {
+        private final Map<Long, long[]> likers = new HashMap<>();
+        private final Map<Long, long[]> liked = new HashMap<>();
+        private final Map<Long, Neighbours> neighbours = new HashMap<>();
+    }
+
+    // Соседи по убыванию похожести, при равенстве — по возрастанию id
+    private record Neighbours(long[] ids, float[] scores) {
+        Neighbours with(long filmId, float score, int capacity) {
+            TopK top = new TopK(capacity);
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] != filmId) {
+                    top.offer(ids[i], scores[i]);
+                }
+            }
+            if (score > 0) {
+                top.offer(filmId, score);
+            }
+            return new Neighbours(Arrays.copyOf(top.ids, top.size), Arrays.copyOf(top.scores, top.size));
+        }
+    }
+
+    private static class TopK {
+        private final long[] ids;
+        private final float[] scores;
+        private int size;
+
+        TopK(int capacity) {
+            ids = new long[capacity];
+            scores = new float[capacity];
+        }
+
+        void offer(long id, float score) {
+            int position = size;
+            while (position > 0 && (scores[position - 1] < score
+                    || scores[position - 1] == score && ids[position - 1] > id)) {
+                position--;
+            }
+            if (position >= ids.length) {
+                return;
+            }
+
+            int tail = Math.min(size, ids.length - 1) - position;
+            System.arraycopy(ids, position, ids, position + 1, tail);
+            System.arraycopy(scores, position, scores, position + 1, tail);
+            ids[position] = id;
+            scores[position] = score;
+            size = Math.min(size + 1, ids.length);
+        }
+    }
+
+    private static class LongBuffer {
+        private long[] data = new long[4];
+        private int size;
+
+        void add(long value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+
+        long[] toSortedArray() {
+            long[] result = Arrays.copyOf(data, size);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+
+    private record LikeChange(Long filmId, Long userId, boolean add) {
+        LikeChange key() {
+            return new LikeChange(filmId, userId, true);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.dao.routing;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Единственный DataSource приложения в профиле read-replica: JdbcTemplate, менеджер транзакций
+ * и инициализация схемы работают через маршрутизацию, сами пулы бинами не являются.
+ */
+@Configuration
+@Profile("read-replica")
+public class ReadReplicaConfig {
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRouting routing) {
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(routing));
+    }
+}
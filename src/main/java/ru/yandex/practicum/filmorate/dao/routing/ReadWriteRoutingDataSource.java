@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.dao.routing;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.util.Map;
+
+/**
+ * Выбор пула при получении соединения. Оборачивается в LazyConnectionDataSourceProxy:
+ * соединение берется при первом запросе, когда признак readOnly транзакции уже выставлен.
+ */
+class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    private final ReplicaRouting routing;
+
+    ReadWriteRoutingDataSource(ReplicaRouting routing) {
+        this.routing = routing;
+        setTargetDataSources(Map.of(
+                ReplicaRouting.Route.READ, routing.readPool(),
+                ReplicaRouting.Route.WRITE, routing.writePool()));
+        setDefaultTargetDataSource(routing.writePool());
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return routing.route();
+    }
+}
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.dao.routing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.yandex.practicum.filmorate.controller.WriteRequests;
+
+import java.io.IOException;
+
+/**
+ * Границы запроса для read-your-writes. Клиент определяется заголовком X-User-Id, без него — адресом.
+ * Читающие POST (получение по списку id) клиента к основной БД не привязывают.
+ */
+@Component
+@Profile("read-replica")
+@RequiredArgsConstructor
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    private final ReplicaRouting routing;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String userId = request.getHeader("X-User-Id");
+        String client = userId != null ? "user:" + userId : "addr:" + request.getRemoteAddr();
+        boolean mutation = WriteRequests.isMutation(request);
+
+        routing.beginRequest(client, mutation);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            routing.endRequest(client, mutation);
+        }
+    }
+}
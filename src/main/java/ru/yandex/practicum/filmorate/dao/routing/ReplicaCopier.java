@@ -0,0 +1,163 @@
+package ru.yandex.practicum.filmorate.dao.routing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSetMetaData;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Локальная реплика для профиля read-replica. Потоковой репликации у H2 нет, поэтому копировщик
+ * раз в interval снимает таблицы основной БД в одной транзакции и переносит снятое в отдельную БД реплики
+ * не раньше чем через delay. Реплика отстает на настроенное время, и heartbeat видит это отставание
+ * так же, как у настоящей реплики. Каждый перенос — полная копия таблиц, поэтому копировщик годится только
+ * для небольших БД разработки и тестов; для настоящей реплики он выключается, а read.url указывает на нее.
+ */
+@Slf4j
+@Component
+@Profile("read-replica")
+public class ReplicaCopier {
+    private static final String TABLES_SQL = "SELECT table_name FROM information_schema.tables "
+            + "WHERE table_schema = 'PUBLIC' AND table_type = 'BASE TABLE'";
+
+    private final boolean enabled;
+    private final long delayMs;
+    private final JdbcTemplate primary;
+    private final TransactionTemplate primarySnapshot;
+    private final HikariDataSource replicaPool;
+    private final JdbcTemplate replica;
+    private final TransactionTemplate replicaTransactions;
+    private final Set<String> replicaTables = new HashSet<>();
+    private final Deque<Copy> pending = new ArrayDeque<>();
+
+    private record Table(String name, String insertSql, List<Object[]> rows) {
+    }
+
+    private record Copy(long capturedAt, List<Table> tables) {
+    }
+
+    public ReplicaCopier(ReplicaRouting routing,
+                         @Value("${filmorate.datasource.read.copier.enabled:false}") boolean enabled,
+                         @Value("${filmorate.datasource.read.url:${spring.datasource.url}}") String replicaUrl,
+                         @Value("${spring.datasource.username:sa}") String username,
+                         @Value("${spring.datasource.password:}") String password,
+                         @Value("${filmorate.datasource.read.copier.delay:PT0S}") Duration delay) {
+        this.enabled = enabled;
+        this.delayMs = delay.toMillis();
+        this.primary = new JdbcTemplate(routing.writePool());
+        this.primarySnapshot = new TransactionTemplate(new DataSourceTransactionManager(routing.writePool()));
+        primarySnapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        primarySnapshot.setReadOnly(true);
+
+        if (!enabled) {
+            this.replicaPool = null;
+            this.replica = null;
+            this.replicaTransactions = null;
+            return;
+        }
+        if (replicaUrl.equals(routing.writePool().getJdbcUrl())) {
+            throw new IllegalStateException("Копировщику реплики нужна отдельная БД: filmorate.datasource.read.url "
+                    + "совпадает с основной");
+        }
+
+        this.replicaPool = new HikariDataSource();
+        replicaPool.setPoolName("filmorate-replica-copier");
+        replicaPool.setJdbcUrl(replicaUrl);
+        replicaPool.setUsername(username);
+        replicaPool.setPassword(password);
+        replicaPool.setMaximumPoolSize(2);
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql"),
+                new ClassPathResource("read-replica-schema.sql")).execute(replicaPool);
+
+        this.replica = new JdbcTemplate(replicaPool);
+        this.replicaTransactions = new TransactionTemplate(new DataSourceTransactionManager(replicaPool));
+        replicaTables.addAll(replica.queryForList(TABLES_SQL, String.class));
+        log.info("Копировщик переносит основную БД в {} с задержкой {} мс", replicaUrl, delayMs);
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.datasource.read.copier.interval:PT1S}")
+    public synchronized void replicate() {
+        if (!enabled) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        pending.addLast(new Copy(now, capture()));
+
+        // Из созревших снимков переносится только самый свежий, остальные он все равно перекроет
+        Copy due = null;
+        while (!pending.isEmpty() && pending.peekFirst().capturedAt() <= now - delayMs) {
+            due = pending.pollFirst();
+        }
+        if (due != null) {
+            apply(due);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (replicaPool != null) {
+            replicaPool.close();
+        }
+    }
+
+    private List<Table> capture() {
+        return primarySnapshot.execute(status -> {
+            List<Table> tables = new ArrayList<>();
+            for (String name : primary.queryForList(TABLES_SQL, String.class)) {
+                if (!replicaTables.contains(name)) {
+                    continue;
+                }
+
+                List<String> columns = new ArrayList<>();
+                List<Object[]> rows = new ArrayList<>();
+                primary.query("SELECT * FROM " + name, rs -> {
+                    ResultSetMetaData meta = rs.getMetaData();
+                    if (columns.isEmpty()) {
+                        for (int i = 1; i <= meta.getColumnCount(); i++) {
+                            columns.add(meta.getColumnName(i));
+                        }
+                    }
+                    Object[] row = new Object[meta.getColumnCount()];
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] = rs.getObject(i + 1);
+                    }
+                    rows.add(row);
+                });
+                tables.add(new Table(name, "INSERT INTO " + name + " (" + String.join(", ", columns) + ") VALUES ("
+                        + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")", rows));
+            }
+            return tables;
+        });
+    }
+
+    // Таблицы заменяются целиком в одной транзакции: читатели реплики видят либо старую копию, либо новую.
+    // Внешние ключи реплики отключены на время переноса — в реплику пишет только копировщик
+    private void apply(Copy copy) {
+        replica.execute("SET REFERENTIAL_INTEGRITY FALSE");
+        try {
+            replicaTransactions.executeWithoutResult(status -> {
+                for (Table table : copy.tables()) {
+                    replica.update("DELETE FROM " + table.name());
+                    if (!table.rows().isEmpty()) {
+                        replica.batchUpdate(table.insertSql(), table.rows());
+                    }
+                }
+            });
+        } finally {
+            replica.execute("SET REFERENTIAL_INTEGRITY TRUE");
+        }
+    }
+}
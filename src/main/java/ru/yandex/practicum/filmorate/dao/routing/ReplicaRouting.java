@@ -0,0 +1,192 @@
+package ru.yandex.practicum.filmorate.dao.routing;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Два пула соединений: основной для записи и пул чтения, который может смотреть на реплику.
+ * В пул чтения уходят только транзакции readOnly, и только пока реплика не отстает больше max-lag.
+ * Read-your-writes: запрос, который сам пишет, и следующие запросы того же клиента в течение
+ * измеренной задержки реплики (не меньше min-stickiness) читают из основного пула.
+ * Задержка измеряется heartbeat-записью в основную БД и ее чтением из реплики;
+ * таблица heartbeat создается скриптом read-replica-schema.sql.
+ */
+@Slf4j
+@Component
+@Profile("read-replica")
+public class ReplicaRouting {
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = ThreadLocal.withInitial(() -> false);
+
+    private final HikariDataSource writePool;
+    private final HikariDataSource readPool;
+    private final JdbcTemplate writeJdbc;
+    private final JdbcTemplate readJdbc;
+    private final boolean readYourWrites;
+    private final long minStickinessMs;
+    private final long maxLagMs;
+    private final Cache<String, Long> recentWriters;
+
+    private final AtomicLong readRouted = new AtomicLong();
+    private final AtomicLong writeRouted = new AtomicLong();
+    private final AtomicLong pinnedToPrimary = new AtomicLong();
+    private volatile long lagMs;
+    private volatile boolean replicaAvailable = true;
+
+    public ReplicaRouting(@Value("${spring.datasource.url}") String writeUrl,
+                          @Value("${filmorate.datasource.read.url:${spring.datasource.url}}") String readUrl,
+                          @Value("${spring.datasource.username:sa}") String username,
+                          @Value("${spring.datasource.password:}") String password,
+                          @Value("${filmorate.datasource.write.pool-size:10}") int writePoolSize,
+                          @Value("${filmorate.datasource.read.pool-size:20}") int readPoolSize,
+                          @Value("${filmorate.datasource.read-your-writes.enabled:true}") boolean readYourWrites,
+                          @Value("${filmorate.datasource.read-your-writes.min-stickiness:PT1S}") Duration minStickiness,
+                          @Value("${filmorate.datasource.read.max-lag:PT5S}") Duration maxLag) {
+        this.writePool = pool("filmorate-write", writeUrl, username, password, writePoolSize, false);
+        this.readPool = pool("filmorate-read", readUrl, username, password, readPoolSize, true);
+        new ResourceDatabasePopulator(new ClassPathResource("read-replica-schema.sql")).execute(writePool);
+        this.writeJdbc = new JdbcTemplate(writePool);
+        this.readJdbc = new JdbcTemplate(readPool);
+        this.readYourWrites = readYourWrites;
+        this.minStickinessMs = minStickiness.toMillis();
+        this.maxLagMs = maxLag.toMillis();
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(maxLag.plus(minStickiness))
+                .maximumSize(100_000)
+                .build();
+        log.info("Чтение readOnly-транзакций направляется в {}, запись — в {}", readUrl, writeUrl);
+    }
+
+    HikariDataSource writePool() {
+        return writePool;
+    }
+
+    HikariDataSource readPool() {
+        return readPool;
+    }
+
+    // Ключ маршрутизации для текущего получения соединения
+    Route route() {
+        boolean read = TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && !PRIMARY_REQUIRED.get()
+                && replicaAvailable;
+        (read ? readRouted : writeRouted).incrementAndGet();
+        return read ? Route.READ : Route.WRITE;
+    }
+
+    /**
+     * Начало HTTP-запроса: изменяющий запрос и недавно писавший клиент читают из основной БД.
+     */
+    public void beginRequest(String client, boolean mutation) {
+        if (!readYourWrites) {
+            return;
+        }
+
+        Long lastWrite = recentWriters.getIfPresent(client);
+        boolean pinned = mutation || lastWrite != null && System.currentTimeMillis() - lastWrite <= stickinessMs();
+        if (pinned && !mutation) {
+            pinnedToPrimary.incrementAndGet();
+        }
+        PRIMARY_REQUIRED.set(pinned);
+    }
+
+    public void endRequest(String client, boolean mutation) {
+        PRIMARY_REQUIRED.remove();
+        if (readYourWrites && mutation) {
+            recentWriters.put(client, System.currentTimeMillis());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.datasource.read.heartbeat-interval:PT1S}")
+    public void heartbeat() {
+        Timestamp beat = new Timestamp(System.currentTimeMillis());
+        try {
+            writeJdbc.update("MERGE INTO replication_heartbeat (id, beat_at) KEY (id) VALUES (1, ?)", beat);
+            List<Timestamp> seen = readJdbc.queryForList("SELECT beat_at FROM replication_heartbeat WHERE id = 1",
+                    Timestamp.class);
+
+            lagMs = seen.isEmpty() ? maxLagMs + 1 : Math.max(0, beat.getTime() - seen.getFirst().getTime());
+            boolean available = lagMs <= maxLagMs;
+            if (available != replicaAvailable) {
+                log.warn(available ? "Реплика догнала основную БД, задержка {} мс"
+                        : "Реплика отстает на {} мс, чтение переведено на основную БД", lagMs);
+            }
+            replicaAvailable = available;
+        } catch (DataAccessException e) {
+            if (replicaAvailable) {
+                log.error("Реплика недоступна, чтение переведено на основную БД: {}", e.getMessage());
+            }
+            replicaAvailable = false;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("write", poolStats(writePool, writeRouted.get()));
+        stats.put("read", poolStats(readPool, readRouted.get()));
+        stats.put("replicaAvailable", replicaAvailable);
+        stats.put("replicationLagMs", lagMs);
+        stats.put("pinnedToPrimary", pinnedToPrimary.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void close() {
+        readPool.close();
+        writePool.close();
+    }
+
+    // Задержка реплики с запасом в два heartbeat, но не меньше настроенного минимума
+    private long stickinessMs() {
+        return Math.max(minStickinessMs, 2 * lagMs);
+    }
+
+    private static Map<String, Object> poolStats(HikariDataSource pool, long routed) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("url", pool.getJdbcUrl());
+        stats.put("maxSize", pool.getMaximumPoolSize());
+        stats.put("routedConnections", routed);
+        HikariPoolMXBean bean = pool.getHikariPoolMXBean();
+        if (bean != null) {
+            stats.put("active", bean.getActiveConnections());
+            stats.put("idle", bean.getIdleConnections());
+            stats.put("waiting", bean.getThreadsAwaitingConnection());
+        }
+        return stats;
+    }
+
+    private static HikariDataSource pool(String name, String url, String username, String password,
+                                         int size, boolean readOnly) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName(name);
+        pool.setJdbcUrl(url);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        pool.setMaximumPoolSize(size);
+        pool.setReadOnly(readOnly);
+        return pool;
+    }
+
+    enum Route {
+        READ, WRITE
+    }
+}
@@ -0,0 +1,165 @@
+package ru.yandex.practicum.filmorate.dao.search;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dao.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.dao.StorageScan;
+import ru.yandex.practicum.filmorate.dao.TransactionHooks;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Инвертированный индекс по названию и описанию фильмов с ранжированием BM25.
+ * Слова из названия весят вдвое больше слов из описания, при равном score выше фильм с большим числом лайков.
+ * Строится при старте и обновляется из FilmStorage при создании и изменении фильмов.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FilmSearchIndex {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int NAME_WEIGHT = 2;
+
+    private final StorageScan scan;
+    private final PopularityLeaderboard leaderboard;
+
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long totalLength;
+
+    @PostConstruct
+    public void build() {
+        scan.films(film -> put(film.id(), film.name(), film.description()));
+        log.info("Поисковый индекс построен: фильмов {}, термов {}", documents.size(), postings.size());
+    }
+
+    public void index(Long filmId, String name, String description) {
+        put(filmId, name, description);
+        TransactionHooks.afterRollback(() -> reindexFromStorage(filmId));
+    }
+
+    public List<Long> search(String query, int limit) {
+        Set<String> terms = new LinkedHashSet<>(TextNormalizer.tokenize(query));
+        if (terms.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Long, Double> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            int docs = documents.size();
+            double avgLength = docs > 0 ? (double) totalLength / docs : 0;
+
+            for (String term : terms) {
+                PostingList list = postings.get(term);
+                if (list == null) {
+                    continue;
+                }
+
+                double idf = Math.log(1 + (docs - list.docCount() + 0.5) / (list.docCount() + 0.5));
+                list.forEach((docId, tf) -> {
+                    double norm = K1 * (1 - B + B * documents.get(docId).length() / avgLength);
+                    scores.merge(docId, idf * tf * (K1 + 1) / (tf + norm), Double::sum);
+                });
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Map<Long, Long> likes = new HashMap<>();
+        Comparator<Map.Entry<Long, Double>> ranking = Comparator
+                .comparing((Map.Entry<Long, Double> entry) -> entry.getValue())
+                .thenComparing(entry -> likes.computeIfAbsent(entry.getKey(), leaderboard::likes))
+                .thenComparing(Map.Entry::getKey, Comparator.reverseOrder());
+
+        // Минимальная куча на limit элементов: в худшем случае O(n log limit) по найденным фильмам
+        PriorityQueue<Map.Entry<Long, Double>> top = new PriorityQueue<>(ranking);
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            top.add(entry);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        List<Long> ids = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            ids.add(top.poll().getKey());
+        }
+        Collections.reverse(ids);
+        return ids;
+    }
+
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            long bytes = postings.values().stream().mapToLong(PostingList::sizeInBytes).sum();
+            return Map.of(
+                    "films", documents.size(),
+                    "terms", postings.size(),
+                    "postingBytes", bytes
+            );
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void reindexFromStorage(Long filmId) {
+        Optional<StorageScan.FilmRow> film = scan.film(filmId);
+        if (film.isEmpty()) {
+            remove(filmId);
+        } else {
+            put(filmId, film.get().name(), film.get().description());
+        }
+    }
+
+    private void put(Long filmId, String name, String description) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        TextNormalizer.tokenize(name).forEach(term -> frequencies.merge(term, NAME_WEIGHT, Integer::sum));
+        TextNormalizer.tokenize(description).forEach(term -> frequencies.merge(term, 1, Integer::sum));
+        int length = frequencies.values().stream().mapToInt(Integer::intValue).sum();
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(filmId);
+            frequencies.forEach((term, tf) -> postings.computeIfAbsent(term, key -> new PostingList()).add(filmId, tf));
+            documents.put(filmId, new Document(frequencies.keySet().toArray(new String[0]), length));
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(Long filmId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(Long filmId) {
+        Document previous = documents.remove(filmId);
+        if (previous == null) {
+            return;
+        }
+
+        totalLength -= previous.length();
+        for (String term : previous.terms()) {
+            PostingList list = postings.get(term);
+            list.remove(filmId);
+            if (list.docCount() == 0) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    private record Document(String[] terms, int length) {
+    }
+}
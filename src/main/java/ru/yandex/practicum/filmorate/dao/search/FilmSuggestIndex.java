@@ -0,0 +1,360 @@
+package ru.yandex.practicum.filmorate.dao.search;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dao.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.dao.StorageScan;
+import ru.yandex.practicum.filmorate.dao.TransactionHooks;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Автодополнение по началу названия фильма: сжатое префиксное дерево нормализованных названий.
+ * Каждый узел хранит top-k фильмов поддерева по лайкам, поэтому ответ — спуск по префиксу без обхода поддерева.
+ * При изменении фильма или его лайков top-k пересчитывается только на пути от корня до узла фильма.
+ * Полная перестройка идет в фоне на отдельной копии дерева и подменяет корень под коротким локом.
+ */
+@Slf4j
+@Component
+public class FilmSuggestIndex {
+    private final StorageScan scan;
+    private final PopularityLeaderboard leaderboard;
+    private final int topK;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Trie trie;
+    // Фильмы, измененные во время перестройки: после подмены корня их применяем к новому дереву повторно
+    private Set<Long> touchedDuringRebuild;
+
+    public FilmSuggestIndex(StorageScan scan,
+                            PopularityLeaderboard leaderboard,
+                            @Value("${filmorate.suggest.top-k:10}") int topK) {
+        this.scan = scan;
+        this.leaderboard = leaderboard;
+        this.topK = topK;
+        this.trie = new Trie();
+    }
+
+    public int maxLimit() {
+        return topK;
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${filmorate.suggest.rebuild-interval:PT10M}",
+            initialDelayString = "${filmorate.suggest.rebuild-interval:PT10M}")
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            touchedDuringRebuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Trie fresh = new Trie();
+        try {
+            scan.films(film -> fresh.put(film.id(), film.name()));
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                touchedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.error("Не удалось перестроить индекс автодополнения: {}", e.getMessage());
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (Long filmId : touchedDuringRebuild) {
+                String name = trie.names.get(filmId);
+                if (name != null) {
+                    fresh.put(filmId, name);
+                } else {
+                    fresh.remove(filmId);
+                }
+            }
+            touchedDuringRebuild = null;
+            trie = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Индекс автодополнения перестроен: фильмов {}", fresh.names.size());
+    }
+
+    public void index(Long filmId, String name) {
+        write(filmId, () -> trie.put(filmId, name));
+        TransactionHooks.afterRollback(() -> reindexFromStorage(filmId));
+    }
+
+    public void likesChanged(Long filmId) {
+        write(filmId, () -> trie.refresh(filmId));
+        TransactionHooks.afterRollback(() -> write(filmId, () -> trie.refresh(filmId)));
+    }
+
+    // Лайки уже применены вне транзакции (отложенная запись), компенсация при откате не нужна
+    public void likesAdjusted(Long filmId) {
+        write(filmId, () -> trie.refresh(filmId));
+    }
+
+    public List<Long> suggest(String prefix, int limit) {
+        String key = TextNormalizer.normalize(prefix);
+
+        lock.readLock().lock();
+        try {
+            Node node = trie.find(key);
+            if (node == null) {
+                return new ArrayList<>();
+            }
+
+            int size = Math.min(limit, node.topSize);
+            List<Long> ids = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                ids.add(node.topIds[i]);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void reindexFromStorage(Long filmId) {
+        Optional<StorageScan.FilmRow> film = scan.film(filmId);
+        write(filmId, () -> {
+            if (film.isEmpty()) {
+                trie.remove(filmId);
+            } else {
+                trie.put(filmId, film.get().name());
+            }
+        });
+    }
+
+    private void write(Long filmId, Runnable change) {
+        lock.writeLock().lock();
+        try {
+            change.run();
+            if (touchedDuringRebuild != null) {
+                touchedDuringRebuild.add(filmId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private class Trie {
+        private final Node root = new Node("");
+        // Исходные названия: по ним находим узел фильма при переименовании и изменении лайков
+        private final Map<Long, String> names = new HashMap<>();
+
+        void put(Long filmId, String name) {
+            String previous = names.get(filmId);
+            if (previous != null) {
+                if (TextNormalizer.normalize(previous).equals(TextNormalizer.normalize(name))) {
+                    names.put(filmId, name);
+                    refresh(filmId);
+                    return;
+                }
+                remove(filmId);
+            }
+            names.put(filmId, name);
+
+            String key = TextNormalizer.normalize(name);
+            List<Node> path = new ArrayList<>();
+            path.add(root);
+            Node node = root;
+            int position = 0;
+
+            while (position < key.length()) {
+                char first = key.charAt(position);
+                Node child = node.children.get(first);
+                if (child == null) {
+                    child = new Node(key.substring(position));
+                    node.children.put(first, child);
+                    node = child;
+                    path.add(node);
+                    break;
+                }
+
+                int common = commonPrefix(child.label, key, position);
+                if (common < child.label.length()) {
+                    // Разрезаем ребро: общий префикс уходит в новый промежуточный узел
+                    Node middle = new Node(child.label.substring(0, common));
+                    child.label = child.label.substring(common);
+                    middle.children.put(child.label.charAt(0), child);
+                    node.children.put(first, middle);
+                    child = middle;
+                }
+
+                position += common;
+                node = child;
+                path.add(node);
+            }
+
+            node.films = append(node.films, filmId);
+            recompute(path);
+        }
+
+        void remove(Long filmId) {
+            String name = names.remove(filmId);
+            if (name == null) {
+                return;
+            }
+
+            List<Node> path = path(TextNormalizer.normalize(name));
+            if (path == null) {
+                return;
+            }
+
+            Node node = path.getLast();
+            node.films = without(node.films, filmId);
+
+            // Пустые листья удаляем, чтобы дерево не росло от переименований
+            for (int i = path.size() - 1; i > 0; i--) {
+                Node current = path.get(i);
+                if (current.films.length > 0 || !current.children.isEmpty()) {
+                    break;
+                }
+                path.get(i - 1).children.remove(current.label.charAt(0));
+                path.remove(i);
+            }
+            recompute(path);
+        }
+
+        void refresh(Long filmId) {
+            String name = names.get(filmId);
+            if (name == null) {
+                return;
+            }
+
+            List<Node> path = path(TextNormalizer.normalize(name));
+            if (path != null) {
+                recompute(path);
+            }
+        }
+
+        // Узел, в поддереве которого все названия начинаются с prefix
+        Node find(String prefix) {
+            Node node = root;
+            int position = 0;
+
+            while (position < prefix.length()) {
+                Node child = node.children.get(prefix.charAt(position));
+                if (child == null) {
+                    return null;
+                }
+
+                int common = commonPrefix(child.label, prefix, position);
+                if (position + common == prefix.length()) {
+                    return child;
+                }
+                if (common < child.label.length()) {
+                    return null;
+                }
+                position += common;
+                node = child;
+            }
+            return node;
+        }
+
+        private List<Node> path(String key) {
+            List<Node> path = new ArrayList<>();
+            path.add(root);
+            Node node = root;
+            int position = 0;
+
+            while (position < key.length()) {
+                Node child = node.children.get(key.charAt(position));
+                if (child == null || !key.startsWith(child.label, position)) {
+                    return null;
+                }
+                position += child.label.length();
+                node = child;
+                path.add(node);
+            }
+            return path;
+        }
+
+        // top-k узла = лучшие из собственных фильмов и top-k детей, поэтому достаточно пересчитать путь снизу вверх
+        private void recompute(List<Node> path) {
+            for (int i = path.size() - 1; i >= 0; i--) {
+                Node node = path.get(i);
+
+                int candidates = node.films.length;
+                for (Node child : node.children.values()) {
+                    candidates += child.topSize;
+                }
+
+                long[] ids = new long[candidates];
+                long[] likes = new long[candidates];
+                int size = 0;
+                for (long filmId : node.films) {
+                    ids[size] = filmId;
+                    likes[size++] = leaderboard.likes(filmId);
+                }
+                for (Node child : node.children.values()) {
+                    System.arraycopy(child.topIds, 0, ids, size, child.topSize);
+                    System.arraycopy(child.topLikes, 0, likes, size, child.topSize);
+                    size += child.topSize;
+                }
+
+                Integer[] order = new Integer[size];
+                for (int j = 0; j < size; j++) {
+                    order[j] = j;
+                }
+                Arrays.sort(order, Comparator.<Integer>comparingLong(j -> likes[j]).reversed()
+                        .thenComparingLong(j -> ids[j]));
+
+                int top = Math.min(topK, size);
+                node.topIds = new long[top];
+                node.topLikes = new long[top];
+                for (int j = 0; j < top; j++) {
+                    node.topIds[j] = ids[order[j]];
+                    node.topLikes[j] = likes[order[j]];
+                }
+                node.topSize = top;
+            }
+        }
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static long[] append(long[] array, long value) {
+        for (long existing : array) {
+            if (existing == value) {
+                return array;
+            }
+        }
+        long[] result = Arrays.copyOf(array, array.length + 1);
+        result[array.length] = value;
+        return result;
+    }
+
+    private static long[] without(long[] array, long value) {
+        return Arrays.stream(array).filter(existing -> existing != value).toArray();
+    }
+
+    private static class Node {
+        private String label;
+        private final Map<Character, Node> children = new HashMap<>(4);
+        private long[] films = new long[0];
+        private long[] topIds = new long[0];
+        private long[] topLikes = new long[0];
+        private int topSize;
+
+        Node(String label) {
+            this.label = label;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate.dao.search;
+
+import java.util.Arrays;
+
+/**
+ * Список вхождений терма: пары (id фильма, частота), отсортированные по id и сжатые
+ * дельта-кодированием в varint. Новые фильмы приходят с растущими id и дописываются в конец,
+ * удаление и вставка в середину перекодируют список целиком.
+ */
+class PostingList {
+    private byte[] data = new byte[16];
+    private int length;
+    private int docCount;
+    private long lastDocId;
+
+    interface Visitor {
+        void visit(long docId, int termFrequency);
+    }
+
+    int docCount() {
+        return docCount;
+    }
+
+    int sizeInBytes() {
+        return length;
+    }
+
+    void add(long docId, int termFrequency) {
+        if (docCount > 0 && docId <= lastDocId) {
+            rewrite(docId, termFrequency);
+            return;
+        }
+        append(docId, termFrequency);
+    }
+
+    void remove(long docId) {
+        rewrite(docId, 0);
+    }
+
+    void forEach(Visitor visitor) {
+        int position = 0;
+        long docId = 0;
+
+        while (position < length) {
+            long delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                delta |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+
+            int termFrequency = 0;
+            shift = 0;
+            do {
+                b = data[position++];
+                termFrequency |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+
+            docId += delta;
+            visitor.visit(docId, termFrequency);
+        }
+    }
+
+    // Заменяет вхождение docId (или удаляет при termFrequency == 0), сохраняя порядок по id
+    private void rewrite(long docId, int termFrequency) {
+        long[] docIds = new long[docCount + 1];
+        int[] frequencies = new int[docCount + 1];
+        int[] count = {0};
+        boolean[] placed = {termFrequency == 0};
+
+        forEach((id, tf) -> {
+            if (!placed[0] && docId < id) {
+                docIds[count[0]] = docId;
+                frequencies[count[0]++] = termFrequency;
+                placed[0] = true;
+            }
+            if (id != docId) {
+                docIds[count[0]] = id;
+                frequencies[count[0]++] = tf;
+            }
+        });
+        if (!placed[0]) {
+            docIds[count[0]] = docId;
+            frequencies[count[0]++] = termFrequency;
+        }
+
+        length = 0;
+        docCount = 0;
+        lastDocId = 0;
+        for (int i = 0; i < count[0]; i++) {
+            append(docIds[i], frequencies[i]);
+        }
+    }
+
+    private void append(long docId, int termFrequency) {
+        ensureCapacity(length + 15);
+        writeVarLong(docId - lastDocId);
+        writeVarLong(termFrequency);
+        lastDocId = docId;
+        docCount++;
+    }
+
+    private void writeVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            data[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[length++] = (byte) value;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > data.length) {
+            data = Arrays.copyOf(data, Math.max(required, data.length * 2));
+        }
+    }
+}
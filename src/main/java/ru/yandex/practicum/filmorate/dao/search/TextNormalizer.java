@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.dao.search;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Нормализация текста для поиска: нижний регистр, ё -> е, без знаков ударения,
+ * разбиение на слова по всему, что не буква и не цифра (кириллица и латиница одинаково).
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class TextNormalizer {
+    // Только ударения: краткая у й и две точки у ё убирать нельзя, иначе й станет и
+    private static final Pattern STRESS_MARKS = Pattern.compile("[\\u0300\\u0301]");
+
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+
+        String withoutStress = STRESS_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return Normalizer.normalize(withoutStress, Normalizer.Form.NFC)
+                .toLowerCase(Locale.ROOT)
+                .replace('ё', 'е');
+    }
+
+    public static List<String> tokenize(String text) {
+        String normalized = normalize(text);
+        List<String> tokens = new ArrayList<>();
+
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
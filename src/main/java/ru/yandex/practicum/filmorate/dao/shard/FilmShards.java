@@ -0,0 +1,150 @@
+package ru.yandex.practicum.filmorate.dao.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.dao.FilmDataSources;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Шарды таблиц film, film_genres и likes: отдельные БД H2, фильм попадает в шард по хешу id.
+ * Пользователи, дружба и справочники остаются в основной БД.
+ * Источники данных создаются здесь, а не бинами, чтобы основной DataSource по-прежнему настраивался Spring Boot.
+ */
+@Slf4j
+@Component
+@Profile("sharded")
+public class FilmShards implements FilmDataSources {
+    private final List<HikariDataSource> dataSources = new ArrayList<>();
+    private final List<JdbcTemplate> templates = new ArrayList<>();
+    private final List<TransactionTemplate> transactions = new ArrayList<>();
+    private final ExecutorService executor;
+
+    public FilmShards(@Value("${filmorate.shards.urls}") String[] urls,
+                      @Value("${spring.datasource.username:sa}") String username,
+                      @Value("${spring.datasource.password:}") String password) {
+        if (urls.length == 0) {
+            throw new IllegalStateException("Профиль sharded требует хотя бы один адрес в filmorate.shards.urls");
+        }
+
+        ResourceDatabasePopulator schema = new ResourceDatabasePopulator(new ClassPathResource("shard-schema.sql"));
+        for (int shard = 0; shard < urls.length; shard++) {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("film-shard-" + shard);
+            dataSource.setJdbcUrl(urls[shard].trim());
+            dataSource.setUsername(username);
+            dataSource.setPassword(password);
+            schema.execute(dataSource);
+
+            dataSources.add(dataSource);
+            templates.add(new JdbcTemplate(dataSource));
+            transactions.add(new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+        }
+        this.executor = Executors.newFixedThreadPool(urls.length, runnable -> {
+            Thread thread = new Thread(runnable, "film-shard-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("Фильмы распределены по {} шардам", urls.length);
+    }
+
+    @Override
+    public List<JdbcTemplate> all() {
+        return templates;
+    }
+
+    // Перемешивание id (финализатор MurmurHash3): подряд идущие id расходятся по шардам равномерно.
+    // Функцию нельзя менять без переноса данных — по ней ищутся уже записанные фильмы
+    @Override
+    public int shardOf(long filmId) {
+        long hash = filmId;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (int) Math.floorMod(hash, (long) templates.size());
+    }
+
+    @Override
+    public TransactionTemplate transactions(int shard) {
+        return transactions.get(shard);
+    }
+
+    public int size() {
+        return templates.size();
+    }
+
+    /**
+     * Один и тот же запрос параллельно во все шарды, результаты — в порядке номеров шардов.
+     */
+    public <T> List<T> scatter(Function<JdbcTemplate, T> query) {
+        return scatter(IntStream.range(0, templates.size()).boxed().toList(),
+                shard -> query.apply(templates.get(shard)));
+    }
+
+    /**
+     * Запросы в перечисленные шарды параллельно, результаты — в порядке списка шардов.
+     */
+    public <T> List<T> scatter(List<Integer> shards, IntFunction<T> query) {
+        if (shards.size() == 1) {
+            return List.of(query.apply(shards.getFirst()));
+        }
+
+        List<CompletableFuture<T>> futures = shards.stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> query.apply(shard), executor))
+                .toList();
+
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            futures.forEach(future -> results.add(future.join()));
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    /**
+     * Запись в несколько шардов: транзакции вложены друг в друга и фиксируются, только когда работа
+     * прошла во всех шардах, поэтому ошибка в любом из них откатывает все. Это не двухфазный коммит:
+     * сбой на самой фиксации может оставить записанной часть шардов.
+     */
+    public void inTransactions(List<Integer> shards, IntConsumer work) {
+        if (shards.isEmpty()) {
+            return;
+        }
+
+        int shard = shards.getFirst();
+        transactions(shard).executeWithoutResult(status -> {
+            work.accept(shard);
+            inTransactions(shards.subList(1, shards.size()), work);
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdown();
+        dataSources.forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.dao.shard;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Слияние уже упорядоченных ответов шардов: куча из голов списков, O(limit * log N) для N шардов.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+class ShardMerge {
+
+    static <T> List<T> merge(List<List<T>> parts, Comparator<? super T> order, int limit) {
+        // Голова списка — пара (номер части, позиция в ней)
+        PriorityQueue<int[]> heads = new PriorityQueue<>((first, second) ->
+                order.compare(parts.get(first[0]).get(first[1]), parts.get(second[0]).get(second[1])));
+        for (int part = 0; part < parts.size(); part++) {
+            if (!parts.get(part).isEmpty()) {
+                heads.add(new int[]{part, 0});
+            }
+        }
+
+        List<T> merged = new ArrayList<>(limit);
+        while (merged.size() < limit && !heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<T> part = parts.get(head[0]);
+            merged.add(part.get(head[1]));
+            if (head[1] + 1 < part.size()) {
+                heads.add(new int[]{head[0], head[1] + 1});
+            }
+        }
+        return merged;
+    }
+}
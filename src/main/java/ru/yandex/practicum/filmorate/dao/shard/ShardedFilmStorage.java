@@ -0,0 +1,311 @@
+package ru.yandex.practicum.filmorate.dao.shard;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dao.ExistenceIndex;
+import ru.yandex.practicum.filmorate.dao.FilmCache;
+import ru.yandex.practicum.filmorate.dao.FilmHydrator;
+import ru.yandex.practicum.filmorate.dao.FilmStorage;
+import ru.yandex.practicum.filmorate.dao.FilmValidator;
+import ru.yandex.practicum.filmorate.dao.InDbFilmStorage;
+import ru.yandex.practicum.filmorate.dao.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.dao.mapper.Film.FilmDto;
+import ru.yandex.practicum.filmorate.dao.mapper.Film.FilmMapper;
+import ru.yandex.practicum.filmorate.dao.search.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.dao.search.FilmSuggestIndex;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Фильмы в нескольких БД: шард фильма, его жанров и лайков определяется по id, id выдает {@link FilmIdAllocator}.
+ * Чтение по id идет только в нужные шарды, постраничный обход — параллельно во все с k-way слиянием по id.
+ */
+@Slf4j
+@Component
+@Profile("sharded")
+@RequiredArgsConstructor
+public class ShardedFilmStorage implements FilmStorage {
+    private static final int CHUNK_SIZE = 500;
+    private static final String INSERT_SQL = "INSERT INTO film (id, name, description, releaseDate, duration, " +
+            "rating_id) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String GENRES_SQL = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
+
+    private final FilmShards shards;
+    private final FilmIdAllocator idAllocator;
+    private final FilmMapper mapper;
+    private final FilmHydrator hydrator;
+    private final FilmValidator filmValidator;
+    private final FilmCache filmCache;
+    private final PopularityLeaderboard leaderboard;
+    private final FilmSearchIndex searchIndex;
+    private final FilmSuggestIndex suggestIndex;
+    private final ExistenceIndex existenceIndex;
+
+    @Override
+    public FilmDto create(Film film) {
+        log.info("Получен запрос на добавление фильма");
+
+        filmValidator.validateReleaseDate(film);
+        Mpa mpa = filmValidator.resolveMpa(film);
+        Set<Genre> genres = filmValidator.resolveGenres(film);
+        Long id = idAllocator.next();
+        int shard = shards.shardOf(id);
+
+        try {
+            shards.transactions(shard).executeWithoutResult(status -> {
+                JdbcTemplate jdbc = shards.all().get(shard);
+                jdbc.update(INSERT_SQL, id, film.getName(), film.getDescription(), film.getReleaseDate(),
+                        film.getDuration(), mpa != null ? mpa.getId() : null);
+                insertGenres(jdbc, id, genres);
+            });
+        } catch (DataAccessException e) {
+            log.error("КРИТИЧЕСКАЯ ОШИБКА: ", e);
+            throw new RuntimeException("Детали ошибки: " + e.getMostSpecificCause().getMessage());
+        }
+
+        indexCreated(id, film);
+        log.info("Фильм сохранен в шард {} с id: {}", shard, id);
+        return buildDto(film, id, mpa, genres, new HashSet<>());
+    }
+
+    @Override
+    public FilmDto update(Film newFilm) {
+        log.info("Получен запрос на изменение фильма с id: {}", newFilm.getId());
+
+        if (newFilm.getId() == null) {
+            throw new ValidationException("Id должен быть указан");
+        }
+
+        if (newFilm.getReleaseDate() != null) {
+            filmValidator.validateReleaseDate(newFilm);
+        }
+
+        Mpa mpa = filmValidator.resolveMpa(newFilm);
+        Set<Genre> genres = filmValidator.resolveGenres(newFilm);
+        Long id = newFilm.getId();
+        int shard = shards.shardOf(id);
+
+        try {
+            Set<Long> likes = shards.transactions(shard).execute(status -> {
+                JdbcTemplate jdbc = shards.all().get(shard);
+                int rowsAffected = jdbc.update("UPDATE film SET name = ?, description = ?, releaseDate = ?, " +
+                                "duration = ?, rating_id = ? WHERE id = ?",
+                        newFilm.getName(), newFilm.getDescription(), newFilm.getReleaseDate(),
+                        newFilm.getDuration(), mpa != null ? mpa.getId() : null, id);
+                if (rowsAffected == 0) {
+                    throw new NotFoundException("Фильм с id " + id + " не найден");
+                }
+
+                jdbc.update("DELETE FROM film_genres WHERE film_id = ?", id);
+                insertGenres(jdbc, id, genres);
+                return new HashSet<>(jdbc.queryForList("SELECT user_id FROM likes WHERE film_id = ?", Long.class, id));
+            });
+
+            filmCache.invalidate(id);
+            searchIndex.index(id, newFilm.getName(), newFilm.getDescription());
+            suggestIndex.index(id, newFilm.getName());
+            log.info("Фильм с id {} успешно обновлен", id);
+            return buildDto(newFilm, id, mpa, genres, likes);
+
+        } catch (DataAccessException e) {
+            log.error("Ошибка при работе с БД при обновлении id {}: {}", newFilm.getId(), e.getMessage());
+            throw new RuntimeException("Ошибка при обновлении фильма в базе данных", e);
+        }
+    }
+
+    /**
+     * Пакет делится по шардам; вставка во все шарды фиксируется вместе (см. {@link FilmShards#inTransactions}),
+     * поэтому при ошибке пачка откатывается целиком, как и в одной БД.
+     */
+    @Override
+    public List<Long> createBatch(List<Film> films) {
+        if (films.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Long> ids = idAllocator.next(films.size());
+        Map<Integer, List<Integer>> byShard = new TreeMap<>();
+        for (int i = 0; i < films.size(); i++) {
+            byShard.computeIfAbsent(shards.shardOf(ids.get(i)), key -> new ArrayList<>()).add(i);
+        }
+
+        shards.inTransactions(new ArrayList<>(byShard.keySet()), shard -> {
+            List<Object[]> filmArgs = new ArrayList<>();
+            List<Object[]> genreArgs = new ArrayList<>();
+            for (int i : byShard.get(shard)) {
+                Film film = films.get(i);
+                Long id = ids.get(i);
+                filmArgs.add(new Object[]{id, film.getName(), film.getDescription(), film.getReleaseDate(),
+                        film.getDuration(), film.getMpa() != null ? film.getMpa().getId() : null});
+                film.getGenres().forEach(genre -> genreArgs.add(new Object[]{id, genre.getId()}));
+            }
+
+            JdbcTemplate jdbc = shards.all().get(shard);
+            jdbc.batchUpdate(INSERT_SQL, filmArgs);
+            if (!genreArgs.isEmpty()) {
+                jdbc.batchUpdate(GENRES_SQL, genreArgs);
+            }
+        });
+
+        for (int i = 0; i < films.size(); i++) {
+            films.get(i).setId(ids.get(i));
+            indexCreated(ids.get(i), films.get(i));
+        }
+        log.info("Пакетно сохранено фильмов: {} в {} шардов", ids.size(), byShard.size());
+        return ids;
+    }
+
+    @Override
+    public void validate(Film film) {
+        filmValidator.validate(film);
+    }
+
+    @Override
+    public Collection<FilmDto> findAll() {
+        List<FilmDto> films = new ArrayList<>();
+        streamAll(null, films::add);
+        return films;
+    }
+
+    @Override
+    public Collection<FilmDto> findPage(Long afterId, int limit) {
+        if (limit <= 0) {
+            throw new ValidationException("Размер страницы должен быть положительным числом");
+        }
+
+        return loadPage(afterId, Math.min(limit, InDbFilmStorage.MAX_PAGE_SIZE));
+    }
+
+    @Override
+    public void streamAll(Long afterId, Consumer<FilmDto> consumer) {
+        Long cursor = afterId;
+
+        while (true) {
+            List<FilmDto> chunk = loadPage(cursor, CHUNK_SIZE);
+            if (chunk.isEmpty()) {
+                return;
+            }
+
+            chunk.forEach(consumer);
+            cursor = chunk.getLast().getId();
+        }
+    }
+
+    @Override
+    public FilmDto getFilmById(Long id) {
+        if (id == null) {
+            throw new ValidationException("Не указан айди фильма");
+        }
+
+        return filmCache.get(id, this::loadFilmById);
+    }
+
+    @Override
+    public List<FilmDto> getFilmsByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Integer, List<Long>> byShard = new TreeMap<>();
+        ids.forEach(id -> byShard.computeIfAbsent(shards.shardOf(id), key -> new ArrayList<>()).add(id));
+
+        try {
+            Map<Long, FilmDto> byId = new HashMap<>();
+            List<Integer> targets = new ArrayList<>(byShard.keySet());
+            shards.scatter(targets, shard -> hydrator.hydrate(shards.all().get(shard),
+                            selectByIds(shards.all().get(shard), byShard.get(shard))))
+                    .forEach(part -> part.forEach(film -> byId.put(film.getId(), film)));
+
+            return ids.stream()
+                    .map(byId::get)
+                    .filter(Objects::nonNull)
+                    .toList();
+
+        } catch (DataAccessException e) {
+            log.error("Ошибка при получении фильмов по списку id: {}", e.getMessage());
+            throw new RuntimeException("Ошибка работы с базой данных", e);
+        }
+    }
+
+    private FilmDto loadFilmById(Long id) {
+        List<FilmDto> films = getFilmsByIds(List.of(id));
+
+        if (films.isEmpty()) {
+            log.error("Фильм с id {} не найден в БД", id);
+            throw new NotFoundException("Фильм с id " + id + " не найден");
+        }
+
+        return films.getFirst();
+    }
+
+    // Каждый шард отдает до limit строк после курсора, слияние по id берет общие первые limit,
+    // жанры и лайки подтягиваются уже только для них
+    private List<FilmDto> loadPage(Long afterId, int limit) {
+        long cursor = afterId != null ? afterId : 0L;
+        try {
+            List<List<Film>> parts = shards.scatter(jdbc -> jdbc.query(
+                    "SELECT f.* FROM film f WHERE f.id > ? ORDER BY f.id LIMIT ?", mapper, cursor, limit));
+            List<Film> page = ShardMerge.merge(parts, Comparator.comparing(Film::getId), limit);
+            if (page.isEmpty()) {
+                return new ArrayList<>();
+            }
+
+            Map<Integer, List<Film>> byShard = new TreeMap<>();
+            page.forEach(film -> byShard.computeIfAbsent(shards.shardOf(film.getId()), key -> new ArrayList<>())
+                    .add(film));
+            List<Integer> targets = new ArrayList<>(byShard.keySet());
+            Map<Long, FilmDto> byId = new HashMap<>();
+            shards.scatter(targets, shard -> hydrator.hydrate(shards.all().get(shard), byShard.get(shard)))
+                    .forEach(part -> part.forEach(film -> byId.put(film.getId(), film)));
+
+            return page.stream().map(film -> byId.get(film.getId())).toList();
+
+        } catch (DataAccessException e) {
+            log.error("КРИТИЧЕСКАЯ ОШИБКА: ", e);
+            throw new RuntimeException("Детали ошибки: " + e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    private List<Film> selectByIds(JdbcTemplate jdbc, List<Long> ids) {
+        String sql = "SELECT f.* FROM film f WHERE f.id IN (" +
+                String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+        return jdbc.query(sql, mapper, ids.toArray());
+    }
+
+    private void insertGenres(JdbcTemplate jdbc, Long filmId, Set<Genre> genres) {
+        if (!genres.isEmpty()) {
+            jdbc.batchUpdate(GENRES_SQL, genres.stream().map(genre -> new Object[]{filmId, genre.getId()}).toList());
+        }
+    }
+
+    // Вызывается после коммита транзакций шардов: до него фильм не виден другим запросам
+    private void indexCreated(Long id, Film film) {
+        leaderboard.addFilm(id);
+        existenceIndex.filmCreated(id);
+        searchIndex.index(id, film.getName(), film.getDescription());
+        suggestIndex.index(id, film.getName());
+    }
+
+    private FilmDto buildDto(Film film, Long id, Mpa mpa, Set<Genre> genres, Set<Long> likes) {
+        return FilmDto.builder()
+                .id(id)
+                .name(film.getName())
+                .description(film.getDescription())
+                .releaseDate(film.getReleaseDate())
+                .duration(film.getDuration())
+                .likes(likes)
+                .genres(genres)
+                .mpa(mpa)
+                .build();
+    }
+}
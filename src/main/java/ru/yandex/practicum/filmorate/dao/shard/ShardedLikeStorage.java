@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.dao.shard;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dao.InDbLikeStorage;
+import ru.yandex.practicum.filmorate.dao.LikeStorage;
+import ru.yandex.practicum.filmorate.model.LikeCountMismatch;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Лайки в шарде своего фильма. Запросы одного шарда — те же, что в основной БД ({@link InDbLikeStorage}),
+ * здесь они оборачиваются в транзакцию шарда, а рейтинг популярности собирается слиянием top-N всех шардов.
+ */
+@Slf4j
+@Component
+@Profile("sharded")
+public class ShardedLikeStorage implements LikeStorage {
+    private static final Comparator<Ranked> BY_LIKES = Comparator.comparingLong(Ranked::likes).reversed()
+            .thenComparingLong(Ranked::filmId);
+
+    private final FilmShards shards;
+    private final List<InDbLikeStorage> storages;
+
+    public ShardedLikeStorage(FilmShards shards) {
+        this.shards = shards;
+        this.storages = shards.all().stream().map(InDbLikeStorage::new).toList();
+    }
+
+    @Override
+    public LocalDateTime addLike(Long filmId, Long userId) {
+        int shard = shards.shardOf(filmId);
+        return shards.transactions(shard).execute(status -> storages.get(shard).addLike(filmId, userId));
+    }
+
+    @Override
+    public Optional<LocalDateTime> deleteLike(Long filmId, Long userId) {
+        int shard = shards.shardOf(filmId);
+        return shards.transactions(shard).execute(status -> storages.get(shard).deleteLike(filmId, userId));
+    }
+
+    // Общий top-N обязательно входит в объединение top-N каждого шарда: каждый шард отдает N лучших, слияние — N общих
+    @Override
+    public List<Long> findPopularIds(int count) {
+        List<List<Ranked>> parts = shards.scatter(jdbc -> jdbc.query(
+                "SELECT id, like_count FROM film ORDER BY like_count DESC, id LIMIT ?",
+                (rs, rowNum) -> new Ranked(rs.getLong("id"), rs.getLong("like_count")), count));
+
+        return ShardMerge.merge(parts, BY_LIKES, count).stream()
+                .map(Ranked::filmId)
+                .toList();
+    }
+
+    @Override
+    public List<LikeCountMismatch> findLikeCountMismatches() {
+        List<LikeCountMismatch> mismatches = new ArrayList<>();
+        storages.forEach(storage -> mismatches.addAll(storage.findLikeCountMismatches()));
+        return mismatches;
+    }
+
+    @Override
+    public List<LikeCountMismatch> repairLikeCounts() {
+        List<LikeCountMismatch> repaired = new ArrayList<>();
+        for (int shard = 0; shard < storages.size(); shard++) {
+            InDbLikeStorage storage = storages.get(shard);
+            repaired.addAll(shards.transactions(shard).execute(status -> storage.repairLikeCounts()));
+        }
+        return repaired;
+    }
+
+    private record Ranked(long filmId, long likes) {
+    }
+}
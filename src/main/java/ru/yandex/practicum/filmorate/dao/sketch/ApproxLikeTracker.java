@@ -0,0 +1,138 @@
+package ru.yandex.practicum.filmorate.dao.sketch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dao.TrendingIndex;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.util.*;
+
+/**
+ * Приближенный учет лайков за короткое окно в фиксированной памяти: окно делится на слайсы,
+ * в каждом — Count-Min Sketch для оценки частот и Space-Saving для кандидатов в top-K.
+ * Ответ — кандидаты всех живых слайсов, упорядоченные по сумме оценок CMS,
+ * с границей ошибки epsilon * N, которая выполняется с вероятностью не ниже 1 - delta.
+ * Оценка складывается из всех слайсов, и ошибиться может любой из них, поэтому каждый слайс строится
+ * с вероятностью ошибки delta / slices: по неравенству Буля вместе они ошибаются не чаще чем в delta.
+ */
+@Slf4j
+@Component
+public class ApproxLikeTracker {
+    private final boolean enabled;
+    private final String windowName;
+    private final long sliceMillis;
+    private final double epsilon;
+    private final double delta;
+    private final Slice[] slices;
+
+    public record Estimate(long filmId, long likes) {
+    }
+
+    public record Result(List<Estimate> films, String window, long totalLikes, long maxError, double confidence) {
+    }
+
+    public ApproxLikeTracker(@Value("${filmorate.trending.approx.enabled:false}") boolean enabled,
+                             @Value("${filmorate.trending.approx.window:1h}") String windowName,
+                             @Value("${filmorate.trending.approx.slices:6}") int sliceCount,
+                             @Value("${filmorate.trending.approx.epsilon:0.001}") double epsilon,
+                             @Value("${filmorate.trending.approx.delta:0.01}") double delta,
+                             @Value("${filmorate.trending.approx.top-k:100}") int topK) {
+        this.enabled = enabled;
+        this.windowName = windowName;
+        this.sliceMillis = TrendingIndex.parseMinutes(windowName) * 60_000 / sliceCount;
+        this.epsilon = epsilon;
+        this.delta = delta;
+        this.slices = new Slice[enabled ? sliceCount : 0];
+
+        long memory = 0;
+        for (int i = 0; i < slices.length; i++) {
+            slices[i] = new Slice(new CountMinSketch(epsilon, delta / sliceCount, i), new SpaceSaving(topK));
+            memory += slices[i].sketch.sizeInBytes();
+        }
+        if (enabled) {
+            log.info("Приближенные тренды: окно {}, слайсов {}, epsilon {}, delta {}, память счетчиков {} байт",
+                    windowName, sliceCount, epsilon, delta, memory);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized void record(Long filmId) {
+        if (!enabled) {
+            return;
+        }
+
+        Slice slice = current(System.currentTimeMillis());
+        slice.sketch.add(filmId);
+        slice.heavyHitters.add(filmId);
+    }
+
+    // window == null — окно из настроек; другое окно не поддерживается, слайсы нарезаны под одно
+    public synchronized Result top(String window, int count) {
+        if (!enabled) {
+            throw new ValidationException("Приближенный режим трендов выключен");
+        }
+        if (window != null && TrendingIndex.parseMinutes(window) != TrendingIndex.parseMinutes(windowName)) {
+            throw new ValidationException("Приближенные тренды считаются только за окно " + windowName);
+        }
+
+        long now = System.currentTimeMillis();
+        current(now);
+
+        long total = 0;
+        Set<Long> candidates = new HashSet<>();
+        List<Slice> live = new ArrayList<>();
+        for (Slice slice : slices) {
+            if (isLive(slice, now)) {
+                live.add(slice);
+                total += slice.sketch.total();
+                slice.heavyHitters.counters().forEach(counter -> candidates.add(counter.item()));
+            }
+        }
+
+        List<Estimate> estimates = new ArrayList<>(candidates.size());
+        for (Long filmId : candidates) {
+            long likes = 0;
+            for (Slice slice : live) {
+                likes += slice.sketch.estimate(filmId);
+            }
+            estimates.add(new Estimate(filmId, likes));
+        }
+        estimates.sort(Comparator.comparingLong(Estimate::likes).reversed().thenComparingLong(Estimate::filmId));
+
+        // Ошибки слайсов складываются: сумма epsilon * N_i по слайсам равна epsilon * N.
+        // Каждый слайс укладывается в свою границу с вероятностью 1 - delta / slices, все сразу — не ниже 1 - delta
+        long maxError = (long) Math.ceil(epsilon * total);
+        List<Estimate> top = List.copyOf(estimates.subList(0, Math.min(count, estimates.size())));
+        return new Result(top, windowName, total, maxError, 1 - delta);
+    }
+
+    private Slice current(long now) {
+        long index = now / sliceMillis;
+        Slice slice = slices[(int) Math.floorMod(index, (long) slices.length)];
+        if (slice.index != index) {
+            slice.sketch.clear();
+            slice.heavyHitters.clear();
+            slice.index = index;
+        }
+        return slice;
+    }
+
+    private boolean isLive(Slice slice, long now) {
+        return slice.index > now / sliceMillis - slices.length;
+    }
+
+    private static class Slice {
+        private final CountMinSketch sketch;
+        private final SpaceSaving heavyHitters;
+        private long index = Long.MIN_VALUE;
+
+        Slice(CountMinSketch sketch, SpaceSaving heavyHitters) {
+            this.sketch = sketch;
+            this.heavyHitters = heavyHitters;
+        }
+    }
+}
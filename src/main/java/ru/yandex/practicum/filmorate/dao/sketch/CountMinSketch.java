@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.dao.sketch;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Count-Min Sketch с консервативным обновлением: оценка частоты никогда не меньше истинной
+ * и с вероятностью не ниже 1 - delta превышает ее не больше чем на epsilon * N, где N — число событий.
+ * Память фиксирована: depth = ceil(ln(1 / delta)) строк по width = ceil(e / epsilon) счетчиков.
+ */
+public class CountMinSketch {
+    // Простое Мерсенна 2^61 - 1: хеши (a * x + b) mod P попарно независимы
+    private static final long PRIME = (1L << 61) - 1;
+
+    private final int width;
+    private final int depth;
+    private final long[] a;
+    private final long[] b;
+    private final int[][] counters;
+    private long total;
+
+    public CountMinSketch(double epsilon, double delta, long seed) {
+        if (epsilon <= 0 || epsilon >= 1 || delta <= 0 || delta >= 1) {
+            throw new IllegalArgumentException("epsilon и delta должны быть в интервале (0, 1)");
+        }
+
+        this.width = (int) Math.ceil(Math.E / epsilon);
+        this.depth = (int) Math.ceil(Math.log(1 / delta));
+        this.a = new long[depth];
+        this.b = new long[depth];
+        this.counters = new int[depth][width];
+
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int row = 0; row < depth; row++) {
+            a[row] = 1 + random.nextLong(PRIME - 1);
+            b[row] = random.nextLong(PRIME);
+        }
+    }
+
+    public void add(long item) {
+        int[] columns = new int[depth];
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            columns[row] = column(row, item);
+            estimate = Math.min(estimate, counters[row][columns[row]]);
+        }
+
+        // Консервативное обновление: растут только счетчики, равные текущему минимуму
+        for (int row = 0; row < depth; row++) {
+            if (counters[row][columns[row]] == estimate) {
+                counters[row][columns[row]]++;
+            }
+        }
+        total++;
+    }
+
+    public long estimate(long item) {
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[row][column(row, item)]);
+        }
+        return estimate;
+    }
+
+    public long total() {
+        return total;
+    }
+
+    public void clear() {
+        for (int[] row : counters) {
+            Arrays.fill(row, 0);
+        }
+        total = 0;
+    }
+
+    public long sizeInBytes() {
+        return (long) depth * width * Integer.BYTES;
+    }
+
+    private int column(int row, long item) {
+        long x = Math.floorMod(item, PRIME);
+        long low = a[row] * x;
+        long high = Math.multiplyHigh(a[row], x);
+        long hash = ((high << 3) | (low >>> 61)) + (low & PRIME) + b[row];
+        hash = (hash & PRIME) + (hash >>> 61);
+        if (hash >= PRIME) {
+            hash -= PRIME;
+        }
+        return (int) (hash % width);
+    }
+}
@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.dao.sketch;
+
+import java.util.*;
+
+/**
+ * Space-Saving: top-K самых частых элементов потока в k счетчиках.
+ * Новый элемент при заполненной таблице вытесняет минимальный счетчик и наследует его значение как ошибку,
+ * поэтому любой элемент с частотой больше N / k гарантированно остается в таблице.
+ */
+public class SpaceSaving {
+    private static final Comparator<Counter> ORDER = Comparator.comparingLong(Counter::count)
+            .thenComparingLong(Counter::item);
+
+    private final int capacity;
+    private final Map<Long, Counter> counters = new HashMap<>();
+    private final TreeSet<Counter> byCount = new TreeSet<>(ORDER);
+
+    public record Counter(long item, long count, long error) {
+    }
+
+    public SpaceSaving(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public void add(long item) {
+        Counter current = counters.get(item);
+        if (current != null) {
+            replace(current, new Counter(item, current.count() + 1, current.error()));
+            return;
+        }
+
+        if (counters.size() < capacity) {
+            put(new Counter(item, 1, 0));
+            return;
+        }
+
+        Counter minimum = byCount.pollFirst();
+        counters.remove(minimum.item());
+        put(new Counter(item, minimum.count() + 1, minimum.count()));
+    }
+
+    public Collection<Counter> counters() {
+        return Collections.unmodifiableCollection(counters.values());
+    }
+
+    public void clear() {
+        counters.clear();
+        byCount.clear();
+    }
+
+    private void replace(Counter previous, Counter next) {
+        byCount.remove(previous);
+        put(next);
+    }
+
+    private void put(Counter counter) {
+        counters.put(counter.item(), counter);
+        byCount.add(counter);
+    }
+}
@@ -0,0 +1,408 @@
+package ru.yandex.practicum.filmorate.dao.snapshot;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.dao.FilmDataSources;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+/**
+ * Двоичный снимок таблиц users, film, film_genres, likes и friendship.
+ * Файл: заголовок (magic, версия, время выгрузки), затем блоки строк
+ * [код таблицы][строк][длина без сжатия][длина сжатого][CRC32C сжатого][сжатые колонки], в конце — байт 0.
+ * Восстановление — только в пустую БД: блоки вставляются пачками параллельно, внешние ключи на время
+ * загрузки отключены и проверяются запросами после нее. Выгрузка и восстановление идут в режиме
+ * обслуживания (MaintenanceGate), поэтому другие записи в это время не выполняются.
+ */
+@Slf4j
+@Component
+@Profile("!memory")
+@RequiredArgsConstructor
+public class DatabaseSnapshot {
+    private static final int MAGIC = 0x464D5853;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int BLOCK_HEADER_SIZE = 17;
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transactionTemplate;
+    private final FilmDataSources filmData;
+    private final MaintenanceGate maintenanceGate;
+
+    /**
+     * Выгрузка идет по таблицам без общей транзакции, а шарды — отдельные БД, поэтому согласованность
+     * обеспечивает режим обслуживания: на время выгрузки запись остановлена.
+     */
+    public Map<String, Object> export(Path file) throws IOException {
+        return maintenanceGate.exclusive(() -> exportTables(file));
+    }
+
+    public Map<String, Object> restore(Path file, int parallelism) throws IOException {
+        return maintenanceGate.exclusive(() -> restoreTables(file, parallelism));
+    }
+
+    private Map<String, Object> exportTables(Path file) throws IOException {
+        long started = System.currentTimeMillis();
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Map<String, Object> tables = new LinkedHashMap<>();
+
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putLong(System.currentTimeMillis())
+                    .flip();
+            writeFully(channel, header);
+
+            for (SnapshotTable table : SnapshotTable.values()) {
+                BlockWriter writer = new BlockWriter(channel, table);
+                for (JdbcTemplate source : sources(table)) {
+                    source.query(table.selectSql, (RowCallbackHandler) rs -> {
+                        Object[] row = new Object[table.columns.size()];
+                        for (int i = 0; i < row.length; i++) {
+                            row[i] = table.columns.get(i).read(rs, i + 1);
+                        }
+                        writer.add(row);
+                    });
+                }
+                writer.flush();
+                tables.put(table.name, writer.rows);
+            }
+
+            writeFully(channel, ByteBuffer.wrap(new byte[]{0}));
+            channel.force(true);
+        } catch (UncheckedIOException e) {
+            Files.deleteIfExists(tmp);
+            throw e.getCause();
+        } catch (RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("file", file.getFileName().toString());
+        result.put("bytes", Files.size(file));
+        result.put("rows", tables);
+        result.put("elapsedMs", System.currentTimeMillis() - started);
+        log.info("Снимок БД выгружен в {}: {}", file, result);
+        return result;
+    }
+
+    private Map<String, Object> restoreTables(Path file, int parallelism) throws IOException {
+        long started = System.currentTimeMillis();
+        requireEmpty();
+
+        Map<String, AtomicLong> rows = new LinkedHashMap<>();
+        for (SnapshotTable table : SnapshotTable.values()) {
+            rows.put(table.name, new AtomicLong());
+        }
+
+        List<Block> blocks;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            blocks = index(channel);
+            try {
+                loadBlocks(channel, blocks, rows, parallelism);
+                verifyReferences();
+            } catch (IOException | RuntimeException e) {
+                // Блоки коммитятся по отдельности: частичную загрузку убираем, иначе повтор упрется в requireEmpty
+                try {
+                    truncateTables();
+                } catch (RuntimeException cleanupError) {
+                    e.addSuppressed(cleanupError);
+                }
+                throw e;
+            }
+        }
+        restartIdentities();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("file", file.getFileName().toString());
+        result.put("blocks", blocks.size());
+        result.put("rows", rows);
+        result.put("parallelism", parallelism);
+        result.put("elapsedMs", System.currentTimeMillis() - started);
+        log.info("БД восстановлена из снимка {}: {}", file, result);
+        return result;
+    }
+
+    // SET REFERENTIAL_INTEGRITY действует на всю БД, это допустимо только потому, что запись остановлена
+    private void loadBlocks(FileChannel channel, List<Block> blocks, Map<String, AtomicLong> rows, int parallelism)
+            throws IOException {
+        setReferentialIntegrity(false);
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism,
+                Thread.ofPlatform().name("snapshot-restore-", 0).factory());
+        try {
+            List<Future<?>> loads = new ArrayList<>();
+            for (Block block : blocks) {
+                loads.add(pool.submit(() -> {
+                    rows.get(block.table().name).addAndGet(load(channel, block));
+                    return null;
+                }));
+            }
+            for (Future<?> load : loads) {
+                await(load);
+            }
+        } finally {
+            // Перед очисткой после ошибки все уже начатые вставки должны закончиться
+            pool.shutdownNow();
+            awaitTermination(pool);
+            setReferentialIntegrity(true);
+        }
+    }
+
+    private void truncateTables() {
+        setReferentialIntegrity(false);
+        try {
+            for (SnapshotTable table : SnapshotTable.values()) {
+                sources(table).forEach(source -> source.execute("TRUNCATE TABLE " + table.name));
+            }
+        } finally {
+            setReferentialIntegrity(true);
+        }
+        log.warn("Восстановление из снимка не удалось, загруженные строки удалены");
+    }
+
+    // Проход по заголовкам блоков без чтения данных: файл проверяется на обрыв до начала загрузки
+    private List<Block> index(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header, 0);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new ValidationException("Файл не является снимком БД Filmorate или его версия не поддерживается");
+        }
+
+        List<Block> blocks = new ArrayList<>();
+        long position = HEADER_SIZE;
+        ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+        while (true) {
+            blockHeader.clear().limit(1);
+            readFully(channel, blockHeader, position);
+            byte code = blockHeader.get(0);
+            if (code == 0) {
+                return blocks;
+            }
+
+            SnapshotTable table = SnapshotTable.byCode(code);
+            if (table == null) {
+                throw new ValidationException("Снимок поврежден: неизвестная таблица с кодом " + code);
+            }
+            blockHeader.clear();
+            readFully(channel, blockHeader, position);
+            int rowCount = blockHeader.getInt(1);
+            int rawLength = blockHeader.getInt(5);
+            int length = blockHeader.getInt(9);
+            if (rowCount <= 0 || rowCount > SnapshotBlock.MAX_ROWS || rawLength < 0 || length < 0) {
+                throw new ValidationException("Снимок поврежден: некорректный заголовок блока на позиции " + position);
+            }
+            blocks.add(new Block(table, rowCount, rawLength, length, blockHeader.getInt(13),
+                    position + BLOCK_HEADER_SIZE));
+            position += BLOCK_HEADER_SIZE + length;
+        }
+    }
+
+    private int load(FileChannel channel, Block block) throws IOException {
+        ByteBuffer data = ByteBuffer.allocate(block.length());
+        readFully(channel, data, block.position());
+
+        CRC32C crc = new CRC32C();
+        crc.update(data.array());
+        if ((int) crc.getValue() != block.crc()) {
+            throw new ValidationException("Снимок поврежден: неверная контрольная сумма блока таблицы "
+                    + block.table().name);
+        }
+
+        List<Object[]> rows = SnapshotBlock.decompress(block.table().columns, block.rows(), block.rawLength(),
+                data.array());
+        if (!block.table().filmData) {
+            transactionTemplate.executeWithoutResult(status -> jdbc.batchUpdate(block.table().insertSql, rows));
+            return rows.size();
+        }
+
+        Map<Integer, List<Object[]>> byShard = new TreeMap<>();
+        rows.forEach(row -> byShard.computeIfAbsent(filmData.shardOf((Long) row[0]), key -> new ArrayList<>())
+                .add(row));
+        byShard.forEach((shard, shardRows) -> filmData.transactions(shard).executeWithoutResult(status ->
+                filmData.all().get(shard).batchUpdate(block.table().insertSql, shardRows)));
+        return rows.size();
+    }
+
+    private void requireEmpty() {
+        long users = count(jdbc, "SELECT COUNT(*) FROM users");
+        long films = filmData.all().stream().mapToLong(source -> count(source, "SELECT COUNT(*) FROM film")).sum();
+        if (users > 0 || films > 0) {
+            throw new ValidationException("Восстановление из снимка возможно только в пустую БД: пользователей "
+                    + users + ", фильмов " + films);
+        }
+    }
+
+    // Отложенная проверка внешних ключей. Ссылки на пользователей, жанры и рейтинги из шардов фильмов
+    // внешними ключами не являются и проверяются, только когда фильмы лежат в основной БД
+    private void verifyReferences() {
+        Map<String, Long> violations = new LinkedHashMap<>();
+        violations.put("friendship.user_id", count(jdbc, "SELECT COUNT(*) FROM friendship f "
+                + "WHERE NOT EXISTS (SELECT 1 FROM users u WHERE u.id = f.user_id) "
+                + "OR NOT EXISTS (SELECT 1 FROM users u WHERE u.id = f.friend_id)"));
+        for (JdbcTemplate source : filmData.all()) {
+            violations.merge("likes.film_id", count(source, "SELECT COUNT(*) FROM likes l "
+                    + "WHERE NOT EXISTS (SELECT 1 FROM film f WHERE f.id = l.film_id)"), Long::sum);
+            violations.merge("film_genres.film_id", count(source, "SELECT COUNT(*) FROM film_genres g "
+                    + "WHERE NOT EXISTS (SELECT 1 FROM film f WHERE f.id = g.film_id)"), Long::sum);
+        }
+        if (filmsInMainDatabase()) {
+            violations.put("likes.user_id", count(jdbc, "SELECT COUNT(*) FROM likes l "
+                    + "WHERE NOT EXISTS (SELECT 1 FROM users u WHERE u.id = l.user_id)"));
+            violations.put("film.rating_id", count(jdbc, "SELECT COUNT(*) FROM film f WHERE f.rating_id IS NOT NULL "
+                    + "AND NOT EXISTS (SELECT 1 FROM rating r WHERE r.id = f.rating_id)"));
+            violations.put("film_genres.genre_id", count(jdbc, "SELECT COUNT(*) FROM film_genres g "
+                    + "WHERE NOT EXISTS (SELECT 1 FROM genre r WHERE r.id = g.genre_id)"));
+        }
+
+        violations.values().removeIf(count -> count == 0);
+        if (!violations.isEmpty()) {
+            log.error("Снимок загружен, но нарушает ссылочную целостность: {}", violations);
+            throw new ValidationException("Снимок загружен, но нарушает ссылочную целостность: " + violations);
+        }
+    }
+
+    // Строки вставлены с явными id: счетчики identity сдвигаются за максимальный id.
+    // В шардах у фильмов нет identity, id выдает film_id_seq (см. FilmIdAllocator)
+    private void restartIdentities() {
+        jdbc.execute("ALTER TABLE users ALTER COLUMN id RESTART WITH "
+                + (count(jdbc, "SELECT COALESCE(MAX(id), 0) FROM users") + 1));
+        if (filmsInMainDatabase()) {
+            jdbc.execute("ALTER TABLE film ALTER COLUMN id RESTART WITH "
+                    + (count(jdbc, "SELECT COALESCE(MAX(id), 0) FROM film") + 1));
+        }
+    }
+
+    private void setReferentialIntegrity(boolean enabled) {
+        Set<JdbcTemplate> all = new LinkedHashSet<>(filmData.all());
+        all.add(jdbc);
+        all.forEach(source -> source.execute("SET REFERENTIAL_INTEGRITY " + enabled));
+    }
+
+    private boolean filmsInMainDatabase() {
+        return filmData.all().size() == 1 && filmData.all().getFirst() == jdbc;
+    }
+
+    private List<JdbcTemplate> sources(SnapshotTable table) {
+        return table.filmData ? filmData.all() : List.of(jdbc);
+    }
+
+    private static long count(JdbcTemplate source, String sql) {
+        Long count = source.queryForObject(sql, Long.class);
+        return count != null ? count : 0;
+    }
+
+    private static void await(Future<?> load) throws IOException {
+        try {
+            load.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Восстановление из снимка прервано", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static void awaitTermination(ExecutorService pool) {
+        try {
+            if (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.error("Загрузка блоков снимка не остановилась за минуту");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, offset);
+            if (read < 0) {
+                throw new ValidationException("Снимок оборван: файл закончился на позиции " + offset);
+            }
+            offset += read;
+        }
+    }
+
+    private record Block(SnapshotTable table, int rows, int rawLength, int length, int crc, long position) {
+    }
+
+    // Копит строки таблицы и пишет их блоками по MAX_ROWS
+    private static class BlockWriter {
+        private final FileChannel channel;
+        private final SnapshotTable table;
+        private final List<Object[]> pending = new ArrayList<>(SnapshotBlock.MAX_ROWS);
+        private long rows;
+
+        BlockWriter(FileChannel channel, SnapshotTable table) {
+            this.channel = channel;
+            this.table = table;
+        }
+
+        void add(Object[] row) {
+            pending.add(row);
+            if (pending.size() == SnapshotBlock.MAX_ROWS) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            SnapshotBlock.Compressed compressed = SnapshotBlock.compress(table.columns, pending);
+            CRC32C crc = new CRC32C();
+            crc.update(compressed.data());
+
+            ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE)
+                    .put(table.code)
+                    .putInt(pending.size())
+                    .putInt(compressed.rawLength())
+                    .putInt(compressed.data().length)
+                    .putInt((int) crc.getValue())
+                    .flip();
+            try {
+                writeFully(channel, header);
+                writeFully(channel, ByteBuffer.wrap(compressed.data()));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось записать блок снимка", e);
+            }
+
+            rows += pending.size();
+            pending.clear();
+        }
+    }
+}
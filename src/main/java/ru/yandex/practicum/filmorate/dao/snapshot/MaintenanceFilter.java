@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.dao.snapshot;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.yandex.practicum.filmorate.controller.WriteRequests;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Пишущие запросы проходят через MaintenanceGate: во время выгрузки или восстановления снимка
+ * они получают 503, а обслуживание ждет завершения уже принятых. Запросы /admin не ограничиваются —
+ * через них обслуживание и запускается.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MaintenanceFilter extends OncePerRequestFilter {
+    private static final String ERROR = "{\"error\":\"Идет обслуживание БД, запись временно недоступна\"}";
+
+    private final MaintenanceGate gate;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !WriteRequests.isMutation(request) || request.getRequestURI().startsWith("/admin/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!gate.tryEnter()) {
+            log.warn("Запрос {} {} отклонен: идет обслуживание БД", request.getMethod(), request.getRequestURI());
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            response.getOutputStream().write(ERROR.getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            gate.leave();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.dao.snapshot;
+
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Режим обслуживания для выгрузки и восстановления снимка: пока он включен, запись в БД остановлена.
+ * Пишущие HTTP-запросы и фоновые писатели лайков держат общую блокировку, обслуживание берет
+ * исключительную и сначала дожидается уже начатых записей.
+ */
+@Component
+public class MaintenanceGate {
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(true);
+
+    @FunctionalInterface
+    public interface Work<T> {
+        T run() throws IOException;
+    }
+
+    // Для HTTP-запросов: не ждет, во время обслуживания сразу возвращает false
+    public boolean tryEnter() {
+        try {
+            // tryLock с таймаутом соблюдает очередь и не обгоняет ожидающее обслуживание
+            return lock.readLock().tryLock(0, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Для фоновых писателей: ждет окончания обслуживания
+    public void enter() {
+        lock.readLock().lock();
+    }
+
+    public void leave() {
+        lock.readLock().unlock();
+    }
+
+    public <T> T exclusive(Work<T> work) throws IOException {
+        lock.writeLock().lock();
+        try {
+            return work.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package ru.yandex.practicum.filmorate.dao.snapshot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Блок строк одной таблицы в колоночном виде: сначала все значения первой колонки, потом второй и т.д.
+ * Числа — zigzag varint, id и время — разностью с предыдущей строкой, null — нулевой varint.
+ * Блок целиком сжимается deflate.
+ */
+final class SnapshotBlock {
+    static final int MAX_ROWS = 65_536;
+
+    private SnapshotBlock() {
+    }
+
+    enum Column {
+        // Отсортированный id: разность с предыдущей строкой, null не бывает
+        ID,
+        LONG,
+        INT,
+        STRING,
+        DATE,
+        // Время с точностью до микросекунды, разностью с предыдущим непустым значением
+        TIMESTAMP;
+
+        Object read(ResultSet rs, int index) throws SQLException {
+            return switch (this) {
+                case ID, LONG -> {
+                    long value = rs.getLong(index);
+                    yield rs.wasNull() ? null : value;
+                }
+                case INT -> {
+                    int value = rs.getInt(index);
+                    yield rs.wasNull() ? null : value;
+                }
+                case STRING -> rs.getString(index);
+                case DATE -> rs.getObject(index, LocalDate.class);
+                case TIMESTAMP -> rs.getObject(index, LocalDateTime.class);
+            };
+        }
+    }
+
+    record Compressed(int rawLength, byte[] data) {
+    }
+
+    static Compressed compress(List<Column> columns, List<Object[]> rows) {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(rows.size() * columns.size() * 8);
+        for (int column = 0; column < columns.size(); column++) {
+            long previous = 0;
+            for (Object[] row : rows) {
+                previous = write(raw, columns.get(column), row[column], previous);
+            }
+        }
+
+        byte[] input = raw.toByteArray();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(input.length / 2 + 64);
+            byte[] chunk = new byte[64 * 1024];
+            while (!deflater.finished()) {
+                compressed.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return new Compressed(input.length, compressed.toByteArray());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static List<Object[]> decompress(List<Column> columns, int rowCount, int rawLength, byte[] compressed)
+            throws IOException {
+        byte[] raw = new byte[rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int read = 0;
+            while (read < rawLength && !inflater.finished()) {
+                int count = inflater.inflate(raw, read, rawLength - read);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += count;
+            }
+            if (read != rawLength) {
+                throw new IOException("Блок снимка распакован не полностью: " + read + " из " + rawLength + " байт");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Блок снимка поврежден: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(raw);
+        List<Object[]> rows = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            rows.add(new Object[columns.size()]);
+        }
+        for (int column = 0; column < columns.size(); column++) {
+            long previous = 0;
+            for (Object[] row : rows) {
+                previous = read(buffer, columns.get(column), row, column, previous);
+            }
+        }
+        if (buffer.hasRemaining()) {
+            throw new IOException("В блоке снимка лишние данные: " + buffer.remaining() + " байт");
+        }
+        return rows;
+    }
+
+    // Возвращает значение, от которого считается разность для следующей строки
+    private static long write(ByteArrayOutputStream out, Column column, Object value, long previous) {
+        switch (column) {
+            case ID -> {
+                long id = (Long) value;
+                writeVarLong(out, zigzag(id - previous));
+                return id;
+            }
+            case LONG -> writeNullable(out, value == null ? null : (Long) value);
+            case INT -> writeNullable(out, value == null ? null : ((Integer) value).longValue());
+            case STRING -> {
+                if (value == null) {
+                    writeVarLong(out, 0);
+                } else {
+                    byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+                    writeVarLong(out, bytes.length + 1L);
+                    out.write(bytes, 0, bytes.length);
+                }
+            }
+            case DATE -> writeNullable(out, value == null ? null : ((LocalDate) value).toEpochDay());
+            case TIMESTAMP -> {
+                if (value == null) {
+                    writeVarLong(out, 0);
+                    return previous;
+                }
+                long micros = toMicros((LocalDateTime) value);
+                writeVarLong(out, zigzag(micros - previous) + 1);
+                return micros;
+            }
+        }
+        return previous;
+    }
+
+    private static long read(ByteBuffer in, Column column, Object[] row, int index, long previous) throws IOException {
+        switch (column) {
+            case ID -> {
+                long id = previous + unzigzag(readVarLong(in));
+                row[index] = id;
+                return id;
+            }
+            case LONG -> row[index] = readNullable(in);
+            case INT -> {
+                Long value = readNullable(in);
+                row[index] = value == null ? null : Math.toIntExact(value);
+            }
+            case STRING -> {
+                long length = readVarLong(in);
+                if (length > 0) {
+                    if (length - 1 > in.remaining()) {
+                        throw new IOException("Строка в блоке снимка выходит за его границу");
+                    }
+                    byte[] bytes = new byte[(int) (length - 1)];
+                    in.get(bytes);
+                    row[index] = new String(bytes, StandardCharsets.UTF_8);
+                }
+            }
+            case DATE -> {
+                Long value = readNullable(in);
+                row[index] = value == null ? null : LocalDate.ofEpochDay(value);
+            }
+            case TIMESTAMP -> {
+                long encoded = readVarLong(in);
+                if (encoded == 0) {
+                    return previous;
+                }
+                long micros = previous + unzigzag(encoded - 1);
+                row[index] = fromMicros(micros);
+                return micros;
+            }
+        }
+        return previous;
+    }
+
+    private static void writeNullable(ByteArrayOutputStream out, Long value) {
+        writeVarLong(out, value == null ? 0 : zigzag(value) + 1);
+    }
+
+    private static Long readNullable(ByteBuffer in) throws IOException {
+        long encoded = readVarLong(in);
+        return encoded == 0 ? null : unzigzag(encoded - 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!in.hasRemaining()) {
+                throw new IOException("Блок снимка оборван");
+            }
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Некорректное число в блоке снимка");
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.dao.snapshot;
+
+import ru.yandex.practicum.filmorate.dao.snapshot.SnapshotBlock.Column;
+
+import java.util.Collections;
+import java.util.List;
+
+import static ru.yandex.practicum.filmorate.dao.snapshot.SnapshotBlock.Column.*;
+
+/**
+ * Таблицы снимка в порядке выгрузки. Таблицы фильмов лежат в FilmDataSources и распределяются
+ * по шардам по первой колонке — id фильма.
+ */
+enum SnapshotTable {
+    USERS(1, false, "users", "id, email, login, name, birthday", "id",
+            List.of(ID, STRING, STRING, STRING, DATE)),
+    FILM(2, true, "film", "id, name, description, releaseDate, duration, rating_id, like_count", "id",
+            List.of(ID, STRING, STRING, DATE, INT, INT, INT)),
+    FILM_GENRES(3, true, "film_genres", "film_id, genre_id", "film_id, genre_id",
+            List.of(ID, INT)),
+    LIKES(4, true, "likes", "film_id, user_id, created_at", "film_id, user_id",
+            List.of(ID, LONG, TIMESTAMP)),
+    FRIENDSHIP(5, false, "friendship", "user_id, friend_id, status, created_at", "user_id, friend_id",
+            List.of(ID, LONG, STRING, TIMESTAMP));
+
+    final byte code;
+    final boolean filmData;
+    final String name;
+    final String selectSql;
+    final String insertSql;
+    final List<Column> columns;
+
+    SnapshotTable(int code, boolean filmData, String name, String columnList, String orderBy, List<Column> columns) {
+        this.code = (byte) code;
+        this.filmData = filmData;
+        this.name = name;
+        this.selectSql = "SELECT " + columnList + " FROM " + name + " ORDER BY " + orderBy;
+        this.insertSql = "INSERT INTO " + name + " (" + columnList + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+        this.columns = columns;
+    }
+
+    static SnapshotTable byCode(byte code) {
+        for (SnapshotTable table : values()) {
+            if (table.code == code) {
+                return table;
+            }
+        }
+        return null;
+    }
+}
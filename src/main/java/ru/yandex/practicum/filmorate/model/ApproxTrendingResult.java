@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Приближенный рейтинг за окно: оценки частот завышены не больше чем на maxError
+ * с вероятностью не ниже confidence, totalLikes — число учтенных лайков в окне.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ApproxTrendingResult<T> {
+    private List<Estimated<T>> items = new ArrayList<>();
+    private String window;
+    private long totalLikes;
+    private long maxError;
+    private double confidence;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Estimated<T> {
+        private T item;
+        private long estimatedLikes;
+    }
+}
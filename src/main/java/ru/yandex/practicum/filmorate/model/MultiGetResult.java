@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ответ на запрос нескольких объектов по списку id: найденные в порядке запроса и ненайденные id.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MultiGetResult<T> {
+    private List<T> items = new ArrayList<>();
+    private List<Long> missing = new ArrayList<>();
+}
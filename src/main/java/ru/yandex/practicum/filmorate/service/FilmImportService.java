@@ -0,0 +1,259 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.dao.FilmStorage;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmImportResult;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Массовая загрузка фильмов: строки проверяются по одной, а пишутся пачками
+ * по filmorate.import.chunk-size, каждая пачка коммитится отдельно.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FilmImportService {
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final FilmStorage filmStorage;
+    private final Validator validator;
+    private final JsonMapper jsonMapper;
+
+    @Value("${filmorate.import.chunk-size:1000}")
+    private int chunkSize;
+
+    public FilmImportResult importFilms(List<Film> films) {
+        log.info("Получен запрос на пакетное добавление {} фильмов", films.size());
+
+        ChunkWriter writer = new ChunkWriter();
+        for (int i = 0; i < films.size(); i++) {
+            writer.add(i + 1, films.get(i));
+        }
+        return writer.finish();
+    }
+
+    public FilmImportResult importNdjson(InputStream body) throws IOException {
+        log.info("Получен запрос на импорт фильмов в формате NDJSON");
+
+        ChunkWriter writer = new ChunkWriter();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            long row = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                row++;
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                try {
+                    writer.add(row, jsonMapper.readValue(line, Film.class));
+                } catch (JacksonException e) {
+                    writer.reject(row, "Некорректный JSON: " + e.getOriginalMessage());
+                }
+            }
+        }
+        return writer.finish();
+    }
+
+    /**
+     * Первая строка — заголовок с колонками name, description, releaseDate, duration, mpa, genres.
+     * Жанры перечисляются через '|'.
+     */
+    public FilmImportResult importCsv(InputStream body) throws IOException {
+        log.info("Получен запрос на импорт фильмов в формате CSV");
+
+        ChunkWriter writer = new ChunkWriter();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String headerLine = reader.readLine();
+            if (headerLine == null) {
+                return writer.finish();
+            }
+
+            List<String> header = parseCsvLine(headerLine).stream()
+                    .map(column -> column.trim().toLowerCase(Locale.ROOT))
+                    .toList();
+
+            long row = 1;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                row++;
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                try {
+                    writer.add(row, parseCsvFilm(header, parseCsvLine(line)));
+                } catch (ValidationException e) {
+                    writer.reject(row, e.getMessage());
+                }
+            }
+        }
+        return writer.finish();
+    }
+
+    private Film parseCsvFilm(List<String> header, List<String> values) {
+        Map<String, String> columns = new HashMap<>();
+        for (int i = 0; i < header.size() && i < values.size(); i++) {
+            columns.put(header.get(i), values.get(i));
+        }
+
+        try {
+            Film film = new Film();
+            film.setName(columns.get("name"));
+            film.setDescription(columns.get("description"));
+
+            String releaseDate = columns.get("releasedate");
+            film.setReleaseDate(releaseDate == null || releaseDate.isBlank() ? null : LocalDate.parse(releaseDate));
+
+            String duration = columns.get("duration");
+            film.setDuration(duration == null || duration.isBlank() ? 0 : Integer.parseInt(duration.trim()));
+
+            String mpa = columns.get("mpa");
+            if (mpa != null && !mpa.isBlank()) {
+                film.setMpa(Mpa.builder().id(Integer.parseInt(mpa.trim())).build());
+            }
+
+            String genres = columns.get("genres");
+            if (genres != null && !genres.isBlank()) {
+                film.setGenres(Arrays.stream(genres.split("\\|"))
+                        .map(String::trim)
+                        .filter(id -> !id.isEmpty())
+                        .map(id -> Genre.builder().id(Integer.parseInt(id)).build())
+                        .collect(Collectors.toCollection(LinkedHashSet::new)));
+            }
+            return film;
+
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new ValidationException("Некорректное значение в строке CSV: " + e.getMessage());
+        }
+    }
+
+    private List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    private class ChunkWriter {
+        private final FilmImportResult result = new FilmImportResult();
+        private final List<Film> pending = new ArrayList<>();
+        private final List<Long> pendingRows = new ArrayList<>();
+
+        void add(long row, Film film) {
+            String error = validate(film);
+            if (error != null) {
+                reject(row, error);
+                return;
+            }
+
+            pending.add(film);
+            pendingRows.add(row);
+            if (pending.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        void reject(long row, String error) {
+            result.setFailed(result.getFailed() + 1);
+            if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+                result.getErrors().add(new FilmImportResult.RowError(row, error));
+            }
+        }
+
+        FilmImportResult finish() {
+            flush();
+            log.info("Импорт завершен: добавлено {}, отклонено {}", result.getImported(), result.getFailed());
+            return result;
+        }
+
+        private String validate(Film film) {
+            if (film == null) {
+                return "Пустая запись";
+            }
+
+            Set<ConstraintViolation<Film>> violations = validator.validate(film);
+            if (!violations.isEmpty()) {
+                return violations.stream()
+                        .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining("; "));
+            }
+
+            try {
+                filmStorage.validate(film);
+                return null;
+            } catch (ValidationException | NotFoundException e) {
+                return e.getMessage();
+            }
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            try {
+                result.setImported(result.getImported() + filmStorage.createBatch(pending).size());
+            } catch (org.springframework.dao.DataAccessException e) {
+                // Пачка откатилась целиком: пишем ее построчно, чтобы найти и отчитаться о конкретных строках
+                log.warn("Ошибка записи пачки из {} фильмов, повтор по одной строке: {}",
+                        pending.size(), e.getMostSpecificCause().getMessage());
+                for (int i = 0; i < pending.size(); i++) {
+                    try {
+                        filmStorage.createBatch(List.of(pending.get(i)));
+                        result.setImported(result.getImported() + 1);
+                    } catch (org.springframework.dao.DataAccessException rowError) {
+                        reject(pendingRows.get(i), rowError.getMostSpecificCause().getMessage());
+                    }
+                }
+            }
+
+            pending.clear();
+            pendingRows.clear();
+        }
+    }
+}
@@ -2,36 +2,83 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import ru.yandex.practicum.filmorate.dao.InDbFilmStorage;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.dao.ExistenceIndex;
+import ru.yandex.practicum.filmorate.dao.FilmCache;
+import ru.yandex.practicum.filmorate.dao.FilmStorage;
+import ru.yandex.practicum.filmorate.dao.LikeStorage;
+import ru.yandex.practicum.filmorate.dao.LikeWriteBehindBuffer;
+import ru.yandex.practicum.filmorate.dao.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.dao.TransactionHooks;
+import ru.yandex.practicum.filmorate.dao.TrendingIndex;
+import ru.yandex.practicum.filmorate.dao.likelog.LikeEventLog;
 import ru.yandex.practicum.filmorate.dao.mapper.Film.FilmDto;
-import ru.yandex.practicum.filmorate.dao.mapper.Film.FilmDtoMapper;
-import ru.yandex.practicum.filmorate.dao.mapper.Film.FilmMapper;
-import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.dao.recommend.FilmSimilarityIndex;
+import ru.yandex.practicum.filmorate.dao.search.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.dao.search.FilmSuggestIndex;
+import ru.yandex.practicum.filmorate.dao.sketch.ApproxLikeTracker;
+import ru.yandex.practicum.filmorate.exception.TooManyRequestsException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.ApproxTrendingResult;
+import ru.yandex.practicum.filmorate.model.MultiGetResult;
 
-import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class FilmService {
-    private final JdbcTemplate jdbc;
-    private final InDbFilmStorage inDbFilmStorage;
-    private final FilmMapper mapper;
+    private static final int MAX_SEARCH_LIMIT = 100;
 
+    private final FilmStorage filmStorage;
+    private final LikeStorage likeStorage;
+    private final FilmCache filmCache;
+    private final PopularityLeaderboard leaderboard;
+    private final LikeWriteBehindBuffer likeBuffer;
+    private final LikeEventLog likeLog;
+    private final FilmSearchIndex searchIndex;
+    private final FilmSuggestIndex suggestIndex;
+    private final FilmSimilarityIndex similarityIndex;
+    private final ExistenceIndex existenceIndex;
+    private final TrendingIndex trendingIndex;
+    private final ApproxLikeTracker approxTracker;
+
+    @Value("${filmorate.popular.leaderboard-enabled:true}")
+    private boolean leaderboardEnabled;
 
     public FilmDto addLike(Long id, Long userId) {
         log.info("Получен запрос от пользователя {} на простановку лайка фильму {}", userId, id);
 
-        String sql = "INSERT INTO likes (film_id, user_id, created_at) VALUES (?, ?, ?)";
+        if (likeLog.isEnabled()) {
+            return appendLike(id, userId, true);
+        }
+
+        if (likeBuffer.isEnabled()) {
+            return enqueueLike(id, userId, true);
+        }
+
+        existenceIndex.requireFilm(id);
+        existenceIndex.requireUser(userId);
+
         try {
-            jdbc.update(sql, id, userId, LocalDate.now());
+            LocalDateTime likedAt = likeStorage.addLike(id, userId);
+            leaderboard.increment(id);
+            trendingIndex.likeAdded(id, likedAt);
+            TransactionHooks.afterCommit(() -> approxTracker.record(id));
+            suggestIndex.likesChanged(id);
+            similarityIndex.likeAdded(id, userId);
+            filmCache.invalidateLikes(id);
             log.info("Пользователь {} поставил лайк фильму {}", userId, id);
-            return inDbFilmStorage.getFilmById(id);
+            return filmStorage.getFilmById(id);
 
         } catch (org.springframework.dao.DataAccessException e) {
             log.error("Ошибка при работе с БД при добавление лайка к фильму id {} пользователем {}", id, userId);
@@ -42,11 +89,28 @@ public class FilmService {
     public FilmDto deleteLike(Long id, Long userId) {
         log.info("Получен запрос от пользователя {} на удаление лайка у фильма {}", userId, id);
 
-        String sql = "DELETE FROM likes WHERE film_id = ? AND user_id = ?";
+        if (likeLog.isEnabled()) {
+            return appendLike(id, userId, false);
+        }
+
+        if (likeBuffer.isEnabled()) {
+            return enqueueLike(id, userId, false);
+        }
+
+        existenceIndex.requireFilm(id);
+        existenceIndex.requireUser(userId);
+
         try {
-            jdbc.update(sql, id, userId);
+            Optional<LocalDateTime> removed = likeStorage.deleteLike(id, userId);
+            if (removed.isPresent()) {
+                leaderboard.decrement(id);
+                trendingIndex.likeRemoved(id, removed.get());
+                suggestIndex.likesChanged(id);
+                similarityIndex.likeRemoved(id, userId);
+                filmCache.invalidateLikes(id);
+            }
             log.info("Пользователь {} удалил лайк фильму {}", userId, id);
-            return inDbFilmStorage.getFilmById(id);
+            return filmStorage.getFilmById(id);
 
         } catch (org.springframework.dao.DataAccessException e) {
             log.error("Ошибка при работе с БД при добавление лайка к фильму id {} пользователем {}", id, userId);
@@ -55,22 +119,156 @@ public class FilmService {
 
     }
 
+    // Ответ после записи события в журнал лайков: лайк применяется к копии фильма, в БД его переносит проектор
+    private FilmDto appendLike(Long id, Long userId, boolean add) {
+        existenceIndex.requireUser(userId);
+        FilmDto film = filmStorage.getFilmById(id);
+
+        likeLog.append(id, userId, add);
+
+        log.info("Изменение лайка фильма {} пользователем {} записано в журнал", id, userId);
+        return withLike(film, userId, add);
+    }
+
+    // Ответ сразу после постановки в очередь: лайк применяется к копии фильма, запись в БД позже
+    private FilmDto enqueueLike(Long id, Long userId, boolean add) {
+        existenceIndex.requireUser(userId);
+        FilmDto film = filmStorage.getFilmById(id);
+
+        // Синхронная запись мимо очереди обогнала бы ждущие в ней события той же пары и могла бы вернуть
+        // удаленный лайк, поэтому при переполнении лайк не принимается, клиент повторит запрос
+        if (!likeBuffer.offer(id, userId, add)) {
+            log.warn("Очередь лайков переполнена, лайк фильму {} от пользователя {} отклонен", id, userId);
+            throw new TooManyRequestsException("Слишком много запросов на изменение лайков, повторите позже");
+        }
+
+        log.info("Изменение лайка фильма {} пользователем {} поставлено в очередь", id, userId);
+        return withLike(film, userId, add);
+    }
+
+    private static FilmDto withLike(FilmDto film, Long userId, boolean add) {
+        Set<Long> likes = new HashSet<>(film.getLikes());
+        if (add) {
+            likes.add(userId);
+        } else {
+            likes.remove(userId);
+        }
+
+        return FilmDto.builder()
+                .id(film.getId())
+                .name(film.getName())
+                .description(film.getDescription())
+                .releaseDate(film.getReleaseDate())
+                .duration(film.getDuration())
+                .likes(likes)
+                .genres(film.getGenres())
+                .mpa(film.getMpa())
+                .build();
+    }
+
+    @Transactional(readOnly = true)
     public Collection<FilmDto> getPopular(Integer count) {
         if (count == null) {
             count = 10;
         }
+        if (count <= 0) {
+            throw new ValidationException("Количество фильмов должно быть положительным числом");
+        }
         log.info("Запрошены {} популярных фильмов", count);
-        String sql = "SELECT f.*, r.rating AS mpa_name, COUNT(l.user_id) AS rate " +
-                "FROM film f " +
-                "LEFT JOIN rating r ON f.rating_id = r.id " +
-                "LEFT JOIN likes l ON f.id = l.film_id " +
-                "GROUP BY f.id " +
-                "ORDER BY rate DESC " +
-                "LIMIT ?";
-
-        List<Film> films = jdbc.query(sql, mapper, count);
-        return films.stream()
-                .map(FilmDtoMapper::mapToDto)
-                .collect(Collectors.toList());
+        List<Long> ids = leaderboardEnabled ? leaderboard.top(count) : likeStorage.findPopularIds(count);
+        return loadFilms(ids);
+    }
+
+    public Collection<FilmDto> search(String query, Integer limit) {
+        if (query == null || query.isBlank()) {
+            throw new ValidationException("Строка поиска не должна быть пустой");
+        }
+        if (limit == null) {
+            limit = 20;
+        }
+        if (limit <= 0) {
+            throw new ValidationException("Количество фильмов должно быть положительным числом");
+        }
+        log.info("Поиск фильмов по запросу '{}', лимит {}", query, limit);
+        List<Long> ids = searchIndex.search(query, Math.min(limit, MAX_SEARCH_LIMIT));
+        return loadFilms(ids);
+    }
+
+    public Collection<FilmDto> suggest(String prefix, Integer limit) {
+        if (prefix == null || prefix.isBlank()) {
+            throw new ValidationException("Префикс не должен быть пустым");
+        }
+        if (limit == null) {
+            limit = 10;
+        }
+        if (limit <= 0) {
+            throw new ValidationException("Количество фильмов должно быть положительным числом");
+        }
+        List<Long> ids = suggestIndex.suggest(prefix, Math.min(limit, suggestIndex.maxLimit()));
+        return loadFilms(ids);
+    }
+
+    public Collection<FilmDto> getSimilar(Long id, Integer limit) {
+        validateLimit(limit);
+        existenceIndex.requireFilm(id);
+        List<Long> ids = similarityIndex.similar(id, limit);
+        return loadFilms(ids);
+    }
+
+    public Collection<FilmDto> getRecommendations(Long userId, Integer limit) {
+        validateLimit(limit);
+        existenceIndex.requireUser(userId);
+        log.info("Запрошены рекомендации для пользователя {}", userId);
+        List<Long> ids = similarityIndex.recommend(userId, Math.min(limit, MAX_SEARCH_LIMIT));
+        return loadFilms(ids);
+    }
+
+    // Один запрос к хранилищу на весь список: недостающие в кэше фильмы догружаются пачкой
+    private List<FilmDto> loadFilms(List<Long> ids) {
+        return filmCache.getAll(ids, filmStorage::getFilmsByIds);
+    }
+
+    private void validateLimit(Integer limit) {
+        if (limit == null || limit <= 0) {
+            throw new ValidationException("Количество фильмов должно быть положительным числом");
+        }
+    }
+
+    public MultiGetResult<FilmDto> getFilmsByIds(List<Long> ids) {
+        List<Long> unique = IdLists.unique(ids);
+        log.info("Запрошены фильмы по списку из {} id", unique.size());
+
+        List<FilmDto> films = loadFilms(unique);
+        Set<Long> found = new HashSet<>();
+        films.forEach(film -> found.add(film.getId()));
+
+        return new MultiGetResult<>(films, unique.stream().filter(id -> !found.contains(id)).toList());
+    }
+
+    public Collection<FilmDto> getTrending(String window, Integer count) {
+        if (count == null || count <= 0) {
+            throw new ValidationException("Количество фильмов должно быть положительным числом");
+        }
+        log.info("Запрошены {} фильмов в тренде за окно {}", count, window);
+        List<Long> ids = trendingIndex.top(window, Math.min(count, MAX_SEARCH_LIMIT));
+        return loadFilms(ids);
+    }
+
+    public ApproxTrendingResult<FilmDto> getApproxTrending(String window, Integer count) {
+        if (count == null || count <= 0) {
+            throw new ValidationException("Количество фильмов должно быть положительным числом");
+        }
+        log.info("Запрошены {} фильмов в приближенном тренде", count);
+        ApproxLikeTracker.Result result = approxTracker.top(window, Math.min(count, MAX_SEARCH_LIMIT));
+
+        List<Long> ids = result.films().stream().map(ApproxLikeTracker.Estimate::filmId).toList();
+        Map<Long, FilmDto> films = new HashMap<>();
+        loadFilms(ids).forEach(film -> films.put(film.getId(), film));
+
+        List<ApproxTrendingResult.Estimated<FilmDto>> items = result.films().stream()
+                .filter(estimate -> films.containsKey(estimate.filmId()))
+                .map(estimate -> new ApproxTrendingResult.Estimated<>(films.get(estimate.filmId()), estimate.likes()))
+                .toList();
+        return new ApproxTrendingResult<>(items, result.window(), result.totalLikes(), result.maxError(), result.confidence());
     }
-}
\ No newline at end of file
+}
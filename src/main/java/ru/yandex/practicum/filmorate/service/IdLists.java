@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Проверка списков id для запросов нескольких объектов сразу.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+class IdLists {
+    static final int MAX_IDS = 1000;
+
+    // Повторы убираются, порядок первого вхождения сохраняется
+    static List<Long> unique(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new ValidationException("Список id не должен быть пустым");
+        }
+        if (ids.contains(null)) {
+            throw new ValidationException("Список id не должен содержать пустых значений");
+        }
+
+        List<Long> unique = new ArrayList<>(new LinkedHashSet<>(ids));
+        if (unique.size() > MAX_IDS) {
+            throw new ValidationException("За один запрос можно получить не больше " + MAX_IDS + " объектов");
+        }
+        return unique;
+    }
+}
@@ -0,0 +1,114 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.dao.ExistenceIndex;
+import ru.yandex.practicum.filmorate.dao.FriendGraph;
+import ru.yandex.practicum.filmorate.dao.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.dao.TrendingIndex;
+import ru.yandex.practicum.filmorate.dao.recommend.FilmSimilarityIndex;
+import ru.yandex.practicum.filmorate.dao.search.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.dao.search.FilmSuggestIndex;
+import ru.yandex.practicum.filmorate.dao.shard.FilmIdAllocator;
+import ru.yandex.practicum.filmorate.dao.snapshot.DatabaseSnapshot;
+import ru.yandex.practicum.filmorate.dao.snapshot.MaintenanceGate;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Выгрузка БД в двоичный снимок и восстановление из него нового окружения.
+ * Снимки лежат в filmorate.snapshot.dir, в запросе указывается только имя.
+ * После восстановления индексы в памяти перестраиваются по загруженным данным, еще в режиме обслуживания:
+ * первые записи после него попадают уже в новые индексы.
+ */
+@Slf4j
+@Service
+@Profile("!memory")
+public class SnapshotService {
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]{0,99}");
+    private static final String EXTENSION = ".fsnap";
+
+    private final DatabaseSnapshot snapshot;
+    private final MaintenanceGate maintenanceGate;
+    private final ExistenceIndex existenceIndex;
+    private final PopularityLeaderboard leaderboard;
+    private final FilmSearchIndex searchIndex;
+    private final FilmSuggestIndex suggestIndex;
+    private final FilmSimilarityIndex similarityIndex;
+    private final TrendingIndex trendingIndex;
+    private final FriendGraph friendGraph;
+    private final ObjectProvider<FilmIdAllocator> filmIdAllocator;
+    private final Path dir;
+    private final int parallelism;
+
+    public SnapshotService(DatabaseSnapshot snapshot,
+                           MaintenanceGate maintenanceGate,
+                           ExistenceIndex existenceIndex,
+                           PopularityLeaderboard leaderboard,
+                           FilmSearchIndex searchIndex,
+                           FilmSuggestIndex suggestIndex,
+                           FilmSimilarityIndex similarityIndex,
+                           TrendingIndex trendingIndex,
+                           FriendGraph friendGraph,
+                           ObjectProvider<FilmIdAllocator> filmIdAllocator,
+                           @Value("${filmorate.snapshot.dir:./db/snapshots}") String dir,
+                           @Value("${filmorate.snapshot.restore-parallelism:4}") int parallelism) {
+        this.snapshot = snapshot;
+        this.maintenanceGate = maintenanceGate;
+        this.existenceIndex = existenceIndex;
+        this.leaderboard = leaderboard;
+        this.searchIndex = searchIndex;
+        this.suggestIndex = suggestIndex;
+        this.similarityIndex = similarityIndex;
+        this.trendingIndex = trendingIndex;
+        this.friendGraph = friendGraph;
+        this.filmIdAllocator = filmIdAllocator;
+        this.dir = Path.of(dir);
+        this.parallelism = parallelism;
+    }
+
+    public Map<String, Object> export(String name) throws IOException {
+        log.info("Получен запрос на выгрузку снимка БД {}", name);
+        Files.createDirectories(dir);
+        return snapshot.export(file(name));
+    }
+
+    public synchronized Map<String, Object> restore(String name) throws IOException {
+        log.info("Получен запрос на восстановление БД из снимка {}", name);
+        Path file = file(name);
+        if (!Files.exists(file)) {
+            throw new NotFoundException("Снимок " + name + " не найден");
+        }
+
+        return maintenanceGate.exclusive(() -> {
+            Map<String, Object> result = snapshot.restore(file, parallelism);
+
+            filmIdAllocator.ifAvailable(FilmIdAllocator::reset);
+            existenceIndex.load();
+            leaderboard.seed();
+            searchIndex.build();
+            suggestIndex.rebuild();
+            similarityIndex.rebuild();
+            trendingIndex.rebuild();
+            friendGraph.reload();
+            log.info("Индексы в памяти перестроены после восстановления из снимка {}", name);
+            return result;
+        });
+    }
+
+    private Path file(String name) {
+        if (name == null || !NAME.matcher(name).matches()) {
+            throw new ValidationException("Имя снимка может содержать только латинские буквы, цифры, '.', '_' и '-'");
+        }
+        return dir.resolve(name + EXTENSION);
+    }
+}
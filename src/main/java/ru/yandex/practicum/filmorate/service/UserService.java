@@ -2,17 +2,20 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import ru.yandex.practicum.filmorate.dao.InDbUserStorage;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.dao.ExistenceIndex;
+import ru.yandex.practicum.filmorate.dao.FriendGraph;
+import ru.yandex.practicum.filmorate.dao.FriendSuggester;
+import ru.yandex.practicum.filmorate.dao.FriendshipStorage;
+import ru.yandex.practicum.filmorate.dao.UserStorage;
 import ru.yandex.practicum.filmorate.dao.mapper.user.UserDto;
 import ru.yandex.practicum.filmorate.dao.mapper.user.UserDtoMapper;
-import ru.yandex.practicum.filmorate.dao.mapper.user.UserMapper;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.MultiGetResult;
 import ru.yandex.practicum.filmorate.model.User;
 
-import java.util.Collection;
-import java.util.Collections;
+import java.util.*;
 
 
 @Slf4j
@@ -20,22 +23,24 @@ import java.util.Collections;
 @RequiredArgsConstructor
 public class UserService {
 
-    private final JdbcTemplate jdbc;
-    private final UserMapper<User> mapper;
-    private final InDbUserStorage inDbUserStorage;
+    private final UserStorage userStorage;
+    private final FriendshipStorage friendshipStorage;
+    private final FriendGraph friendGraph;
+    private final FriendSuggester friendSuggester;
+    private final ExistenceIndex existenceIndex;
 
     public void addFriend(Long userId, Long friendId) {
         // тут более сложная логика нужна по хорошему, но тесты этого не требуют
         log.info("Получен запрос от пользователя {} на добавление в друзья {}", userId, friendId);
 
-        String sql = "INSERT INTO friendship (user_id, friend_id, status) VALUES (?, ?, ?)";
-
-        inDbUserStorage.getUsetById(userId);
-        inDbUserStorage.getUsetById(friendId);
+        existenceIndex.requireUser(userId);
+        existenceIndex.requireUser(friendId);
 
         try {
 
-            jdbc.update(sql, userId, friendId, "pending");
+            friendshipStorage.addRequest(userId, friendId);
+            friendGraph.addRequest(userId, friendId);
+            friendSuggester.invalidate(userId, friendId);
 
             log.info("Заявка в друзья сохранена");
 
@@ -55,16 +60,15 @@ public class UserService {
 
         log.info("Получен запрос от пользователя {} на удаление из друзей {}", userId, friendId);
 
-        inDbUserStorage.getUsetById(userId);
-        inDbUserStorage.getUsetById(friendId);
-
-        String sql = "DELETE FROM friendship WHERE user_id = ? AND friend_id = ?";
+        existenceIndex.requireUser(userId);
+        existenceIndex.requireUser(friendId);
 
         try {
-            int rowsAffected = jdbc.update(sql, userId, friendId);
-
-            if (rowsAffected == 0) {
+            if (!friendshipStorage.deleteRequest(userId, friendId)) {
                 log.warn("Связь между {} и {} не найдена, ничего не удалено", userId, friendId);
+            } else {
+                friendGraph.deleteRequest(userId, friendId);
+                friendSuggester.invalidate(userId, friendId);
             }
 
         } catch (org.springframework.dao.DataAccessException e) {
@@ -75,56 +79,66 @@ public class UserService {
         log.info("Пользователи {} и {} больше не друзья", userId, friendId);
     }
 
+    @Transactional(readOnly = true)
     public Collection<UserDto> findAllFriends(Long userId) {
         log.info("Получен запрос на получение списка друзей пользователя {}", userId);
 
-        inDbUserStorage.getUsetById(userId);
+        existenceIndex.requireUser(userId);
 
-        String query = "SELECT u.* FROM users u " +
-                "WHERE u.id IN (" +
-                "    SELECT friend_id FROM friendship WHERE user_id = ? AND status IN ('pending', 'accepted') " +
-                "    UNION " +
-                "    SELECT user_id FROM friendship WHERE friend_id = ? AND status = 'accepted'" +
-                ")";
+        return hydrate(friendGraph.friendsOf(userId)).stream()
+                .map(UserDtoMapper::mapToDto)
+                .toList();
+    }
 
-        try {
-            Collection<UserDto> friends = jdbc.query(query, mapper, userId, userId).stream()
-                    .map(UserDtoMapper::mapToDto)
-                    .toList();
+    public Collection<User> commonFriends(Long id, Long otherId) {
+        log.info("Получен запрос на получение общих друзей пользователей {} и {}", id, otherId);
 
-            return friends != null ? friends : Collections.emptyList();
+        existenceIndex.requireUser(id);
+        existenceIndex.requireUser(otherId);
 
-        } catch (org.springframework.dao.DataAccessException e) {
-            log.error("Ошибка при обращении к базе данных: {}", e.getMessage());
-            throw new RuntimeException("Ошибка работы с базой данных при получении списка пользователей");
+        return hydrate(friendGraph.commonFriends(id, otherId));
+    }
+
+    public Collection<UserDto> suggestFriends(Long userId, Integer limit, String scoring) {
+        log.info("Получен запрос на рекомендации друзей для пользователя {}", userId);
+
+        if (limit == null || limit <= 0) {
+            throw new ValidationException("Количество пользователей должно быть положительным числом");
         }
 
+        FriendSuggester.Scoring mode;
+        switch (scoring == null ? "mutual" : scoring.toLowerCase()) {
+            case "mutual" -> mode = FriendSuggester.Scoring.MUTUAL;
+            case "adamic-adar" -> mode = FriendSuggester.Scoring.ADAMIC_ADAR;
+            default -> throw new ValidationException("Неизвестный способ оценки: " + scoring);
+        }
+
+        existenceIndex.requireUser(userId);
+
+        long[] suggestedIds = friendSuggester.suggest(userId, mode, Math.min(limit, friendSuggester.maxLimit()));
+        return hydrate(suggestedIds).stream()
+                .map(UserDtoMapper::mapToDto)
+                .toList();
     }
 
-    public Collection<User> commonFriends(Long id, Long otherId) {
-        log.info("Получен запрос на получение общих друзей пользователей {} и {}", id, otherId);
+    public MultiGetResult<UserDto> getUsersByIds(List<Long> ids) {
+        List<Long> unique = IdLists.unique(ids);
+        log.info("Запрошены пользователи по списку из {} id", unique.size());
 
-        inDbUserStorage.getUsetById(id);
-        inDbUserStorage.getUsetById(otherId);
-
-        String query =
-                "SELECT u.* FROM users u " +
-                        "WHERE u.id IN (" +
-                        "    (SELECT friend_id FROM friendship WHERE user_id = ? AND status IN ('pending', 'accepted') " +
-                        "     UNION " +
-                        "     SELECT user_id FROM friendship WHERE friend_id = ? AND status = 'accepted') " +
-                        "    INTERSECT " +
-                        "    (SELECT friend_id FROM friendship WHERE user_id = ? AND status IN ('pending', 'accepted') " +
-                        "     UNION " +
-                        "     SELECT user_id FROM friendship WHERE friend_id = ? AND status = 'accepted')" +
-                        ")";
+        List<UserDto> users = userStorage.getUsersByIds(unique).stream()
+                .map(UserDtoMapper::mapToDto)
+                .toList();
+        Set<Long> found = new HashSet<>();
+        users.forEach(user -> found.add(user.getId()));
 
-        try {
-            return jdbc.query(query, mapper, id, id, otherId, otherId);
-        } catch (org.springframework.dao.DataAccessException e) {
-                log.error("Ошибка при обращении к базе данных: {}", e.getMessage());
-                throw new RuntimeException("Ошибка работы с базой данных при получении списка пользователей");
-            }
+        return new MultiGetResult<>(users, unique.stream().filter(id -> !found.contains(id)).toList());
     }
 
+    // Существование уже проверено, поэтому без друзей запроса к БД нет совсем
+    private List<User> hydrate(long[] ids) {
+        if (ids.length == 0) {
+            return new ArrayList<>();
+        }
+        return userStorage.getUsersByIds(Arrays.stream(ids).boxed().toList());
+    }
 }
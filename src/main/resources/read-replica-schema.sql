@@ -0,0 +1,7 @@
+-- Схема профиля read-replica поверх schema.sql: метка времени, которую приложение пишет в основную БД
+-- и читает из реплики, чтобы измерить задержку
+
+CREATE TABLE IF NOT EXISTS replication_heartbeat (
+    id INTEGER PRIMARY KEY,
+    beat_at TIMESTAMP NOT NULL
+);
@@ -32,7 +32,8 @@ CREATE TABLE IF NOT EXISTS film (
     description VARCHAR(200),
     releaseDate DATE,
     duration INTEGER,
-    rating_id INTEGER REFERENCES rating(id)
+    rating_id INTEGER REFERENCES rating(id),
+    like_count INTEGER DEFAULT 0 NOT NULL                       -- Число лайков, обновляется в одной транзакции с likes
 );
 
 CREATE TABLE IF NOT EXISTS likes ( 
@@ -42,6 +43,28 @@ CREATE TABLE IF NOT EXISTS likes (
     PRIMARY KEY (film_id, user_id) 								-- Составной первичный ключ: один пользователь может лайкнуть один фильм только один раз
 );
 
+-- Однократные миграции данных: после выполнения миграции в таблицу записывается ее имя,
+-- и при следующих стартах она пропускается
+CREATE TABLE IF NOT EXISTS schema_migration (
+    name VARCHAR(100) PRIMARY KEY,
+    applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP()
+);
+
+-- Миграция для баз, созданных до появления film.like_count: добавляем колонку и один раз заполняем по likes.
+-- Если старт прервется до отметки, пересчет повторится — результат тот же
+ALTER TABLE film ADD COLUMN IF NOT EXISTS like_count INTEGER DEFAULT 0 NOT NULL;
+
+UPDATE film f SET like_count = (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.id)
+WHERE NOT EXISTS (SELECT 1 FROM schema_migration WHERE name = 'film_like_count_backfill')
+AND f.like_count <> (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.id);
+
+MERGE INTO schema_migration (name) KEY (name) VALUES ('film_like_count_backfill');
+
+CREATE INDEX IF NOT EXISTS film_like_count_idx ON film (like_count DESC, id);
+
+-- Тренды при старте читают только лайки за последнее окно
+CREATE INDEX IF NOT EXISTS likes_created_at_idx ON likes (created_at);
+
 CREATE TABLE IF NOT EXISTS film_genres (
     film_id BIGINT REFERENCES film(id) ON DELETE CASCADE,
     genre_id INTEGER REFERENCES genre(id) ON DELETE CASCADE,
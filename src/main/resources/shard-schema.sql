@@ -0,0 +1,29 @@
+-- Схема шарда фильмов (профиль sharded). Рейтинги, жанры и пользователи лежат в основной БД,
+-- поэтому ссылки на них здесь без внешних ключей; id фильма задается приложением из film_id_seq основной БД.
+
+CREATE TABLE IF NOT EXISTS film (
+    id BIGINT PRIMARY KEY,
+    name VARCHAR(50) NOT NULL,
+    description VARCHAR(200),
+    releaseDate DATE,
+    duration INTEGER,
+    rating_id INTEGER,
+    like_count INTEGER DEFAULT 0 NOT NULL                       -- Число лайков, обновляется в одной транзакции с likes
+);
+
+CREATE TABLE IF NOT EXISTS likes (
+    film_id BIGINT REFERENCES film(id) ON DELETE CASCADE,
+    user_id BIGINT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP(),
+    PRIMARY KEY (film_id, user_id)
+);
+
+CREATE INDEX IF NOT EXISTS film_like_count_idx ON film (like_count DESC, id);
+
+CREATE INDEX IF NOT EXISTS likes_created_at_idx ON likes (created_at);
+
+CREATE TABLE IF NOT EXISTS film_genres (
+    film_id BIGINT REFERENCES film(id) ON DELETE CASCADE,
+    genre_id INTEGER NOT NULL,
+    PRIMARY KEY (film_id, genre_id)
+);
@@ -0,0 +1,4 @@
+-- Схема профиля sharded в основной БД поверх schema.sql: фильмы лежат в шардах (shard-schema.sql),
+-- а их глобальные id выдает последовательность основной БД
+
+CREATE SEQUENCE IF NOT EXISTS film_id_seq;
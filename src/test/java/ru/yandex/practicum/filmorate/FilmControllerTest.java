@@ -18,6 +18,7 @@ import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Set;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -419,8 +420,178 @@ public class FilmControllerTest {
                 .andExpect(jsonPath("$[1].name").exists());
     }
 
-}
+    @Test
+    @DisplayName("Получение списка фильмов постранично по курсору")
+    void shouldReturnFilmsPageAfterCursor() throws Exception {
+        Mpa mpa = new Mpa();
+        mpa.setId(1);
+
+        for (int i = 1; i <= 3; i++) {
+            Film film = new Film();
+            film.setName("Name" + i);
+            film.setDescription("Description" + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, i));
+            film.setDuration(120);
+            film.setMpa(mpa);
+
+            mockMvc.perform(post("/films")
+                    .content(gson.toJson(film))
+                    .contentType(MediaType.APPLICATION_JSON));
+        }
+
+        mockMvc.perform(get("/films")
+                        .param("afterId", "1")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(2))
+                .andExpect(jsonPath("$[0].name").value("Name2"));
+
+        mockMvc.perform(get("/films")
+                        .param("afterId", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(2));
+    }
+
+    // Индексы поиска получают фильм только после коммита, поэтому тест идет без общей транзакции
+    @Test
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    @DisplayName("Поиск фильмов по названию и описанию")
+    void shouldSearchFilmsByNameAndDescription() throws Exception {
+        Mpa mpa = new Mpa();
+        mpa.setId(1);
+
+        String[][] films = {
+                {"Ёлки", "Новогодняя комедия"},
+                {"Комедия положений", "Фильм про ёлки и Новый год"},
+                {"Матрица", "Фантастика"}
+        };
+        for (String[] data : films) {
+            Film film = new Film();
+            film.setName(data[0]);
+            film.setDescription(data[1]);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(120);
+            film.setMpa(mpa);
+
+            mockMvc.perform(post("/films")
+                    .content(gson.toJson(film))
+                    .contentType(MediaType.APPLICATION_JSON));
+        }
+
+        mockMvc.perform(get("/films/search")
+                        .param("q", "елки"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("Ёлки"));
+
+        mockMvc.perform(get("/films/search")
+                        .param("q", " "))
+                .andExpect(status().isBadRequest());
+    }
+
+    // Индексы поиска получают фильм только после коммита, поэтому тест идет без общей транзакции
+    @Test
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    @DisplayName("Автодополнение по началу названия")
+    void shouldSuggestFilmsByNamePrefix() throws Exception {
+        Mpa mpa = new Mpa();
+        mpa.setId(1);
+
+        for (String name : new String[]{"Матрица", "Матрица: Перезагрузка", "Мастер и Маргарита"}) {
+            Film film = new Film();
+            film.setName(name);
+            film.setDescription("Description");
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(120);
+            film.setMpa(mpa);
+
+            mockMvc.perform(post("/films")
+                    .content(gson.toJson(film))
+                    .contentType(MediaType.APPLICATION_JSON));
+        }
+
+        mockMvc.perform(get("/films/suggest")
+                        .param("prefix", "мат"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("Матрица"));
+
+        mockMvc.perform(get("/films/suggest")
+                        .param("prefix", "Ма")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    @DisplayName("Получение фильмов по списку id: порядок запроса и ненайденные id")
+    void shouldReturnFilmsByIdsInRequestOrder() throws Exception {
+        Mpa mpa = new Mpa();
+        mpa.setId(1);
+
+        for (int i = 1; i <= 2; i++) {
+            Film film = new Film();
+            film.setName("Name" + i);
+            film.setDescription("Description" + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, i));
+            film.setDuration(120);
+            film.setMpa(mpa);
+
+            mockMvc.perform(post("/films")
+                    .content(gson.toJson(film))
+                    .contentType(MediaType.APPLICATION_JSON));
+        }
+
+        mockMvc.perform(get("/films")
+                        .param("ids", "2,999,1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.items[0].id").value(2))
+                .andExpect(jsonPath("$.items[1].id").value(1))
+                .andExpect(jsonPath("$.missing[0]").value(999));
+
+        mockMvc.perform(post("/films/by-ids")
+                        .content("[1, 2]")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.missing.length()").value(0));
+    }
 
+    @Test
+    @DisplayName("Пакетное создание фильмов: ошибки по строкам")
+    void shouldImportBatchAndReportRowErrors() throws Exception {
+        Mpa mpa = new Mpa();
+        mpa.setId(1);
 
+        Film valid = new Film();
+        valid.setName("Name");
+        valid.setDescription("Description");
+        valid.setReleaseDate(LocalDate.of(2000, 1, 1));
+        valid.setDuration(120);
+        valid.setMpa(mpa);
+
+        Film tooOld = new Film();
+        tooOld.setName("Old");
+        tooOld.setDescription("Description");
+        tooOld.setReleaseDate(LocalDate.of(1895, 12, 27));
+        tooOld.setDuration(120);
+        tooOld.setMpa(mpa);
+
+        mockMvc.perform(post("/films/batch")
+                        .content(gson.toJson(List.of(valid, tooOld)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.errors[0].row").value(2))
+                .andExpect(jsonPath("$.errors[0].error").value("Дата релиза не может быть раньше 28 декабря 1895 года"));
 
+        mockMvc.perform(get("/films"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+    }
 
+}
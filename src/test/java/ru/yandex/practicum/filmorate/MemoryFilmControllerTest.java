@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate;
+
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Те же сценарии на хранилище в памяти: откат тестовой транзакции отменяет изменения и в журнале
+@ActiveProfiles("memory")
+public class MemoryFilmControllerTest extends FilmControllerTest {
+
+    @DynamicPropertySource
+    static void memoryDir(DynamicPropertyRegistry registry) throws IOException {
+        Path dir = Files.createTempDirectory("filmorate-memory");
+        registry.add("filmorate.memory.dir", dir::toString);
+    }
+}
@@ -13,9 +13,13 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.dao.snapshot.MaintenanceGate;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -31,6 +35,9 @@ public class UserControllerTest {
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private MaintenanceGate maintenanceGate;
+
     private Gson gson;
 
     @BeforeEach
@@ -414,4 +421,77 @@ public class UserControllerTest {
                 .andExpect(jsonPath("$[0].email").exists())
                 .andExpect(jsonPath("$[1].email").exists());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Получение страницы пользователей после курсора")
+    void shouldReturnUsersPageAfterCursor() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@yandex.ru");
+            user.setLogin("login" + i);
+            user.setBirthday(LocalDate.of(2000, 1, i));
+
+            mockMvc.perform(post("/users")
+                    .content(gson.toJson(user))
+                    .contentType(MediaType.APPLICATION_JSON));
+        }
+
+        mockMvc.perform(get("/users")
+                        .param("afterId", "1")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(2))
+                .andExpect(jsonPath("$[0].login").value("login2"));
+
+        mockMvc.perform(get("/users")
+                        .param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Во время обслуживания БД запись отклоняется с 503, чтение работает")
+    void shouldRejectWritesDuringMaintenance() throws Exception {
+        User user = new User();
+        user.setEmail("test@yandex.ru");
+        user.setLogin("login");
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        Thread maintenance = new Thread(() -> {
+            try {
+                maintenanceGate.exclusive(() -> {
+                    started.countDown();
+                    try {
+                        finish.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return null;
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        maintenance.start();
+        started.await();
+        try {
+            mockMvc.perform(post("/users")
+                            .content(gson.toJson(user))
+                            .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(jsonPath("$.error").exists());
+            mockMvc.perform(get("/users"))
+                    .andExpect(status().isOk());
+        } finally {
+            finish.countDown();
+            maintenance.join();
+        }
+
+        mockMvc.perform(post("/users")
+                        .content(gson.toJson(user))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+    }
+}
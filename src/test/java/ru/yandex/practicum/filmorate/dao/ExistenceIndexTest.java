@@ -0,0 +1,94 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExistenceIndexTest {
+    private final Set<Long> users = new HashSet<>();
+    private final Set<Long> films = new HashSet<>();
+
+    @Test
+    @DisplayName("Строка, записанная в обход экземпляра ниже уже известных id, находится запросом к хранилищу")
+    void shouldFindRowWrittenElsewhereBelowKnownIds() {
+        films.addAll(Set.of(1L, 200L));
+        ExistenceIndex index = new ExistenceIndex(new FakeScan());
+        index.load();
+
+        // Блок id другого экземпляра приложения
+        films.add(101L);
+
+        assertThat(index.filmExists(101L)).isTrue();
+        assertThat(index.filmExists(102L)).isFalse();
+        assertThat(index.stats()).containsEntry("fallbackQueries", 2L);
+
+        // Найденный id запомнен, повторная проверка идет из памяти
+        assertThat(index.filmExists(101L)).isTrue();
+        assertThat(index.stats()).containsEntry("fallbackQueries", 2L);
+    }
+
+    @Test
+    @DisplayName("id за пределами int и разреженные id загружаются без переполнения")
+    void shouldLoadLargeAndSparseIds() {
+        long large = Integer.MAX_VALUE + 10L;
+        users.addAll(Set.of(1L, large, 5_000_000_000_000L));
+        ExistenceIndex index = new ExistenceIndex(new FakeScan());
+        index.load();
+
+        assertThat(index.userExists(large)).isTrue();
+        assertThat(index.userExists(5_000_000_000_000L)).isTrue();
+        assertThat(index.stats()).containsEntry("users", 3L).containsEntry("fallbackQueries", 0L);
+
+        index.userCreated(large + 1);
+        assertThat(index.userExists(large + 1)).isTrue();
+        assertThat(index.stats()).containsEntry("users", 4L);
+    }
+
+    // Хранилище из двух множеств id: индексу нужны только обход id и точечная проверка
+    private class FakeScan implements StorageScan {
+        @Override
+        public void films(Consumer<FilmRow> consumer) {
+        }
+
+        @Override
+        public Optional<FilmRow> film(long id) {
+            return Optional.empty();
+        }
+
+        @Override
+        public void likes(LocalDateTime since, Consumer<LikeRow> consumer) {
+        }
+
+        @Override
+        public void friendships(Consumer<FriendshipRow> consumer) {
+        }
+
+        @Override
+        public void userIds(LongConsumer consumer) {
+            users.forEach(consumer::accept);
+        }
+
+        @Override
+        public void filmIds(LongConsumer consumer) {
+            films.forEach(consumer::accept);
+        }
+
+        @Override
+        public boolean userExists(long id) {
+            return users.contains(id);
+        }
+
+        @Override
+        public boolean filmExists(long id) {
+            return films.contains(id);
+        }
+    }
+}
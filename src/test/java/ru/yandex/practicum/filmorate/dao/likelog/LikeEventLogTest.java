@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.dao.likelog;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.dao.LikeEvent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LikeEventLogTest {
+    private static final int SEGMENT_RECORDS = 100;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Одновременные записи получают разные номера и читаются все, через несколько сегментов")
+    void shouldAppendConcurrentlyAcrossSegments() throws Exception {
+        LikeEventLog log = open("batch");
+
+        List<Thread> threads = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+            long filmId = thread + 1;
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (long userId = 1; userId <= 250; userId++) {
+                    log.append(filmId, userId, userId % 3 != 0);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        List<LikeEvent> events = new ArrayList<>();
+        long next = log.read(1, Integer.MAX_VALUE, events::add);
+
+        assertThat(next).isEqualTo(1001L);
+        assertThat(events).hasSize(1000);
+        Set<List<Long>> pairs = new HashSet<>();
+        events.forEach(event -> pairs.add(List.of(event.filmId(), event.userId())));
+        assertThat(pairs).hasSize(1000);
+        assertThat(log.stats().get("durableSeq")).isEqualTo(1000L);
+        assertThat(segmentFiles()).hasSize(10);
+    }
+
+    @Test
+    @DisplayName("Чтение пачками продолжается с возвращенного номера")
+    void shouldReadInBatches() throws IOException {
+        LikeEventLog log = open("interval");
+        for (long userId = 1; userId <= 150; userId++) {
+            log.append(1L, userId, true);
+        }
+
+        List<LikeEvent> first = new ArrayList<>();
+        long next = log.read(1, 120, first::add);
+        List<LikeEvent> rest = new ArrayList<>();
+        long end = log.read(next, 120, rest::add);
+
+        assertThat(first).hasSize(120);
+        assertThat(rest).hasSize(30);
+        assertThat(rest.getFirst().userId()).isEqualTo(121L);
+        assertThat(end).isEqualTo(151L);
+        assertThat(log.read(end, 120, event -> { })).isEqualTo(end);
+    }
+
+    @Test
+    @DisplayName("Оборванная запись в конце журнала отбрасывается при открытии")
+    void shouldDropTornTailOnOpen() throws IOException {
+        LikeEventLog log = open("batch");
+        for (long userId = 1; userId <= 105; userId++) {
+            log.append(1L, userId, true);
+        }
+        log.close();
+
+        // Сумма последней записи испорчена, после нее — мусор, как после сбоя посреди записи
+        Path last = segmentFiles().getLast();
+        try (FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3, 4}), 32 + 4 * LikeEventLog.RECORD_SIZE + 28);
+            channel.write(ByteBuffer.wrap(new byte[]{7, 7, 7, 7}), 32 + 9 * LikeEventLog.RECORD_SIZE + 24);
+        }
+
+        LikeEventLog reopened = open("batch");
+        assertThat(reopened.writtenSeq()).isEqualTo(104L);
+        assertThat(reopened.append(2L, 1L, false)).isEqualTo(105L);
+
+        List<LikeEvent> events = new ArrayList<>();
+        reopened.read(101, Integer.MAX_VALUE, events::add);
+        assertThat(events).extracting(LikeEvent::filmId).containsExactly(1L, 1L, 1L, 1L, 2L);
+        assertThat(events.getLast().add()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Перенесенные сегменты удаляются, текущий остается")
+    void shouldDeleteProjectedSegments() throws IOException {
+        LikeEventLog log = open("interval");
+        for (long userId = 1; userId <= 250; userId++) {
+            log.append(1L, userId, true);
+        }
+
+        log.deleteSegmentsBefore(251);
+
+        assertThat(segmentFiles()).hasSize(1);
+        assertThat(log.firstSeq()).isEqualTo(201L);
+        List<LikeEvent> events = new ArrayList<>();
+        log.read(201, Integer.MAX_VALUE, events::add);
+        assertThat(events).hasSize(50);
+    }
+
+    private LikeEventLog open(String fsync) throws IOException {
+        LikeEventLog log = new LikeEventLog(true, dir.toString(), SEGMENT_RECORDS, fsync);
+        log.open();
+        return log;
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files
+                    .filter(file -> file.getFileName().toString().endsWith(".seg"))
+                    .sorted()
+                    .toList();
+        }
+    }
+}
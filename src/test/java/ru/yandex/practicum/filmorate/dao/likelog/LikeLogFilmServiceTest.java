@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.dao.likelog;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ru.yandex.practicum.filmorate.dao.InDbFilmStorage;
+import ru.yandex.practicum.filmorate.dao.InDbUserStorage;
+import ru.yandex.practicum.filmorate.dao.mapper.Film.FilmDto;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class LikeLogFilmServiceTest {
+    private final FilmService filmService;
+    private final InDbFilmStorage filmStorage;
+    private final InDbUserStorage userStorage;
+    private final LikeLogProjector projector;
+
+    @TempDir
+    static Path dir;
+
+    @DynamicPropertySource
+    static void likeLog(DynamicPropertyRegistry registry) {
+        registry.add("filmorate.likes.event-log.enabled", () -> "true");
+        registry.add("filmorate.likes.event-log.dir", dir::toString);
+    }
+
+    @Test
+    @DisplayName("Лайк через журнал: ответ сразу с лайком, проектор переносит его в БД и рейтинг")
+    void shouldProjectLoggedLikeIntoDatabase() throws InterruptedException {
+        Film film = new Film();
+        film.setName("Name");
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(120);
+        Mpa mpa = new Mpa();
+        mpa.setId(1);
+        film.setMpa(mpa);
+        long filmId = filmStorage.create(film).getId();
+
+        User user = new User();
+        user.setEmail("test@yandex.ru");
+        user.setLogin("login");
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        long userId = userStorage.create(user).getId();
+
+        FilmDto answer = filmService.addLike(filmId, userId);
+        assertThat(answer.getLikes()).containsExactly(userId);
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!projector.stats().get("lag").equals(0L) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(projector.stats()).containsEntry("lag", 0L);
+        assertThat(filmStorage.getFilmById(filmId).getLikes()).containsExactly(userId);
+        assertThat(filmService.getPopular(1)).extracting(FilmDto::getId).containsExactly(filmId);
+    }
+}
@@ -0,0 +1,184 @@
+package ru.yandex.practicum.filmorate.dao.likelog;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.dao.LikeBatchWriter;
+import ru.yandex.practicum.filmorate.dao.LikeEvent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LikeLogProjectorTest {
+    private static final int SEGMENT_RECORDS = 100;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("При старте весь накопленный журнал переносится в БД до приема запросов")
+    void shouldDrainBacklogOnStartup() throws Exception {
+        LikeEventLog log = openLog();
+        appendLikes(log, 1, 250);
+        FakeWriter writer = new FakeWriter();
+
+        LikeLogProjector projector = projector(log, writer, 1000);
+        projector.start();
+
+        assertThat(writer.received).hasSize(250);
+        assertThat(writer.likes).hasSize(250);
+        assertThat(projector.stats()).containsEntry("lag", 0L);
+        assertThat(savedOffset()).isEqualTo(251L);
+        projector.stop();
+    }
+
+    @Test
+    @DisplayName("После перезапуска перенос продолжается с сохраненной позиции")
+    void shouldResumeFromSavedOffsetAfterRestart() throws Exception {
+        LikeEventLog log = openLog();
+        appendLikes(log, 1, 50);
+        FakeWriter writer = new FakeWriter();
+        LikeLogProjector projector = projector(log, writer, 1000);
+        projector.start();
+        projector.stop();
+        log.close();
+
+        LikeEventLog reopened = openLog();
+        appendLikes(reopened, 51, 80);
+        FakeWriter afterRestart = new FakeWriter();
+        LikeLogProjector restarted = projector(reopened, afterRestart, 1000);
+        restarted.start();
+
+        assertThat(afterRestart.received).extracting(LikeEvent::userId)
+                .containsExactlyElementsOf(userIds(51, 80));
+        assertThat(savedOffset()).isEqualTo(81L);
+        restarted.stop();
+    }
+
+    @Test
+    @DisplayName("Сбой между записью пачки и сохранением позиции: пачка применяется повторно, итог тот же")
+    void shouldReplayBatchIdempotentlyAfterCrash() throws Exception {
+        LikeEventLog log = openLog();
+        appendLikes(log, 1, 20);
+        for (long userId = 1; userId <= 20; userId += 2) {
+            log.append(1L, userId, false);
+        }
+
+        FakeWriter crashing = new FakeWriter();
+        crashing.crashAfterBatches = 1;
+        assertThatThrownBy(() -> projector(log, crashing, 10).start())
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(savedOffset()).isZero();
+
+        // После перезапуска та же БД получает пачку еще раз
+        FakeWriter restarted = new FakeWriter();
+        restarted.likes.addAll(crashing.likes);
+        LikeLogProjector projector = projector(log, restarted, 10);
+        projector.start();
+
+        assertThat(restarted.received).hasSize(30);
+        assertThat(restarted.received.subList(0, 10)).isEqualTo(crashing.received);
+        assertThat(restarted.likes).containsExactlyInAnyOrderElementsOf(
+                userIds(2, 20).stream().filter(userId -> userId % 2 == 0).map(userId -> List.of(1L, userId)).toList());
+        projector.stop();
+    }
+
+    @Test
+    @DisplayName("Сегмент удаляется только после переноса всех его событий")
+    void shouldDeleteSegmentsOnlyAfterProjection() throws Exception {
+        LikeEventLog log = openLog();
+        appendLikes(log, 1, 250);
+        assertThat(segmentFiles()).hasSize(3);
+
+        FakeWriter crashing = new FakeWriter();
+        crashing.crashAfterBatches = 2;
+        assertThatThrownBy(() -> projector(log, crashing, 100).start())
+                .isInstanceOf(IllegalStateException.class);
+
+        // Первая пачка перенесена, ее сегмент удален; вторая записана, но позиция не сохранена
+        assertThat(savedOffset()).isEqualTo(101L);
+        assertThat(segmentFiles()).hasSize(2);
+
+        LikeLogProjector projector = projector(log, new FakeWriter(), 100);
+        projector.start();
+        assertThat(segmentFiles()).hasSize(1);
+        assertThat(log.firstSeq()).isEqualTo(201L);
+        projector.stop();
+    }
+
+    private LikeEventLog openLog() throws IOException {
+        LikeEventLog log = new LikeEventLog(true, dir.toString(), SEGMENT_RECORDS, "batch");
+        log.open();
+        return log;
+    }
+
+    private LikeLogProjector projector(LikeEventLog log, FakeWriter writer, int batchSize) {
+        return new LikeLogProjector(log, writer, dir.toString(), batchSize, 10);
+    }
+
+    private static void appendLikes(LikeEventLog log, long fromUser, long toUser) {
+        for (long userId = fromUser; userId <= toUser; userId++) {
+            log.append(1L, userId, true);
+        }
+    }
+
+    private static List<Long> userIds(long from, long to) {
+        List<Long> ids = new ArrayList<>();
+        for (long userId = from; userId <= to; userId++) {
+            ids.add(userId);
+        }
+        return ids;
+    }
+
+    private long savedOffset() throws IOException {
+        try (FileChannel channel = FileChannel.open(dir.resolve("projected.offset"), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+            return channel.read(buffer, 0) == Long.BYTES ? buffer.getLong(0) : 0L;
+        }
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files
+                    .filter(file -> file.getFileName().toString().endsWith(".seg"))
+                    .toList();
+        }
+    }
+
+    // БД вместо LikeBatchWriter: пары (фильм, пользователь) с лайком; запись идемпотентна, как и настоящая
+    private static class FakeWriter extends LikeBatchWriter {
+        private final Set<List<Long>> likes = new HashSet<>();
+        private final List<LikeEvent> received = new ArrayList<>();
+        private int crashAfterBatches = -1;
+        private int batches;
+
+        FakeWriter() {
+            super(null, null, null, null, null, null, null, null);
+        }
+
+        @Override
+        public synchronized Result write(List<LikeEvent> events) {
+            received.addAll(events);
+            for (LikeEvent event : events) {
+                if (event.add()) {
+                    likes.add(List.of(event.filmId(), event.userId()));
+                } else {
+                    likes.remove(List.of(event.filmId(), event.userId()));
+                }
+            }
+            if (++batches == crashAfterBatches) {
+                throw new IllegalStateException("Сбой после записи пачки");
+            }
+            return new Result(events.size(), 0);
+        }
+    }
+}
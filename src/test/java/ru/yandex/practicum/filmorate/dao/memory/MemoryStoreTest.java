@@ -0,0 +1,251 @@
+package ru.yandex.practicum.filmorate.dao.memory;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MemoryStoreTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("После сбоя состояние восстанавливается из журнала")
+    void shouldRecoverFromJournal() throws IOException {
+        MemoryStore store = open();
+        fill(store);
+        store.sync();
+
+        MemoryStore recovered = open();
+        assertFilled(recovered);
+        assertThat(recovered.lastFilmId()).isEqualTo(1L);
+        assertThat(recovered.lastUserId()).isEqualTo(2L);
+    }
+
+    @Test
+    @DisplayName("Снимок и журнал после него дают полное состояние, старые сегменты удаляются")
+    void shouldRecoverFromSnapshotAndJournal() throws IOException {
+        MemoryStore store = open();
+        fill(store);
+        store.snapshot();
+        store.removeLike(1, 2);
+        store.snapshot();
+        store.addLike(1, 2);
+        store.sync();
+
+        MemoryStore recovered = open();
+        assertFilled(recovered);
+        assertThat(recovered.stats().get("snapshotSeq")).isEqualTo(store.stats().get("snapshotSeq"));
+        assertThat(SnapshotFile.list(dir)).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("Оборванная запись в конце журнала отбрасывается")
+    void shouldTruncateTornTail() throws IOException {
+        MemoryStore store = open();
+        fill(store);
+        store.sync();
+
+        Files.write(lastSegment(), new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        MemoryStore recovered = open();
+        assertFilled(recovered);
+
+        recovered.addLike(1, 1);
+        recovered.sync();
+        assertThat(open().likes(1).userIds()).containsExactly(1L, 2L);
+    }
+
+    @Test
+    @DisplayName("Хвост из нулей после сбоя отбрасывается")
+    void shouldTruncateZeroFilledTail() throws IOException {
+        MemoryStore store = open();
+        fill(store);
+        store.sync();
+
+        Files.write(lastSegment(), new byte[64], StandardOpenOption.APPEND);
+
+        assertFilled(open());
+    }
+
+    @Test
+    @DisplayName("Испорченная запись в середине журнала — ошибка старта, записи после нее не отбрасываются")
+    void shouldFailOnCorruptionInTheMiddle() throws IOException {
+        MemoryStore store = open();
+        fill(store);
+        store.sync();
+
+        // Байт внутри первого кадра, за которым еще четыре целых
+        Path segment = lastSegment();
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[8 + 8 + 2] ^= 1;
+        Files.write(segment, bytes);
+
+        assertThatThrownBy(this::open)
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Журнал поврежден");
+        assertThat(Files.size(segment)).isEqualTo(bytes.length);
+    }
+
+    @Test
+    @DisplayName("Изменения транзакции видны только ей, а при откате не попадают ни в память, ни в журнал")
+    void shouldDiscardOnRollback() throws Exception {
+        MemoryStore store = open();
+        fill(store);
+        long lastSeq = (long) store.stats().get("lastSeq");
+
+        inTransaction(() -> {
+            store.addLike(1, 1);
+            assertThat(store.likes(1).count()).isEqualTo(2);
+            assertThat(likesFromOtherThread(store)).containsExactly(2L);
+        }, TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(store.likes(1).userIds()).containsExactly(2L);
+        assertThat(store.stats().get("lastSeq")).isEqualTo(lastSeq);
+        store.sync();
+        assertThat(open().likes(1).userIds()).containsExactly(2L);
+    }
+
+    @Test
+    @DisplayName("Коммит фиксирует все изменения транзакции одной записью журнала")
+    void shouldCommitTransactionAsOneRecord() throws Exception {
+        MemoryStore store = open();
+        fill(store);
+        long lastSeq = (long) store.stats().get("lastSeq");
+
+        inTransaction(() -> {
+            store.addLike(1, 1);
+            store.putUser(new StoredUser(store.nextUserId(), "c@mail.ru", "c", "C", null), true);
+        }, TransactionSynchronization.STATUS_COMMITTED);
+
+        assertThat(store.likes(1).userIds()).containsExactly(1L, 2L);
+        assertThat(store.stats().get("lastSeq")).isEqualTo(lastSeq + 1);
+        store.sync();
+        MemoryStore recovered = open();
+        assertThat(recovered.likes(1).userIds()).containsExactly(1L, 2L);
+        assertThat(recovered.user(3).email()).isEqualTo("c@mail.ru");
+    }
+
+    @Test
+    @DisplayName("Транзакция, прерванная сбоем, не оставляет следов после восстановления")
+    void shouldNotReplayTransactionInterruptedByCrash() throws Exception {
+        MemoryStore store = open();
+        fill(store);
+
+        // Процесс падает посреди транзакции: коммита не было
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            store.addLike(1, 1);
+            store.putUser(new StoredUser(store.nextUserId(), "c@mail.ru", "c", "C", null), true);
+            store.sync();
+        } finally {
+            TransactionSynchronizationManager.unbindResourceIfPossible(store);
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        MemoryStore recovered = open();
+        assertFilled(recovered);
+        assertThat(recovered.user(3)).isNull();
+
+        // Процесс падает посреди записи кадра транзакции в журнал
+        long size = Files.size(lastSegment());
+        inTransaction(() -> {
+            recovered.addLike(1, 1);
+            recovered.addFriendRequest(2, 1);
+        }, TransactionSynchronization.STATUS_COMMITTED);
+        recovered.sync();
+        try (FileChannel segment = FileChannel.open(lastSegment(), StandardOpenOption.WRITE)) {
+            segment.truncate(size + (segment.size() - size) / 2);
+        }
+
+        MemoryStore afterCrash = open();
+        assertFilled(afterCrash);
+    }
+
+    @Test
+    @DisplayName("Email и логин уникальны")
+    void shouldRejectDuplicateEmail() throws IOException {
+        MemoryStore store = open();
+        fill(store);
+
+        assertThatThrownBy(() -> store.putUser(new StoredUser(3, "a@mail.ru", "other", "Other", null), true))
+                .isInstanceOf(DuplicateKeyException.class)
+                .hasMessageContaining("EMAIL");
+        assertThat(store.user(3)).isNull();
+    }
+
+    private interface Work {
+        void run() throws Exception;
+    }
+
+    private static void inTransaction(Work work, int status) throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            work.run();
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                synchronizations.forEach(synchronization -> synchronization.beforeCommit(false));
+                synchronizations.forEach(TransactionSynchronization::afterCommit);
+            }
+            synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static long[] likesFromOtherThread(MemoryStore store) throws InterruptedException {
+        long[][] userIds = new long[1][];
+        Thread reader = new Thread(() -> userIds[0] = store.likes(1).userIds());
+        reader.start();
+        reader.join();
+        return userIds[0];
+    }
+
+    private MemoryStore open() throws IOException {
+        MemoryStore store = new MemoryStore(dir.toString(), false);
+        store.recover();
+        return store;
+    }
+
+    private static void fill(MemoryStore store) {
+        store.putUser(new StoredUser(store.nextUserId(), "a@mail.ru", "a", "A", LocalDate.of(1990, 1, 1)), true);
+        store.putUser(new StoredUser(store.nextUserId(), "b@mail.ru", "b", "B", null), true);
+        store.putFilm(new StoredFilm(store.nextFilmId(), "Film", "Description", LocalDate.of(2000, 1, 1), 120,
+                1, new int[]{1, 2}), true);
+        store.addLike(1, 2);
+        store.addFriendRequest(1, 2);
+    }
+
+    private static void assertFilled(MemoryStore store) {
+        assertThat(store.user(1).email()).isEqualTo("a@mail.ru");
+        assertThat(store.user(2).birthday()).isNull();
+        assertThat(store.film(1).genreIds()).containsExactly(1, 2);
+        assertThat(store.likes(1).userIds()).containsExactly(2L);
+        assertThat(store.friendRequests(1)).containsExactly(2L);
+        assertThat(store.friendRequests(2)).isEmpty();
+    }
+
+    private Path lastSegment() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            List<Path> segments = files
+                    .filter(file -> file.getFileName().toString().startsWith("journal-"))
+                    .sorted()
+                    .toList();
+            return segments.getLast();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package ru.yandex.practicum.filmorate.dao.routing;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicaRoutingTest {
+    private static final String URL = "jdbc:h2:mem:routing;DB_CLOSE_DELAY=-1";
+
+    private ReplicaRouting routing;
+    private JdbcTemplate jdbc;
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        routing = new ReplicaRouting(URL, URL, "sa", "", 2, 2, true, Duration.ofSeconds(1), Duration.ofSeconds(5));
+        DataSource dataSource = new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(routing));
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE IF NOT EXISTS replication_heartbeat (id INTEGER PRIMARY KEY, beat_at TIMESTAMP NOT NULL)");
+
+        readOnly = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        routing.close();
+    }
+
+    @Test
+    @DisplayName("readOnly-транзакции идут в пул чтения, остальное — в основной пул")
+    void shouldRouteReadOnlyTransactionsToReadPool() {
+        long reads = routed("read");
+        long writes = routed("write");
+
+        readOnly.execute(status -> jdbc.queryForObject("SELECT 1", Integer.class));
+        assertThat(routed("read")).isEqualTo(reads + 1);
+
+        jdbc.queryForObject("SELECT 1", Integer.class);
+        assertThat(routed("write")).isEqualTo(writes + 1);
+    }
+
+    @Test
+    @DisplayName("Изменяющий запрос и следующие чтения того же клиента идут в основной пул")
+    void shouldReadOwnWritesFromPrimary() {
+        routing.beginRequest("user:1", true);
+        long writes = routed("write");
+        readOnly.execute(status -> jdbc.queryForObject("SELECT 1", Integer.class));
+        routing.endRequest("user:1", true);
+        assertThat(routed("write")).isEqualTo(writes + 1);
+
+        routing.beginRequest("user:1", false);
+        readOnly.execute(status -> jdbc.queryForObject("SELECT 1", Integer.class));
+        routing.endRequest("user:1", false);
+        assertThat(routed("write")).isEqualTo(writes + 2);
+
+        long reads = routed("read");
+        routing.beginRequest("user:2", false);
+        readOnly.execute(status -> jdbc.queryForObject("SELECT 1", Integer.class));
+        routing.endRequest("user:2", false);
+        assertThat(routed("read")).isEqualTo(reads + 1);
+    }
+
+    @Test
+    @DisplayName("Читающий POST по списку id не привязывает клиента к основной БД, изменяющий — привязывает")
+    void shouldNotPinClientAfterReadOnlyPost() throws Exception {
+        ReadYourWritesFilter filter = new ReadYourWritesFilter(routing);
+        MockHttpServletRequest byIds = new MockHttpServletRequest("POST", "/users/by-ids");
+        byIds.addHeader("X-User-Id", "1");
+        filter.doFilter(byIds, new MockHttpServletResponse(), new MockFilterChain());
+
+        long reads = routed("read");
+        routing.beginRequest("user:1", false);
+        readOnly.execute(status -> jdbc.queryForObject("SELECT 1", Integer.class));
+        routing.endRequest("user:1", false);
+        assertThat(routed("read")).isEqualTo(reads + 1);
+
+        MockHttpServletRequest create = new MockHttpServletRequest("POST", "/users");
+        create.addHeader("X-User-Id", "1");
+        filter.doFilter(create, new MockHttpServletResponse(), new MockFilterChain());
+
+        long writes = routed("write");
+        routing.beginRequest("user:1", false);
+        readOnly.execute(status -> jdbc.queryForObject("SELECT 1", Integer.class));
+        routing.endRequest("user:1", false);
+        assertThat(routed("write")).isEqualTo(writes + 1);
+    }
+
+    @Test
+    @DisplayName("Heartbeat измеряет задержку реплики")
+    void shouldMeasureReplicationLag() {
+        routing.heartbeat();
+
+        assertThat(routing.stats())
+                .containsEntry("replicaAvailable", true)
+                .containsEntry("replicationLagMs", 0L);
+    }
+
+    @Test
+    @DisplayName("Копировщик переносит данные в отдельную БД реплики, чтение идет из нее")
+    void shouldReadFromCopiedReplica() {
+        String replicaUrl = "jdbc:h2:mem:replica-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        ReplicaRouting replicated = new ReplicaRouting("jdbc:h2:mem:primary-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                replicaUrl, "sa", "", 2, 2, true, Duration.ofSeconds(1), Duration.ofSeconds(5));
+        ReplicaCopier copier = new ReplicaCopier(replicated, true, replicaUrl, "sa", "", Duration.ZERO);
+        try {
+            JdbcTemplate primary = primary(replicated);
+            JdbcTemplate routed = new JdbcTemplate(routedDataSource(replicated));
+            TransactionTemplate read = readOnly(routed);
+            primary.update("INSERT INTO users (email, login) VALUES ('a@mail.ru', 'a')");
+
+            replicated.heartbeat();
+            copier.replicate();
+            replicated.heartbeat();
+            assertThat(replicated.stats()).containsEntry("replicaAvailable", true);
+
+            // Новая строка видна в реплике только после следующего переноса
+            primary.update("INSERT INTO users (email, login) VALUES ('b@mail.ru', 'b')");
+            assertThat(countUsers(read, routed)).isEqualTo(1L);
+            copier.replicate();
+            assertThat(countUsers(read, routed)).isEqualTo(2L);
+        } finally {
+            copier.close();
+            replicated.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Реплика отстает больше max-lag: чтение переходит на основную БД")
+    void shouldFallBackToPrimaryWhenReplicaLagsBehind() throws InterruptedException {
+        String replicaUrl = "jdbc:h2:mem:replica-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        ReplicaRouting lagging = new ReplicaRouting("jdbc:h2:mem:primary-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                replicaUrl, "sa", "", 2, 2, true, Duration.ofSeconds(1), Duration.ofMillis(200));
+        ReplicaCopier copier = new ReplicaCopier(lagging, true, replicaUrl, "sa", "", Duration.ofMillis(400));
+        try {
+            JdbcTemplate primary = primary(lagging);
+            JdbcTemplate routed = new JdbcTemplate(routedDataSource(lagging));
+            TransactionTemplate read = readOnly(routed);
+            primary.update("INSERT INTO users (email, login) VALUES ('a@mail.ru', 'a')");
+
+            lagging.heartbeat();
+            copier.replicate();
+            Thread.sleep(500);
+            copier.replicate();
+            lagging.heartbeat();
+
+            // Реплика уже получила строку, но с опозданием больше допустимого
+            assertThat(countUsers(new JdbcTemplate(new DriverManagerDataSource(replicaUrl, "sa", "")))).isEqualTo(1L);
+            assertThat(lagging.stats()).containsEntry("replicaAvailable", false);
+            assertThat((long) lagging.stats().get("replicationLagMs")).isGreaterThan(200L);
+
+            assertThat(countUsers(read, routed)).isEqualTo(1L);
+            primary.update("INSERT INTO users (email, login) VALUES ('b@mail.ru', 'b')");
+            long writes = routed(lagging, "write");
+            assertThat(countUsers(read, routed)).isEqualTo(2L);
+            assertThat(routed(lagging, "write")).isEqualTo(writes + 1);
+        } finally {
+            copier.close();
+            lagging.close();
+        }
+    }
+
+    private static JdbcTemplate primary(ReplicaRouting routing) {
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(routing.writePool());
+        return new JdbcTemplate(routing.writePool());
+    }
+
+    private static DataSource routedDataSource(ReplicaRouting routing) {
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(routing));
+    }
+
+    private static TransactionTemplate readOnly(JdbcTemplate routed) {
+        TransactionTemplate transactions = new TransactionTemplate(
+                new DataSourceTransactionManager(routed.getDataSource()));
+        transactions.setReadOnly(true);
+        return transactions;
+    }
+
+    private static long countUsers(TransactionTemplate read, JdbcTemplate routed) {
+        Long count = read.execute(status -> countUsers(routed));
+        return count != null ? count : 0;
+    }
+
+    private static long countUsers(JdbcTemplate jdbc) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM users", Long.class);
+    }
+
+    private long routed(String pool) {
+        return routed(routing, pool);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static long routed(ReplicaRouting routing, String pool) {
+        return (long) ((Map<String, Object>) routing.stats().get(pool)).get("routedConnections");
+    }
+}
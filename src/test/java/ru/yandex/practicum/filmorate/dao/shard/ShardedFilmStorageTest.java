@@ -0,0 +1,156 @@
+package ru.yandex.practicum.filmorate.dao.shard;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ru.yandex.practicum.filmorate.dao.FilmStorage;
+import ru.yandex.practicum.filmorate.dao.LikeStorage;
+import ru.yandex.practicum.filmorate.dao.mapper.Film.FilmDto;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@ActiveProfiles("sharded")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class ShardedFilmStorageTest {
+    private final FilmStorage filmStorage;
+    private final LikeStorage likeStorage;
+    private final FilmShards shards;
+    private final FilmIdAllocator idAllocator;
+
+    @TempDir
+    static Path dir;
+
+    // Каждый запуск — новые файлы H2, по одному на шард; контекст закрывается до удаления каталога
+    @DynamicPropertySource
+    static void shardUrls(DynamicPropertyRegistry registry) {
+        registry.add("filmorate.shards.urls", () -> IntStream.range(0, 3)
+                .mapToObj(shard -> "jdbc:h2:file:" + dir.resolve("films-" + shard).toAbsolutePath())
+                .collect(Collectors.joining(",")));
+    }
+
+    @Test
+    @DisplayName("Фильмы получают глобально уникальные id и расходятся по нескольким шардам")
+    void shouldSpreadFilmsAcrossShards() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            ids.add(filmStorage.create(film("Film " + i)).getId());
+        }
+
+        assertThat(new HashSet<>(ids)).hasSize(ids.size());
+
+        Set<Integer> used = new HashSet<>();
+        for (Long id : ids) {
+            int shard = shards.shardOf(id);
+            Integer stored = shards.all().get(shard)
+                    .queryForObject("SELECT COUNT(*) FROM film WHERE id = ?", Integer.class, id);
+            assertThat(stored).isEqualTo(1);
+            used.add(shard);
+        }
+        assertThat(used).hasSizeGreaterThan(1);
+
+        FilmDto loaded = filmStorage.getFilmById(ids.getFirst());
+        assertThat(loaded.getName()).isEqualTo("Film 0");
+        assertThat(loaded.getGenres()).extracting(Genre::getId).containsExactly(1);
+        assertThat(filmStorage.getFilmsByIds(ids.reversed())).extracting(FilmDto::getId)
+                .containsExactlyElementsOf(ids.reversed());
+    }
+
+    @Test
+    @DisplayName("Постраничный обход сливает шарды в общий порядок по id")
+    void shouldPageAcrossShardsInIdOrder() {
+        Set<Long> created = new HashSet<>();
+        for (int i = 0; i < 25; i++) {
+            created.add(filmStorage.create(film("Page " + i)).getId());
+        }
+
+        List<Long> seen = new ArrayList<>();
+        Long cursor = null;
+        while (true) {
+            List<Long> page = filmStorage.findPage(cursor, 7).stream().map(FilmDto::getId).toList();
+            if (page.isEmpty()) {
+                break;
+            }
+            seen.addAll(page);
+            cursor = page.getLast();
+        }
+
+        assertThat(seen).isSorted().doesNotHaveDuplicates().containsAll(created);
+        assertThat(filmStorage.findAll()).extracting(FilmDto::getId).containsExactlyElementsOf(seen);
+    }
+
+    @Test
+    @DisplayName("Популярные фильмы — слияние top-N всех шардов")
+    void shouldMergePopularFromAllShards() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            ids.add(filmStorage.create(film("Popular " + i)).getId());
+        }
+        // У i-го фильма i + 1 лайк от пользователей с разными id
+        for (int i = 0; i < ids.size(); i++) {
+            for (long user = 1; user <= i + 1; user++) {
+                likeStorage.addLike(ids.get(i), 1000L * (i + 1) + user);
+            }
+        }
+
+        assertThat(likeStorage.findPopularIds(3)).containsExactly(ids.get(5), ids.get(4), ids.get(3));
+        assertThat(likeStorage.deleteLike(ids.get(5), 6001L)).isPresent();
+        assertThat(likeStorage.findLikeCountMismatches()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Последовательность id сдвигается только вперед, за максимальный id шардов")
+    void shouldMoveIdSequenceForwardPastShardMaximum() {
+        long maxId = filmStorage.create(film("Before")).getId() + 1000;
+        JdbcTemplate shard = shards.all().get(shards.shardOf(maxId));
+        shard.update("INSERT INTO film (id, name) VALUES (?, ?)", maxId, "Loaded");
+
+        idAllocator.reset();
+        shard.update("DELETE FROM film WHERE id = ?", maxId);
+
+        assertThat(idAllocator.next()).isEqualTo(maxId + 1);
+        long afterShift = idAllocator.next();
+        assertThat(afterShift).isEqualTo(maxId + 2);
+
+        // Сдвиг не нужен: последовательность уже впереди и назад не возвращается
+        idAllocator.reset();
+        assertThat(idAllocator.next()).isGreaterThan(afterShift);
+    }
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(120);
+
+        Mpa mpa = new Mpa();
+        mpa.setId(1);
+        film.setMpa(mpa);
+
+        Genre genre = new Genre();
+        genre.setId(1);
+        film.setGenres(Set.of(genre));
+        return film;
+    }
+}
@@ -0,0 +1,139 @@
+package ru.yandex.practicum.filmorate.dao.sketch;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.dao.TrendingIndex;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SketchAccuracyTest {
+    private static final int FILMS = 10_000;
+    private static final int EVENTS = 200_000;
+    private static final double EPSILON = 0.001;
+    private static final double DELTA = 0.01;
+
+    @Test
+    @DisplayName("Count-Min Sketch не занижает частоты и укладывается в epsilon * N для доли 1 - delta")
+    void sketchShouldStayWithinErrorBound() {
+        long[] stream = zipfStream(42);
+        Map<Long, Long> exact = exactCounts(stream);
+        CountMinSketch sketch = new CountMinSketch(EPSILON, DELTA, 7);
+        for (long item : stream) {
+            sketch.add(item);
+        }
+
+        long bound = (long) Math.ceil(EPSILON * stream.length);
+        int withinBound = 0;
+        for (long item = 1; item <= FILMS; item++) {
+            long actual = exact.getOrDefault(item, 0L);
+            long estimate = sketch.estimate(item);
+            assertThat(estimate).isGreaterThanOrEqualTo(actual);
+            if (estimate - actual <= bound) {
+                withinBound++;
+            }
+        }
+
+        assertThat(sketch.total()).isEqualTo(EVENTS);
+        assertThat((double) withinBound / FILMS).isGreaterThanOrEqualTo(1 - DELTA);
+    }
+
+    @Test
+    @DisplayName("Space-Saving находит точный top-10 на распределении Ципфа")
+    void spaceSavingShouldFindHeavyHitters() {
+        long[] stream = zipfStream(43);
+        Map<Long, Long> exact = exactCounts(stream);
+        SpaceSaving heavyHitters = new SpaceSaving(100);
+        for (long item : stream) {
+            heavyHitters.add(item);
+        }
+
+        Set<Long> expected = new HashSet<>(topTen(exact));
+        List<Long> found = heavyHitters.counters().stream()
+                .sorted(Comparator.comparingLong(SpaceSaving.Counter::count).reversed())
+                .limit(10)
+                .map(SpaceSaving.Counter::item)
+                .toList();
+
+        assertThat(found).containsExactlyInAnyOrderElementsOf(expected);
+        heavyHitters.counters().forEach(counter -> assertThat(counter.count() - counter.error())
+                .isLessThanOrEqualTo(exact.get(counter.item())));
+    }
+
+    @Test
+    @DisplayName("Приближенный трекер возвращает лидеров с оценкой ошибки")
+    void trackerShouldReportErrorBound() {
+        ApproxLikeTracker tracker = new ApproxLikeTracker(true, "1h", 6, EPSILON, DELTA, 100);
+        long[] stream = zipfStream(44);
+        for (long item : stream) {
+            tracker.record(item);
+        }
+
+        ApproxLikeTracker.Result result = tracker.top(null, 10);
+        List<Long> ids = result.films().stream().map(ApproxLikeTracker.Estimate::filmId).toList();
+
+        assertThat(result.totalLikes()).isEqualTo(EVENTS);
+        assertThat(result.maxError()).isEqualTo((long) Math.ceil(EPSILON * EVENTS));
+        assertThat(result.confidence()).isEqualTo(1 - DELTA);
+        assertThat(ids).containsExactlyInAnyOrderElementsOf(topTen(exactCounts(stream)));
+        assertThrows(ValidationException.class, () -> tracker.top("24h", 10));
+    }
+
+    @Test
+    @DisplayName("Выключенный трекер ничего не хранит и отклоняет запросы")
+    void disabledTrackerShouldRejectQueries() {
+        ApproxLikeTracker tracker = new ApproxLikeTracker(false, "1h", 6, EPSILON, DELTA, 100);
+        tracker.record(1L);
+
+        assertThrows(ValidationException.class, () -> tracker.top(null, 10));
+    }
+
+    @Test
+    @DisplayName("В приближенном режиме точное кольцо трендов не ведется")
+    void exactTrendingShouldBeSkippedInApproxMode() {
+        TrendingIndex trending = new TrendingIndex(null, new String[]{"1h", "24h"}, 0.25, true);
+        trending.rebuild();
+        trending.likeAdded(1L, LocalDateTime.now());
+        trending.tick();
+
+        assertThrows(ValidationException.class, () -> trending.top("1h", 10));
+    }
+
+    // Частота i-го фильма пропорциональна 1 / i^1.1; выборка по обратной функции распределения
+    private static long[] zipfStream(long seed) {
+        double[] cumulative = new double[FILMS];
+        double sum = 0;
+        for (int i = 0; i < FILMS; i++) {
+            sum += 1 / Math.pow(i + 1, 1.1);
+            cumulative[i] = sum;
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] stream = new long[EVENTS];
+        for (int i = 0; i < EVENTS; i++) {
+            int position = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            stream[i] = (position >= 0 ? position : -position - 1) + 1;
+        }
+        return stream;
+    }
+
+    private static Map<Long, Long> exactCounts(long[] stream) {
+        Map<Long, Long> counts = new HashMap<>();
+        for (long item : stream) {
+            counts.merge(item, 1L, Long::sum);
+        }
+        return counts;
+    }
+
+    private static List<Long> topTen(Map<Long, Long> counts) {
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<Long, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(10)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+}
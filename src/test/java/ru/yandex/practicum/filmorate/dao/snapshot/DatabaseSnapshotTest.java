@@ -0,0 +1,187 @@
+package ru.yandex.practicum.filmorate.dao.snapshot;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.dao.SingleFilmDataSource;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Slf4j
+class DatabaseSnapshotTest {
+    private static final int USERS = 2_000;
+    private static final int FILMS = 1_000;
+    private static final int LIKES = 20_000;
+    private static final int FRIENDSHIPS = 3_000;
+
+    @TempDir
+    Path dir;
+
+    private JdbcTemplate source;
+    private JdbcTemplate target;
+    private DatabaseSnapshot sourceSnapshot;
+    private DatabaseSnapshot targetSnapshot;
+
+    @BeforeEach
+    void setUp() {
+        DataSource sourceData = database();
+        DataSource targetData = database();
+        source = new JdbcTemplate(sourceData);
+        target = new JdbcTemplate(targetData);
+        sourceSnapshot = snapshot(sourceData);
+        targetSnapshot = snapshot(targetData);
+    }
+
+    @Test
+    // Время построчных INSERT и восстановления только пишется в лог для сравнения, тест его не проверяет
+    @DisplayName("Восстановление из снимка дает те же таблицы, что и исходная БД")
+    void shouldRestoreSameDataAsInsertReplay() throws IOException {
+        long replayStarted = System.nanoTime();
+        replayInserts(source);
+        long replayMs = (System.nanoTime() - replayStarted) / 1_000_000;
+
+        Path file = dir.resolve("full.fsnap");
+        sourceSnapshot.export(file);
+
+        long restoreStarted = System.nanoTime();
+        Map<String, Object> result = targetSnapshot.restore(file, 4);
+        long restoreMs = (System.nanoTime() - restoreStarted) / 1_000_000;
+
+        log.info("Построчные INSERT: {} мс, восстановление из снимка: {} мс, снимок {} байт, {}",
+                replayMs, restoreMs, Files.size(file), result);
+
+        for (String sql : new String[]{
+                "SELECT * FROM users ORDER BY id",
+                "SELECT * FROM film ORDER BY id",
+                "SELECT * FROM film_genres ORDER BY film_id, genre_id",
+                "SELECT * FROM likes ORDER BY film_id, user_id",
+                "SELECT * FROM friendship ORDER BY user_id, friend_id"}) {
+            assertThat(target.queryForList(sql)).isEqualTo(source.queryForList(sql));
+        }
+
+        target.update("INSERT INTO users (email, login) VALUES ('new@mail.ru', 'new')");
+        assertThat(target.queryForObject("SELECT id FROM users WHERE login = 'new'", Long.class))
+                .isEqualTo(USERS + 1L);
+    }
+
+    @Test
+    @DisplayName("Восстановление в непустую БД запрещено")
+    void shouldRejectNonEmptyTarget() throws IOException {
+        source.update("INSERT INTO users (email, login) VALUES ('a@mail.ru', 'a')");
+        Path file = dir.resolve("users.fsnap");
+        sourceSnapshot.export(file);
+
+        assertThatThrownBy(() -> sourceSnapshot.restore(file, 2))
+                .isInstanceOf(ValidationException.class)
+                .hasMessageContaining("пустую БД");
+    }
+
+    @Test
+    @DisplayName("Оборванный снимок обнаруживается до загрузки")
+    void shouldRejectTruncatedSnapshot() throws IOException {
+        replayInserts(source);
+        Path file = dir.resolve("truncated.fsnap");
+        sourceSnapshot.export(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() / 2);
+        }
+
+        assertThatThrownBy(() -> targetSnapshot.restore(file, 2))
+                .isInstanceOf(ValidationException.class)
+                .hasMessageContaining("оборван");
+        assertThat(target.queryForObject("SELECT COUNT(*) FROM users", Long.class)).isZero();
+    }
+
+    @Test
+    @DisplayName("После сбоя посреди загрузки БД снова пуста и восстановление можно повторить")
+    void shouldCleanUpFailedRestoreAndAllowRetry() throws IOException {
+        replayInserts(source);
+        Path file = dir.resolve("full.fsnap");
+        sourceSnapshot.export(file);
+
+        // Портим данные последнего блока: заголовки целы, ошибка найдется только при его загрузке
+        Path broken = dir.resolve("broken.fsnap");
+        Files.copy(file, broken);
+        try (FileChannel channel = FileChannel.open(broken, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, channel.size() - 2);
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) (last.get(0) ^ 0xFF)}), channel.size() - 2);
+        }
+
+        assertThatThrownBy(() -> targetSnapshot.restore(broken, 4))
+                .isInstanceOf(ValidationException.class)
+                .hasMessageContaining("контрольная сумма");
+        for (String table : new String[]{"users", "film", "film_genres", "likes", "friendship"}) {
+            assertThat(target.queryForObject("SELECT COUNT(*) FROM " + table, Long.class)).isZero();
+        }
+
+        targetSnapshot.restore(file, 4);
+        assertThat(target.queryForObject("SELECT COUNT(*) FROM users", Long.class)).isEqualTo(USERS);
+    }
+
+    // Базовая линия: каждая строка — отдельный INSERT
+    private static void replayInserts(JdbcTemplate jdbc) {
+        Random random = new Random(42);
+        for (int user = 1; user <= USERS; user++) {
+            jdbc.update("INSERT INTO users (id, email, login, name, birthday) VALUES (?, ?, ?, ?, ?)",
+                    user, "user" + user + "@mail.ru", "user" + user, user % 10 == 0 ? null : "Пользователь " + user,
+                    user % 7 == 0 ? null : LocalDate.of(1970, 1, 1).plusDays(random.nextInt(15_000)));
+        }
+        for (int film = 1; film <= FILMS; film++) {
+            jdbc.update("INSERT INTO film (id, name, description, releaseDate, duration, rating_id) "
+                            + "VALUES (?, ?, ?, ?, ?, ?)",
+                    film, "Фильм " + film, "Описание фильма " + film, LocalDate.of(1950, 1, 1).plusDays(film * 20L),
+                    90 + random.nextInt(60), film % 6 == 0 ? null : 1 + random.nextInt(5));
+            jdbc.update("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", film, 1 + film % 6);
+        }
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int like = 0; like < LIKES; like++) {
+            jdbc.update("MERGE INTO likes (film_id, user_id, created_at) KEY (film_id, user_id) VALUES (?, ?, ?)",
+                    1 + random.nextInt(FILMS), 1 + random.nextInt(USERS),
+                    Timestamp.valueOf(start.plusNanos(random.nextLong(1_000_000_000_000_000L) / 1_000 * 1_000)));
+        }
+        jdbc.update("UPDATE film f SET like_count = (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.id)");
+        for (int friendship = 0; friendship < FRIENDSHIPS; friendship++) {
+            jdbc.update("MERGE INTO friendship (user_id, friend_id, status) KEY (user_id, friend_id) VALUES (?, ?, ?)",
+                    1 + random.nextInt(USERS), 1 + random.nextInt(USERS), random.nextBoolean() ? "pending" : "accepted");
+        }
+    }
+
+    private static DataSource database() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:snapshot-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        return dataSource;
+    }
+
+    private static DatabaseSnapshot snapshot(DataSource dataSource) {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        TransactionTemplate transactions = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        return new DatabaseSnapshot(jdbc, transactions, new SingleFilmDataSource(jdbc, transactions),
+                new MaintenanceGate());
+    }
+}
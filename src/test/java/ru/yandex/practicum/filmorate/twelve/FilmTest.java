@@ -9,13 +9,19 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import lombok.RequiredArgsConstructor;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
 import ru.yandex.practicum.filmorate.dao.InDbFilmStorage;
 import ru.yandex.practicum.filmorate.dao.InDbUserStorage;
+import ru.yandex.practicum.filmorate.dao.LikeBatchWriter;
+import ru.yandex.practicum.filmorate.dao.LikeEvent;
+import ru.yandex.practicum.filmorate.dao.recommend.FilmSimilarityIndex;
 import ru.yandex.practicum.filmorate.dao.mapper.Film.FilmDto;
 import ru.yandex.practicum.filmorate.dao.mapper.user.UserDto;
 import ru.yandex.practicum.filmorate.model.Film;
@@ -33,6 +39,8 @@ class FilmTest {
     private final InDbFilmStorage filmStorage;
     private final InDbUserStorage userStorage;
     private final FilmService filmService;
+    private final FilmSimilarityIndex similarityIndex;
+    private final LikeBatchWriter likeBatchWriter;
 
     @Test
     @DisplayName("Создание фильма: валидные данные + возврат фильма")
@@ -295,6 +303,74 @@ class FilmTest {
                 .containsExactly(filmDto1.getId(), filmDto2.getId());
     }
 
+    // Рекомендации получают лайк только после его коммита, поэтому тест идет без общей транзакции
+    @Test
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    @DirtiesContext
+    @DisplayName("Рекомендации: фильмы, которые лайкали вместе с уже понравившимися")
+    void shouldRecommendFilmsLikedTogether() {
+        FilmDto filmDto1 = filmStorage.create(createFilmObject("Film One", 1));
+        FilmDto filmDto2 = filmStorage.create(createFilmObject("Film Two", 1));
+
+        UserDto user1 = userStorage.create(createUserObject("user1@test.ru", "user1"));
+        UserDto user2 = userStorage.create(createUserObject("user2@test.ru", "user2"));
+
+        filmService.addLike(filmDto1.getId(), user1.getId());
+        filmService.addLike(filmDto2.getId(), user1.getId());
+        filmService.addLike(filmDto1.getId(), user2.getId());
+        similarityIndex.applyPending();
+
+        assertThat(filmService.getSimilar(filmDto1.getId(), 10))
+                .extracting(FilmDto::getId)
+                .containsExactly(filmDto2.getId());
+        assertThat(filmService.getRecommendations(user2.getId(), 10))
+                .extracting(FilmDto::getId)
+                .containsExactly(filmDto2.getId());
+    }
+
+    @Test
+    @DisplayName("Тренды: фильмы по лайкам за окно, удаление лайка учитывается")
+    void shouldReturnTrendingFilmsForWindow() {
+        FilmDto filmDto1 = filmStorage.create(createFilmObject("Film One", 1));
+        FilmDto filmDto2 = filmStorage.create(createFilmObject("Film Two", 1));
+
+        UserDto user1 = userStorage.create(createUserObject("user1@test.ru", "user1"));
+        UserDto user2 = userStorage.create(createUserObject("user2@test.ru", "user2"));
+
+        filmService.addLike(filmDto1.getId(), user1.getId());
+        filmService.addLike(filmDto2.getId(), user1.getId());
+        filmService.addLike(filmDto2.getId(), user2.getId());
+
+        assertThat(filmService.getTrending("24h", 10))
+                .extracting(FilmDto::getId)
+                .containsExactly(filmDto2.getId(), filmDto1.getId());
+
+        filmService.deleteLike(filmDto1.getId(), user1.getId());
+
+        assertThat(filmService.getTrending("1h", 10))
+                .extracting(FilmDto::getId)
+                .containsExactly(filmDto2.getId());
+    }
+
+    @Test
+    @DisplayName("Тренды: отложенное удаление лайка снимается с минуты, в которую лайк был поставлен")
+    void shouldRemoveWriteBehindLikeFromItsOwnMinute() {
+        FilmDto film = filmStorage.create(createFilmObject("Film One", 1));
+        UserDto user1 = userStorage.create(createUserObject("user1@test.ru", "user1"));
+        UserDto user2 = userStorage.create(createUserObject("user2@test.ru", "user2"));
+        LocalDateTime now = LocalDateTime.now();
+
+        likeBatchWriter.write(List.of(
+                new LikeEvent(film.getId(), user1.getId(), true, now.minusMinutes(90)),
+                new LikeEvent(film.getId(), user2.getId(), true, now.minusMinutes(5))));
+        likeBatchWriter.write(List.of(new LikeEvent(film.getId(), user1.getId(), false, now)));
+
+        // Удален лайк полуторачасовой давности: свежий лайк user2 остается в часовом окне
+        assertThat(filmService.getTrending("1h", 10))
+                .extracting(FilmDto::getId)
+                .containsExactly(film.getId());
+    }
+
     private Film createFilmObject(String name, int mpaId) {
         Film film = new Film();
         film.setName(name);
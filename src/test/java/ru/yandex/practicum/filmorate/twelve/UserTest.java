@@ -9,6 +9,7 @@ import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabas
 import org.springframework.boot.test.context.SpringBootTest;
 import ru.yandex.practicum.filmorate.dao.InDbUserStorage;
 import ru.yandex.practicum.filmorate.dao.mapper.user.UserDto;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.UserService;
 
@@ -17,6 +18,7 @@ import java.util.Collection;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 
 @SpringBootTest
@@ -209,4 +211,44 @@ class UserTest {
                 .extracting(User::getId)
                 .containsExactly(id3);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Друзья: рекомендации друзей друзей по числу общих друзей")
+    void shouldSuggestFriendsOfFriends() {
+        Long[] ids = new Long[4];
+        for (int i = 0; i < ids.length; i++) {
+            User user = new User();
+            user.setEmail("suggest" + i + "@test.ru");
+            user.setLogin("suggest" + i);
+            user.setBirthday(LocalDate.of(2000, 1, 1));
+            ids[i] = userStorage.create(user).getId();
+        }
+
+        userService.addFriend(ids[0], ids[1]);
+        userService.addFriend(ids[0], ids[2]);
+        userService.addFriend(ids[1], ids[3]);
+        userService.addFriend(ids[2], ids[3]);
+
+        assertThat(userService.suggestFriends(ids[0], 10, "mutual"))
+                .extracting(UserDto::getId)
+                .containsExactly(ids[3]);
+
+        userService.addFriend(ids[0], ids[3]);
+
+        assertThat(userService.suggestFriends(ids[0], 10, "adamic-adar")).isEmpty();
+        assertThat(userService.suggestFriends(ids[0], 10, "mutual")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Друзья: ошибка при добавлении несуществующего пользователя")
+    void shouldThrowNotFoundWhenFriendDoesNotExist() {
+        User user = new User();
+        user.setEmail("lonely@test.ru");
+        user.setLogin("lonely");
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        Long id = userStorage.create(user).getId();
+
+        assertThrows(NotFoundException.class, () -> userService.addFriend(id, id + 1000));
+        assertThrows(NotFoundException.class, () -> userService.findAllFriends(id + 1000));
+    }
+}